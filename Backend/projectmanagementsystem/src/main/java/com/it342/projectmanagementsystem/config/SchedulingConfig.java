@@ -0,0 +1,10 @@
+package com.it342.projectmanagementsystem.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Background rebuild / refresh jobs (@Scheduled) for the maintained read models
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -2,33 +2,58 @@ package com.it342.projectmanagementsystem.controller;
 
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
 import com.it342.projectmanagementsystem.dto.*;
 import com.it342.projectmanagementsystem.model.Appointment;
+import com.it342.projectmanagementsystem.model.User;
+import com.it342.projectmanagementsystem.service.AppointmentApprovals;
+import com.it342.projectmanagementsystem.service.AppointmentCascadeDeleter;
+import com.it342.projectmanagementsystem.service.AppointmentConflictIndex;
+import com.it342.projectmanagementsystem.service.AppointmentCounters;
+import com.it342.projectmanagementsystem.service.AppointmentCsvExporter;
+import com.it342.projectmanagementsystem.service.AppointmentHydrator;
+import com.it342.projectmanagementsystem.service.AppointmentReadModel;
+import com.it342.projectmanagementsystem.service.AppointmentSearchIndex;
 import com.it342.projectmanagementsystem.service.AppointmentService;
+import com.it342.projectmanagementsystem.service.AppointmentTags;
+import com.it342.projectmanagementsystem.service.FacultyAppointmentFeed;
+import com.it342.projectmanagementsystem.service.FacultyLeaderboard;
+import com.it342.projectmanagementsystem.service.ListVersions;
+import com.it342.projectmanagementsystem.service.NotificationInbox;
 import com.it342.projectmanagementsystem.service.NotificationService;
+import com.it342.projectmanagementsystem.service.PageCursor;
+import com.it342.projectmanagementsystem.service.TagIndex;
+import com.it342.projectmanagementsystem.service.UserDirectory;
+import com.it342.projectmanagementsystem.service.UserTimelines;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.stream.Collectors;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import java.nio.charset.StandardCharsets;
 
 @RestController
 @RequestMapping("/api/appointments")
@@ -38,43 +63,155 @@ public class AppointmentController {
     private final Firestore firestore;
     private final AppointmentService appointmentService;
     private final NotificationService notificationService;
-
-    public AppointmentController(Firestore firestore, AppointmentService appointmentService, NotificationService notificationService) {
+    private final AppointmentHydrator appointmentHydrator;
+    private final AppointmentConflictIndex conflictIndex;
+    private final AppointmentCounters appointmentCounters;
+    private final AppointmentCsvExporter appointmentCsvExporter;
+    private final FacultyLeaderboard facultyLeaderboard;
+    private final FacultyAppointmentFeed facultyAppointmentFeed;
+    private final AppointmentCascadeDeleter appointmentCascadeDeleter;
+    private final UserDirectory userDirectory;
+    private final AppointmentReadModel readModel;
+    private final UserTimelines userTimelines;
+    private final AppointmentTags appointmentTags;
+    private final TagIndex tagIndex;
+    private final AppointmentSearchIndex searchIndex;
+    private final AppointmentApprovals appointmentApprovals;
+    private final NotificationInbox notificationInbox;
+
+    public AppointmentController(Firestore firestore, AppointmentService appointmentService, NotificationService notificationService,
+                                 AppointmentHydrator appointmentHydrator, AppointmentConflictIndex conflictIndex,
+                                 AppointmentCounters appointmentCounters, AppointmentCsvExporter appointmentCsvExporter,
+                                 FacultyLeaderboard facultyLeaderboard, FacultyAppointmentFeed facultyAppointmentFeed,
+                                 AppointmentCascadeDeleter appointmentCascadeDeleter, UserDirectory userDirectory,
+                                 AppointmentReadModel readModel, UserTimelines userTimelines,
+                                 AppointmentTags appointmentTags, TagIndex tagIndex,
+                                 AppointmentSearchIndex searchIndex, AppointmentApprovals appointmentApprovals,
+                                 NotificationInbox notificationInbox) {
         this.firestore = firestore;
         this.appointmentService = appointmentService;
         this.notificationService = notificationService;
+        this.appointmentHydrator = appointmentHydrator;
+        this.conflictIndex = conflictIndex;
+        this.appointmentCounters = appointmentCounters;
+        this.appointmentCsvExporter = appointmentCsvExporter;
+        this.facultyLeaderboard = facultyLeaderboard;
+        this.facultyAppointmentFeed = facultyAppointmentFeed;
+        this.appointmentCascadeDeleter = appointmentCascadeDeleter;
+        this.userDirectory = userDirectory;
+        this.readModel = readModel;
+        this.userTimelines = userTimelines;
+        this.appointmentTags = appointmentTags;
+        this.tagIndex = tagIndex;
+        this.searchIndex = searchIndex;
+        this.appointmentApprovals = appointmentApprovals;
+        this.notificationInbox = notificationInbox;
     }
 
-    // Helper method to create user-appointment relationships
-    private void createUserAppointmentRelationships(String appointmentId, String creatorId, List<String> participantIds) {
-        try {
-            // Create relationship for creator
-            Map<String, Object> creatorRelationship = new HashMap<>();
-            creatorRelationship.put("userId", creatorId);
-            creatorRelationship.put("appointmentId", appointmentId);
-            creatorRelationship.put("role", "CREATOR");
-            creatorRelationship.put("status", "CONFIRMED");
-            creatorRelationship.put("createdAt", Timestamp.now());
-            creatorRelationship.put("updatedAt", Timestamp.now());
-            
-            firestore.collection("user_appointments").document().set(creatorRelationship).get();
-            
-            // Create relationships for participants
+    // List response with the cursor for the next page, if any, in a header
+    private static <T> ResponseEntity<List<T>> page(List<T> items, String nextPageToken) {
+        var response = ResponseEntity.ok();
+        if (nextPageToken != null) {
+            response.header(PageCursor.NEXT_PAGE_TOKEN_HEADER, nextPageToken);
+        }
+        return response.body(items);
+    }
+
+    // Same, carrying the ETag when there is one; clients may store it but must revalidate every time
+    private static <T> ResponseEntity<List<T>> page(List<T> items, String nextPageToken, String etag) {
+        if (etag == null) {
+            return page(items, nextPageToken);
+        }
+        var response = ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache().cachePrivate());
+        if (nextPageToken != null) {
+            response.header(PageCursor.NEXT_PAGE_TOKEN_HEADER, nextPageToken);
+        }
+        return response.body(items);
+    }
+
+    // One page of a user's appointments, from the read model when the caller found it live,
+    // else the user's timeline
+    private PageCursor.Page<Appointment> userAppointmentsPage(String userId, String userRole, PageCursor cursor,
+                                                              boolean fromReadModel)
+            throws ExecutionException, InterruptedException {
+        if (fromReadModel) {
+            return readModel.userAppointments(userId, userRole, cursor);
+        }
+        var timeline = userTimelines.read(userId, userRole, cursor);
+        if (timeline != null) {
+            return timeline;
+        }
+        // Page the user's appointment relationships by appointment id, the key the timeline
+        // and read model page on; sorting here avoids a composite index on user_appointments
+        TreeMap<String, QueryDocumentSnapshot> links = new TreeMap<>();
+        for (QueryDocumentSnapshot link : firestore.collection("user_appointments")
+                .whereEqualTo("userId", userId)
+                .select("appointmentId", "role", "status")
+                .get()
+                .get()
+                .getDocuments()) {
+            if (link.getString("appointmentId") != null) {
+                links.put(link.getString("appointmentId"), link);
+            }
+        }
+        var userAppointments = cursor.page(links);
+        return new PageCursor.Page<>(appointmentHydrator.hydrate(userId, userRole, userAppointments.getItems()),
+                userAppointments.getNextPageToken());
+    }
+
+    // Creator plus participants, i.e. everyone who gets a user_appointments link
+    private List<String> linkedUserIds(String creatorId, List<String> participantIds) {
+        List<String> userIds = new ArrayList<>();
+        userIds.add(creatorId);
+        if (participantIds != null) {
+            userIds.addAll(participantIds);
+        }
+        return userIds;
+    }
+
+    // Applies an appointment update with the matching timeline entries and tag postings in one batch
+    private void updateAppointment(DocumentSnapshot appointmentDoc, Map<String, Object> updates)
+            throws ExecutionException, InterruptedException {
+        String appointmentId = appointmentDoc.getId();
+        Set<String> linkedUsers = userTimelines.linkedUserIds(appointmentId);
+        WriteBatch batch = firestore.batch();
+        batch.update(appointmentDoc.getReference(), updates);
+        userTimelines.update(batch, linkedUsers, appointmentId, updates);
+        if (updates.containsKey("startTime")) {
+            tagIndex.updateTimes(batch, TagIndex.tagNames(appointmentDoc), appointmentId,
+                    (Timestamp) updates.get("startTime"), (Timestamp) updates.get("endTime"));
+        }
+        batch.commit().get();
+    }
+
+    // Helper method to add user-appointment relationships and timeline entries to a creation batch
+    private void addUserAppointmentRelationships(WriteBatch batch, String appointmentId, Map<String, Object> appointmentData,
+                                                 String creatorId, String creatorName, List<String> participantIds,
+                                                 Timestamp now) {
+        // Create relationship for creator
+        Map<String, Object> creatorRelationship = new HashMap<>();
+        creatorRelationship.put("userId", creatorId);
+        creatorRelationship.put("appointmentId", appointmentId);
+        creatorRelationship.put("role", "CREATOR");
+        creatorRelationship.put("status", "CONFIRMED");
+        creatorRelationship.put("createdAt", now);
+        creatorRelationship.put("updatedAt", now);
+        batch.set(firestore.collection("user_appointments").document(), creatorRelationship);
+        userTimelines.put(batch, creatorId, appointmentId, appointmentData, creatorName, "CREATOR", "CONFIRMED");
+
+        // Create relationships for participants
+        if (participantIds != null) {
             for (String participantId : participantIds) {
                 Map<String, Object> participantRelationship = new HashMap<>();
                 participantRelationship.put("userId", participantId);
                 participantRelationship.put("appointmentId", appointmentId);
                 participantRelationship.put("role", "PARTICIPANT");
                 participantRelationship.put("status", "PENDING");
-                participantRelationship.put("createdAt", Timestamp.now());
-                participantRelationship.put("updatedAt", Timestamp.now());
-                
-                firestore.collection("user_appointments").document().set(participantRelationship).get();
+                participantRelationship.put("createdAt", now);
+                participantRelationship.put("updatedAt", now);
+                batch.set(firestore.collection("user_appointments").document(), participantRelationship);
+                userTimelines.put(batch, participantId, appointmentId, appointmentData, creatorName, "PARTICIPANT", "PENDING");
             }
-            
-            logger.info("Created user-appointment relationships for appointment: {}", appointmentId);
-        } catch (Exception e) {
-            logger.error("Error creating user-appointment relationships: {}", e.getMessage());
         }
     }
 
@@ -82,9 +219,9 @@ public class AppointmentController {
     @PostMapping("/create")
     public ResponseEntity<Appointment> createAppointment(
             @RequestBody AppointmentRequest request,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userId = authentication.getName();
+            String userId = currentUser.getUserId();
             logger.info("Creating appointment request from user: {}", userId);
 
             // Validate time format
@@ -102,22 +239,36 @@ public class AppointmentController {
             appointmentData.put("createdBy", userId);
             appointmentData.put("participants", request.getParticipants());
             appointmentData.put("status", "PENDING_APPROVAL");
-            appointmentData.put("createdAt", Timestamp.now());
-            appointmentData.put("updatedAt", Timestamp.now());
+            Timestamp now = Timestamp.now();
+            appointmentData.put("createdAt", now);
+            appointmentData.put("updatedAt", now);
             
             // Add faculty approval tracking
             appointmentData.put("facultyApprovals", new HashMap<String, Boolean>());
             appointmentData.put("requiresApproval", true);
 
-            // Save to Firestore
+            // Appointment, relationships and approval-request notifications commit in one batch
             var docRef = firestore.collection("appointments").document();
-            docRef.set(appointmentData).get();
-            
-            // Create user-appointment relationships
-            createUserAppointmentRelationships(docRef.getId(), userId, request.getParticipants());
-            
-            // Send approval requests to faculty participants
-            sendApprovalRequests(docRef.getId(), request.getParticipants(), userId);
+            WriteBatch batch = firestore.batch();
+            appointmentCounters.create(batch, docRef, appointmentData);
+            String requesterName = currentUser.getFirstName() + " " + currentUser.getLastName();
+            addUserAppointmentRelationships(batch, docRef.getId(), appointmentData, userId, requesterName,
+                    request.getParticipants(), now);
+            Map<String, String> notificationIdsByFaculty = addApprovalRequests(batch, docRef.getId(), appointmentData,
+                    request.getParticipants(), userId, requesterName);
+            batch.commit().get();
+
+            conflictIndex.record(docRef.getId(), request.getTitle(),
+                    (Timestamp) appointmentData.get("startTime"), (Timestamp) appointmentData.get("endTime"),
+                    "PENDING_APPROVAL", null, linkedUserIds(userId, request.getParticipants()));
+
+            // Push notifications are queued only once the notifications are stored
+            for (Map.Entry<String, String> entry : notificationIdsByFaculty.entrySet()) {
+                String facultyId = entry.getKey();
+                notificationService.sendAppointmentRequest(facultyId, docRef.getId(), request.getTitle(), requesterName,
+                        entry.getValue());
+                logger.info("Sent approval request to faculty: {} for appointment: {}", facultyId, docRef.getId());
+            }
 
             // Create response
             Appointment appointment = new Appointment();
@@ -132,6 +283,7 @@ public class AppointmentController {
             appointment.setParticipants(request.getParticipants());
             appointment.setStatus("PENDING_APPROVAL");
 
+            searchIndex.reindex(docRef.getId());
             logger.info("Appointment request created with ID: {}", docRef.getId());
             return ResponseEntity.ok(appointment);
         } catch (DateTimeParseException e) {
@@ -143,66 +295,41 @@ public class AppointmentController {
         }
     }
     
-    // Helper method to send approval requests to faculty
-    private void sendApprovalRequests(String appointmentId, List<String> participantIds, String requesterId) {
-        try {
-            // Get appointment details
-            var appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
-            if (!appointmentDoc.exists()) {
-                logger.error("Appointment not found when sending approval requests: {}", appointmentId);
-                return;
-            }
-            
-            // Get appointment details for the notification
-            String title = appointmentDoc.getString("title");
-            String description = appointmentDoc.getString("description");
-            Timestamp startTime = appointmentDoc.getTimestamp("startTime");
-            Timestamp endTime = appointmentDoc.getTimestamp("endTime");
-            
-            // Get requester details
-            var requesterDoc = firestore.collection("users").document(requesterId).get().get();
-            String requesterName = requesterDoc.getString("firstName") + " " + requesterDoc.getString("lastName");
-            
-            // Create notification for each faculty participant
-            for (String participantId : participantIds) {
-                // Check if participant is faculty
-                var userDoc = firestore.collection("users").document(participantId).get().get();
-                if (userDoc.exists() && "FACULTY".equals(userDoc.getString("role"))) {
-                    // Create notification in Firestore
-                    Map<String, Object> notificationData = new HashMap<>();
-                    notificationData.put("userId", participantId);
-                    notificationData.put("appointmentId", appointmentId);
-                    notificationData.put("type", "APPOINTMENT_REQUEST");
-                    notificationData.put("title", "Appointment Request: " + title);
-                    notificationData.put("message", requesterName + " has requested an appointment with you.");
-                    notificationData.put("details", Map.of(
-                        "title", title,
-                        "description", description,
-                        "startTime", startTime,
-                        "endTime", endTime,
-                        "requesterId", requesterId,
-                        "requesterName", requesterName
-                    ));
-                    notificationData.put("status", "UNREAD");
-                    notificationData.put("createdAt", Timestamp.now());
-                    
-                    // Save notification
-                    firestore.collection("notifications").document().set(notificationData).get();
-                    
-                    // Send push notification
-                    notificationService.sendAppointmentRequest(
-                        participantId,
-                        appointmentId,
-                        title,
-                        requesterName
-                    );
-                    
-                    logger.info("Sent approval request to faculty: {} for appointment: {}", participantId, appointmentId);
-                }
+    // Helper method to add approval-request notifications for faculty participants to a creation batch.
+    // Returns each faculty id with its notification id, so push notifications can be sent after the batch commits.
+    private Map<String, String> addApprovalRequests(WriteBatch batch, String appointmentId, Map<String, Object> appointmentData,
+                                             List<String> participantIds, String requesterId, String requesterName)
+            throws ExecutionException, InterruptedException {
+        Map<String, String> notificationIdsByFaculty = new LinkedHashMap<>();
+        if (participantIds == null || participantIds.isEmpty()) {
+            return notificationIdsByFaculty;
+        }
+
+        // Get appointment details for the notification
+        String title = (String) appointmentData.get("title");
+        Map<String, Object> details = new HashMap<>();
+        details.put("title", title);
+        details.put("description", appointmentData.get("description"));
+        details.put("startTime", appointmentData.get("startTime"));
+        details.put("endTime", appointmentData.get("endTime"));
+        details.put("requesterId", requesterId);
+        details.put("requesterName", requesterName);
+
+        // Create notification for each faculty participant; roles come from one batched read
+        Map<String, UserDirectory.UserSummary> participantUsers = userDirectory.getAll(participantIds);
+        for (String participantId : participantIds) {
+            UserDirectory.UserSummary user = participantUsers.get(participantId);
+            if (user != null && user.isFaculty() && !notificationIdsByFaculty.containsKey(participantId)) {
+                Map<String, Object> notificationData = new HashMap<>();
+                notificationData.put("appointmentId", appointmentId);
+                notificationData.put("type", "APPOINTMENT_REQUEST");
+                notificationData.put("title", "Appointment Request: " + title);
+                notificationData.put("message", requesterName + " has requested an appointment with you.");
+                notificationData.put("details", details);
+                notificationIdsByFaculty.put(participantId, notificationInbox.add(batch, participantId, notificationData));
             }
-        } catch (Exception e) {
-            logger.error("Error sending approval requests: {}", e.getMessage());
         }
+        return notificationIdsByFaculty;
     }
     
     // Endpoint for faculty to respond to appointment requests
@@ -210,157 +337,51 @@ public class AppointmentController {
     public ResponseEntity<Appointment> approveAppointment(
             @PathVariable String appointmentId,
             @RequestBody Map<String, Boolean> approval,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userEmail = authentication.getName();
             boolean isApproved = approval.getOrDefault("approved", false);
-            logger.info("Faculty with email {} {} appointment: {}", userEmail, isApproved ? "approved" : "denied", appointmentId);
-            
-            // Check if appointment exists
-            var appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
-            if (!appointmentDoc.exists()) {
-                logger.error("Appointment not found: {}", appointmentId);
-                return ResponseEntity.notFound().build();
-            }
-            
-            // Get user document by email
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (userDocs.isEmpty()) {
-                logger.error("User with email {} not found", userEmail);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            var userDoc = userDocs.iterator().next();
-            String userId = userDoc.getId();
-            
-            // Check if user is faculty
-            if (!"FACULTY".equals(userDoc.getString("role"))) {
-                logger.error("User {} is not faculty and cannot approve appointments", userEmail);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            // Check if user is a participant
-            List<String> participants = (List<String>) appointmentDoc.get("participants");
-            if (participants == null || !participants.contains(userId)) {
-                logger.error("User {} is not a participant in appointment {}", userEmail, appointmentId);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-
-            Timestamp now = Timestamp.now();
-            
-            // Update faculty approval status
-            Map<String, Object> facultyApprovals = (Map<String, Object>) appointmentDoc.get("facultyApprovals");
-            if (facultyApprovals == null) {
-                facultyApprovals = new HashMap<>();
-            }
-            facultyApprovals.put(userId, isApproved);
-            
-            // Check if all faculty have approved
-            boolean allApproved = true;
-            for (String participantId : participants) {
-                var participantDoc = firestore.collection("users").document(participantId).get().get();
-                if (participantDoc.exists() && "FACULTY".equals(participantDoc.getString("role"))) {
-                    Boolean participantApproval = (Boolean) facultyApprovals.get(participantId);
-                    if (participantApproval == null || !participantApproval) {
-                        allApproved = false;
-                        break;
-                    }
-                }
-            }
-            
-            // Update appointment status
-            Map<String, Object> updates = new HashMap<>();
-            updates.put("facultyApprovals", facultyApprovals);
-            updates.put("updatedAt", now);
-            
-            String newStatus = allApproved ? "SCHEDULED" : "PENDING_APPROVAL";
-            updates.put("status", newStatus);
-            
-            // Update in Firestore
-            firestore.collection("appointments").document(appointmentId).update(updates).get();
-            
-            // Update user-appointment relationship
-            var userAppointments = firestore.collection("user_appointments")
-                    .whereEqualTo("userId", userId)
-                    .whereEqualTo("appointmentId", appointmentId)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (!userAppointments.isEmpty()) {
-                var userAppointment = userAppointments.iterator().next();
-                Map<String, Object> relationshipUpdates = new HashMap<>();
-                relationshipUpdates.put("status", isApproved ? "CONFIRMED" : "DENIED");
-                relationshipUpdates.put("hasApproved", isApproved);
-                relationshipUpdates.put("updatedAt", now);
-                userAppointment.getReference().update(relationshipUpdates).get();
-            }
-            
-            // After updating appointment status, send notification
-            String requesterId = appointmentDoc.getString("createdBy");
-            String title = appointmentDoc.getString("title");
-            String facultyName = userDoc.getString("firstName") + " " + userDoc.getString("lastName");
-            
-            // Send push notification to requester
-            notificationService.sendAppointmentUpdate(
-                requesterId,
-                appointmentId,
-                title,
-                isApproved ? "APPROVED" : "DENIED"
-            );
-            
-            // Create response
-            Appointment appointment = new Appointment();
-            appointment.setAppointmentId(appointmentId);
-            appointment.setTitle(appointmentDoc.getString("title"));
-            appointment.setDescription(appointmentDoc.getString("description"));
-            appointment.setStartTime(appointmentDoc.getTimestamp("startTime"));
-            appointment.setEndTime(appointmentDoc.getTimestamp("endTime"));
-            appointment.setCreatedBy(requesterId);
-            appointment.setParticipants(participants);
-            appointment.setStatus(newStatus);
-            appointment.setCreatedAt(appointmentDoc.getTimestamp("createdAt"));
-            appointment.setUpdatedAt(now);
-            appointment.setUserRole("PARTICIPANT");  // Faculty's role
-            appointment.setUserStatus(isApproved ? "CONFIRMED" : "DENIED");
-            appointment.setHasApproved(isApproved);
-            appointment.setFacultyName(facultyName);
-            
-            return ResponseEntity.ok(appointment);
+            logger.info("Faculty with email {} {} appointment: {}", currentUser.getEmail(), isApproved ? "approved" : "denied", appointmentId);
+            return ResponseEntity.ok(appointmentApprovals.approve(currentUser, appointmentId, isApproved));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         } catch (Exception e) {
             logger.error("Error processing appointment approval: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    // Endpoint for faculty to approve or deny many requests at once
+    @PostMapping("/approve-batch")
+    public ResponseEntity<?> approveAppointments(
+            @RequestBody BatchApprovalRequest request,
+            @AuthenticationPrincipal User currentUser) {
+        try {
+            logger.info("Faculty with email {} submitting {} approval decisions", currentUser.getEmail(),
+                    request.getDecisions() != null ? request.getDecisions().size() : 0);
+            List<Map<String, Object>> results = appointmentApprovals.approveBatch(currentUser, request.getDecisions());
+            return ResponseEntity.ok(Map.of("results", results));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error processing batch approval: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @PutMapping("/{appointmentId}")
     public ResponseEntity<Appointment> updateAppointment(
             @PathVariable String appointmentId,
             @RequestBody AppointmentRequest request,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userEmail = authentication.getName();
+            String userEmail = currentUser.getEmail();
             logger.info("Updating appointment: {} by user: {}", appointmentId, userEmail);
 
-            // Get user document by email
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (userDocs.isEmpty()) {
-                logger.error("User with email {} not found", userEmail);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            var userDoc = userDocs.iterator().next();
-            String userId = userDoc.getId();
+            String userId = currentUser.getUserId();
 
             // Check if appointment exists and user has permission
             var appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
@@ -385,7 +406,12 @@ public class AppointmentController {
             updates.put("updatedAt", Timestamp.now());
 
             // Update in Firestore
-            firestore.collection("appointments").document(appointmentId).update(updates).get();
+            updateAppointment(appointmentDoc, updates);
+            recordParticipantChange(appointmentDoc, request.getParticipants());
+            // Users dropped from the participants lose the interval as well
+            conflictIndex.record(appointmentId, request.getTitle(),
+                    (Timestamp) updates.get("startTime"), (Timestamp) updates.get("endTime"),
+                    appointmentDoc.getString("status"), null, linkedUserIds(userId, request.getParticipants()));
 
             // Create response
             Appointment appointment = new Appointment();
@@ -400,6 +426,7 @@ public class AppointmentController {
             appointment.setParticipants(request.getParticipants());
             appointment.setStatus(appointmentDoc.getString("status"));
 
+            searchIndex.reindex(appointmentId);
             logger.info("Successfully updated appointment: {}", appointmentId);
             return ResponseEntity.ok(appointment);
         } catch (DateTimeParseException e) {
@@ -411,10 +438,24 @@ public class AppointmentController {
         }
     }
 
+    // Keeps the faculty leaderboard in step with participant changes on scheduled appointments
+    private void recordParticipantChange(DocumentSnapshot appointmentDoc, List<String> newParticipants) {
+        String status = appointmentDoc.getString("status");
+        facultyLeaderboard.onAppointmentChanged(status, (List<String>) appointmentDoc.get("participants"), status, newParticipants);
+    }
+
+    // Re-indexes the appointment's interval for its creator and new participants; removed users lose it
+    private void recordConflictParticipants(DocumentSnapshot appointmentDoc, List<String> newParticipants) {
+        conflictIndex.record(appointmentDoc.getId(), appointmentDoc.getString("title"),
+                appointmentDoc.getTimestamp("startTime"), appointmentDoc.getTimestamp("endTime"),
+                appointmentDoc.getString("status"), null,
+                linkedUserIds(appointmentDoc.getString("createdBy"), newParticipants));
+    }
+
     // Helper method to check if user has permission to modify participants
-    private boolean hasPermissionToModifyParticipants(DocumentSnapshot userDoc, DocumentSnapshot appointmentDoc) {
-        String userId = userDoc.getId();
-        String userRole = userDoc.getString("role");
+    private boolean hasPermissionToModifyParticipants(User currentUser, DocumentSnapshot appointmentDoc) {
+        String userId = currentUser.getUserId();
+        String userRole = currentUser.getRole();
         String creatorId = appointmentDoc.getString("createdBy");
         
         // Allow if user is the creator or is a faculty member
@@ -425,25 +466,11 @@ public class AppointmentController {
     public ResponseEntity<Appointment> addParticipants(
             @PathVariable String appointmentId,
             @RequestBody ParticipantRequest request,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userEmail = authentication.getName();
+            String userEmail = currentUser.getEmail();
             logger.info("Adding participants to appointment: {}", appointmentId);
 
-            // Get user document by email
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (userDocs.isEmpty()) {
-                logger.error("User with email {} not found", userEmail);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            var userDoc = userDocs.iterator().next();
-
             // Check if appointment exists
             var appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
             if (!appointmentDoc.exists()) {
@@ -452,13 +479,11 @@ public class AppointmentController {
             }
             
             // Check if user has permission
-            if (!hasPermissionToModifyParticipants(userDoc, appointmentDoc)) {
+            if (!hasPermissionToModifyParticipants(currentUser, appointmentDoc)) {
                 logger.error("User {} does not have permission to modify appointment {}", userEmail, appointmentId);
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            String userId = userDoc.getId();
-            
             // Get current participants
             List<String> currentParticipants = (List<String>) appointmentDoc.get("participants");
             if (currentParticipants == null) {
@@ -478,7 +503,10 @@ public class AppointmentController {
             updates.put("updatedAt", Timestamp.now());
 
             // Update in Firestore
-            firestore.collection("appointments").document(appointmentId).update(updates).get();
+            updateAppointment(appointmentDoc, updates);
+            recordParticipantChange(appointmentDoc, currentParticipants);
+            recordConflictParticipants(appointmentDoc, currentParticipants);
+            searchIndex.reindex(appointmentId);
             logger.info("Successfully added {} participants to appointment {}", 
                     request.getParticipantIds().size(), appointmentId);
 
@@ -504,25 +532,11 @@ public class AppointmentController {
     public ResponseEntity<Appointment> removeParticipant(
             @PathVariable String appointmentId,
             @PathVariable String participantId,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userEmail = authentication.getName();
+            String userEmail = currentUser.getEmail();
             logger.info("Removing participant {} from appointment: {}", participantId, appointmentId);
 
-            // Get user document by email
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (userDocs.isEmpty()) {
-                logger.error("User with email {} not found", userEmail);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            var userDoc = userDocs.iterator().next();
-
             // Check if appointment exists
             var appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
             if (!appointmentDoc.exists()) {
@@ -531,13 +545,11 @@ public class AppointmentController {
             }
             
             // Check if user has permission
-            if (!hasPermissionToModifyParticipants(userDoc, appointmentDoc)) {
+            if (!hasPermissionToModifyParticipants(currentUser, appointmentDoc)) {
                 logger.error("User {} does not have permission to modify appointment {}", userEmail, appointmentId);
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            String userId = userDoc.getId();
-
             // Get current participants
             List<String> currentParticipants = (List<String>) appointmentDoc.get("participants");
             if (currentParticipants == null) {
@@ -553,7 +565,10 @@ public class AppointmentController {
             updates.put("updatedAt", Timestamp.now());
 
             // Update in Firestore
-            firestore.collection("appointments").document(appointmentId).update(updates).get();
+            updateAppointment(appointmentDoc, updates);
+            recordParticipantChange(appointmentDoc, currentParticipants);
+            recordConflictParticipants(appointmentDoc, currentParticipants);
+            searchIndex.reindex(appointmentId);
             logger.info("Successfully removed participant {} from appointment {}", participantId, appointmentId);
 
             // Create response
@@ -578,25 +593,11 @@ public class AppointmentController {
     public ResponseEntity<Appointment> updateParticipants(
             @PathVariable String appointmentId,
             @RequestBody ParticipantRequest request,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userEmail = authentication.getName();
+            String userEmail = currentUser.getEmail();
             logger.info("Updating participants for appointment: {}", appointmentId);
 
-            // Get user document by email
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (userDocs.isEmpty()) {
-                logger.error("User with email {} not found", userEmail);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            var userDoc = userDocs.iterator().next();
-
             // Check if appointment exists
             var appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
             if (!appointmentDoc.exists()) {
@@ -605,20 +606,21 @@ public class AppointmentController {
             }
             
             // Check if user has permission
-            if (!hasPermissionToModifyParticipants(userDoc, appointmentDoc)) {
+            if (!hasPermissionToModifyParticipants(currentUser, appointmentDoc)) {
                 logger.error("User {} does not have permission to modify appointment {}", userEmail, appointmentId);
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            String userId = userDoc.getId();
-
             // Update participants
             Map<String, Object> updates = new HashMap<>();
             updates.put("participants", request.getParticipantIds());
             updates.put("updatedAt", Timestamp.now());
 
             // Update in Firestore
-            firestore.collection("appointments").document(appointmentId).update(updates).get();
+            updateAppointment(appointmentDoc, updates);
+            recordParticipantChange(appointmentDoc, request.getParticipantIds());
+            recordConflictParticipants(appointmentDoc, request.getParticipantIds());
+            searchIndex.reindex(appointmentId);
             logger.info("Successfully updated participants for appointment {}", appointmentId);
 
             // Create response
@@ -659,99 +661,61 @@ public class AppointmentController {
 
     // 6. View Appointments
     @GetMapping
-    public ResponseEntity<List<Appointment>> getAppointments(Authentication authentication) {
+    public ResponseEntity<List<Appointment>> getAppointments(
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String pageToken,
+            @AuthenticationPrincipal User currentUser,
+            WebRequest webRequest) {
         try {
-            String userEmail = authentication.getName();
+            String userEmail = currentUser.getEmail();
             logger.info("Getting appointments for user with email: {}", userEmail);
 
-            // Get user document by email
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (userDocs.isEmpty()) {
-                logger.error("User with email {} not found", userEmail);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            var userDoc = userDocs.iterator().next();
-            String userId = userDoc.getId();
-            String userRole = userDoc.getString("role");
-
-            // Get user's appointment relationships
-            var userAppointments = firestore.collection("user_appointments")
-                    .whereEqualTo("userId", userId)
-                    .get()
-                    .get()
-                    .getDocuments();
-
-            List<Appointment> appointments = new ArrayList<>();
-            for (var userAppointment : userAppointments) {
-                String appointmentId = userAppointment.getString("appointmentId");
-                var appointmentDoc = firestore.collection("appointments")
-                        .document(appointmentId)
-                        .get()
-                        .get();
-
-                if (appointmentDoc.exists()) {
-                    String creatorId = appointmentDoc.getString("createdBy");
-                    
-                    // Get creator's details
-                    var creatorDoc = firestore.collection("users")
-                            .document(creatorId)
-                            .get()
-                            .get();
-                    
-                    String creatorName = "Unknown User";
-                    if (creatorDoc.exists()) {
-                        String firstName = creatorDoc.getString("firstName");
-                        String lastName = creatorDoc.getString("lastName");
-                        if (firstName != null && lastName != null) {
-                            creatorName = firstName + " " + lastName;
-                        }
-                    }
-                    logger.info("Setting creator name for appointment {}: {}", appointmentId, creatorName);
-
-                    Appointment appointment = new Appointment();
-                    appointment.setAppointmentId(appointmentId);
-                    appointment.setTitle(appointmentDoc.getString("title"));
-                    appointment.setDescription(appointmentDoc.getString("description"));
-                    appointment.setStartTime(appointmentDoc.getTimestamp("startTime"));
-                    appointment.setEndTime(appointmentDoc.getTimestamp("endTime"));
-                    appointment.setCreatedBy(creatorId);
-                    appointment.setCreatorName(creatorName);
-                    appointment.setParticipants((List<String>) appointmentDoc.get("participants"));
-                    appointment.setStatus(appointmentDoc.getString("status"));
-                    appointment.setCreatedAt(appointmentDoc.getTimestamp("createdAt"));
-                    appointment.setUpdatedAt(appointmentDoc.getTimestamp("updatedAt"));
-                    
-                    // Add user-specific appointment data
-                    appointment.setUserRole(userAppointment.getString("role"));
-                    appointment.setUserStatus(userAppointment.getString("status"));
-
-                    // For faculty, add approval status if applicable
-                    if ("FACULTY".equals(userRole)) {
-                        Map<String, Object> facultyApprovals = (Map<String, Object>) appointmentDoc.get("facultyApprovals");
-                        if (facultyApprovals != null) {
-                            Boolean hasApproved = (Boolean) facultyApprovals.get(userId);
-                            appointment.setHasApproved(hasApproved != null ? hasApproved : false);
-                        }
-                    }
-                    
-                    appointments.add(appointment);
-                }
+            String userId = currentUser.getUserId();
+            String userRole = currentUser.getRole();
+
+            // 304 from one small timeline read, before any hydration. The read model lags the
+            // timeline, so lists it serves carry no validator that could pin a stale body
+            boolean fromReadModel = readModel.isReady();
+            String etag = fromReadModel ? null
+                    : ListVersions.etag(userTimelines.version(userId), userId, userRole, pageSize, pageToken);
+            if (etag != null && webRequest.checkNotModified(etag)) {
+                return null;
             }
 
-            logger.info("Successfully retrieved {} appointments for user {}", appointments.size(), userEmail);
-            return ResponseEntity.ok(appointments);
+            var appointments = userAppointmentsPage(userId, userRole, PageCursor.orAll(pageSize, pageToken),
+                    fromReadModel);
+
+            logger.info("Successfully retrieved {} appointments for user {}", appointments.getItems().size(), userEmail);
+            return page(appointments.getItems(), appointments.getNextPageToken(), etag);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid appointments page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.error("Error fetching appointments: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    // Delta sync: appointments changed or deleted since the cursor from the previous call.
+    // fullResync without a cursor means the client must reload through GET /api/appointments.
+    @GetMapping("/changes")
+    public ResponseEntity<UserTimelines.Changes> getAppointmentChanges(
+            @RequestParam(required = false) String since,
+            @AuthenticationPrincipal User currentUser) {
+        try {
+            var changes = userTimelines.changes(currentUser.getUserId(), currentUser.getRole(), since);
+            logger.info("Appointment changes for user {}: {} changed, {} deleted, fullResync={}",
+                    currentUser.getEmail(), changes.getChanges().size(), changes.getDeleted().size(), changes.isFullResync());
+            return ResponseEntity.ok(changes);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid appointment changes request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error fetching appointment changes: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/{appointmentId}")
     public ResponseEntity<?> getAppointmentDetails(@PathVariable String appointmentId) {
         return ResponseEntity.ok().build();
@@ -760,41 +724,41 @@ public class AppointmentController {
     // 7. Appointment Conflict Detection
     @PostMapping("/check-conflicts")
     public ResponseEntity<?> checkConflicts(@RequestBody ConflictCheckRequest request) {
-        return ResponseEntity.ok().build();
+        try {
+            if (request.getStartTime() == null || request.getEndTime() == null) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            List<Map<String, Object>> conflicts = appointmentService.checkAppointmentConflicts(
+                request.getStartTime(),
+                request.getEndTime(),
+                request.getParticipantIds()
+            );
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("hasConflicts", !conflicts.isEmpty());
+            response.put("conflicts", conflicts);
+            return ResponseEntity.ok(response);
+        } catch (DateTimeParseException e) {
+            logger.error("Invalid date format in conflict check request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error checking appointment conflicts: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
     }
 
     // 8. Export Appointment Summary
     @GetMapping(value = "/export", produces = "text/csv")
-    public ResponseEntity<byte[]> exportAppointments(
+    public ResponseEntity<StreamingResponseBody> exportAppointments(
                                               @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userEmail = authentication.getName();
+            String userEmail = currentUser.getEmail();
             logger.info("Exporting appointments for user: {} between {} and {}", userEmail, startDate, endDate);
 
-            // Get user document
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (userDocs.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            var userDoc = userDocs.iterator().next();
-            String userId = userDoc.getId();
-            logger.info("Found user ID: {}", userId);
-
-            // Get user's appointments
-            var userAppointments = firestore.collection("user_appointments")
-                    .whereEqualTo("userId", userId)
-                    .get()
-                    .get();
-
-            logger.info("Found {} user appointments", userAppointments.size());
+            String userId = currentUser.getUserId();
 
             // Convert dates if provided
             Timestamp startTimestamp = null;
@@ -806,7 +770,6 @@ public class AppointmentController {
                         start.getEpochSecond(),
                         start.getNano()
                     );
-                    logger.info("Parsed start date: {} ({})", startTimestamp.toDate(), startTimestamp);
                 } catch (Exception e) {
                     logger.error("Error parsing start date: {}", e.getMessage());
                 }
@@ -818,144 +781,18 @@ public class AppointmentController {
                         end.getEpochSecond(),
                         end.getNano()
                     );
-                    logger.info("Parsed end date: {} ({})", endTimestamp.toDate(), endTimestamp);
                 } catch (Exception e) {
                     logger.error("Error parsing end date: {}", e.getMessage());
                 }
             }
 
-            // Prepare CSV content
-            StringBuilder csv = new StringBuilder();
-            csv.append("Title,Description,Start Time,End Time,Status,Participants,Tags\n");
-
-            // Get appointment details and build CSV
-            ZoneId philippineZone = ZoneId.of("Asia/Manila");
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
-                    .withZone(philippineZone);
-
-            int processedAppointments = 0;
-            int skippedAppointments = 0;
-            for (var userAppointment : userAppointments) {
-                try {
-                    String appointmentId = userAppointment.getString("appointmentId");
-                    logger.info("Processing appointment: {}", appointmentId);
-
-                    var appointmentDoc = firestore.collection("appointments")
-                            .document(appointmentId)
-                            .get()
-                            .get();
-
-                    if (appointmentDoc.exists()) {
-                        Timestamp appointmentStart = appointmentDoc.getTimestamp("startTime");
-                        Timestamp appointmentEnd = appointmentDoc.getTimestamp("endTime");
-
-                        logger.info("Appointment {} time range: {} ({}) to {} ({})", 
-                            appointmentId, 
-                            appointmentStart.toDate(), appointmentStart,
-                            appointmentEnd.toDate(), appointmentEnd);
-
-                        // Apply date filter if dates are provided
-                        // Check if appointment falls within the date range
-                        if (startTimestamp != null && endTimestamp != null) {
-                            // Log comparison results
-                            boolean isAfterEndDate = appointmentStart.compareTo(endTimestamp) > 0;
-                            boolean isBeforeStartDate = appointmentEnd.compareTo(startTimestamp) < 0;
-                            
-                            logger.info("Date range check for appointment {}: isAfterEndDate={}, isBeforeStartDate={}", 
-                                appointmentId, isAfterEndDate, isBeforeStartDate);
-                            
-                            // Skip if appointment starts after end date or ends before start date
-                            if (isAfterEndDate || isBeforeStartDate) {
-                                logger.info("Appointment {} outside date range - Skipping", appointmentId);
-                                skippedAppointments++;
-                                continue;
-                            }
-                        } else if (startTimestamp != null) {
-                            // Skip if appointment ends before start date
-                            boolean isBeforeStartDate = appointmentEnd.compareTo(startTimestamp) < 0;
-                            logger.info("Start date check for appointment {}: isBeforeStartDate={}", 
-                                appointmentId, isBeforeStartDate);
-                            
-                            if (isBeforeStartDate) {
-                                logger.info("Appointment {} before start date - Skipping", appointmentId);
-                                skippedAppointments++;
-                                continue;
-                            }
-                        } else if (endTimestamp != null) {
-                            // Skip if appointment starts after end date
-                            boolean isAfterEndDate = appointmentStart.compareTo(endTimestamp) > 0;
-                            logger.info("End date check for appointment {}: isAfterEndDate={}", 
-                                appointmentId, isAfterEndDate);
-                            
-                            if (isAfterEndDate) {
-                                logger.info("Appointment {} after end date - Skipping", appointmentId);
-                                skippedAppointments++;
-                                continue;
-                            }
-                        }
-
-                        // Get participant names
-                        List<String> participantIds = (List<String>) appointmentDoc.get("participants");
-                        List<String> participantNames = new ArrayList<>();
-                        if (participantIds != null) {
-                            for (String participantId : participantIds) {
-                                var participantDoc = firestore.collection("users")
-                                        .document(participantId)
-                                        .get()
-                                        .get();
-                                if (participantDoc.exists()) {
-                                    String name = participantDoc.getString("firstName") + " " + 
-                                                participantDoc.getString("lastName");
-                                    participantNames.add(name);
-                                }
-                            }
-                        }
-
-                        // Get tags
-                        List<Object> tags = (List<Object>) appointmentDoc.get("tags");
-                        List<String> tagNames = new ArrayList<>();
-                        if (tags != null) {
-                            for (Object tagObj : tags) {
-                                if (tagObj instanceof Map) {
-                                    @SuppressWarnings("unchecked")
-                                    Map<String, Object> tag = (Map<String, Object>) tagObj;
-                                    String tagName = (String) tag.get("name");
-                                    if (tagName != null) {
-                                        tagNames.add(tagName);
-                                    }
-                                }
-                            }
-                        }
-
-                        // Format CSV line
-                        csv.append(String.format("\"%s\",", escapeCsvField(appointmentDoc.getString("title"))))
-                           .append(String.format("\"%s\",", escapeCsvField(appointmentDoc.getString("description"))))
-                           .append(String.format("\"%s\",", formatter.format(appointmentStart.toDate().toInstant())))
-                           .append(String.format("\"%s\",", formatter.format(appointmentEnd.toDate().toInstant())))
-                           .append(String.format("\"%s\",", appointmentDoc.getString("status")))
-                           .append(String.format("\"%s\",", escapeCsvField(String.join(", ", participantNames))))
-                           .append(String.format("\"%s\"\n", escapeCsvField(String.join(", ", tagNames))));
-
-                        processedAppointments++;
-                    } else {
-                        logger.warn("Appointment {} not found", appointmentId);
-                    }
-                } catch (Exception e) {
-                    logger.error("Error processing appointment: {}", e.getMessage());
-                    // Continue processing other appointments
-                    continue;
-                }
-            }
-
-            logger.info("Processed {} appointments, skipped {} appointments", processedAppointments, skippedAppointments);
-
             // Generate file name with timestamp
             String timestamp = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")
-                    .withZone(philippineZone)
+                    .withZone(ZoneId.of("Asia/Manila"))
                     .format(Instant.now());
             String filename = "appointments_" + timestamp + ".csv";
 
-            // Set response headers for file download
+            // Set response headers for file download; the body is sent chunked, so no Content-Length
             HttpHeaders headers = new HttpHeaders();
             headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
             headers.add(HttpHeaders.CONTENT_TYPE, "text/csv; charset=UTF-8");
@@ -963,14 +800,15 @@ public class AppointmentController {
             headers.add(HttpHeaders.PRAGMA, "no-cache");
             headers.add(HttpHeaders.EXPIRES, "0");
 
-            byte[] csvBytes = csv.toString().getBytes(StandardCharsets.UTF_8);
-            headers.add(HttpHeaders.CONTENT_LENGTH, String.valueOf(csvBytes.length));
-
-            logger.info("Generated CSV with {} bytes", csvBytes.length);
+            // Rows are written page by page from an async thread, not buffered on the heap
+            Timestamp rangeStart = startTimestamp;
+            Timestamp rangeEnd = endTimestamp;
+            StreamingResponseBody body = outputStream ->
+                    appointmentCsvExporter.write(userId, rangeStart, rangeEnd, outputStream);
 
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(csvBytes);
+                    .body(body);
 
         } catch (Exception e) {
             logger.error("Error exporting appointments: {}", e.getMessage(), e);
@@ -978,14 +816,6 @@ public class AppointmentController {
         }
     }
 
-    // Helper method to escape CSV fields
-    private String escapeCsvField(String field) {
-        if (field == null) {
-            return "";
-        }
-        return field.replace("\"", "\"\"");
-    }
-
     // 9. Appointment Status Tracking
     @PutMapping("/{appointmentId}/status")
     public ResponseEntity<?> updateAppointmentStatus(@PathVariable String appointmentId, 
@@ -998,63 +828,21 @@ public class AppointmentController {
     public ResponseEntity<Map<String, Object>> addTag(
             @PathVariable String appointmentId,
             @RequestBody TagRequest request,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userEmail = authentication.getName();
+            String userEmail = currentUser.getEmail();
             logger.info("Adding tag to appointment: {} by user: {}", appointmentId, userEmail);
 
-            // Get user document
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (userDocs.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            var userDoc = userDocs.iterator().next();
-            String userId = userDoc.getId();
-
-            // Check if appointment exists and user has access
-            var appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
-            if (!appointmentDoc.exists()) {
-                return ResponseEntity.notFound().build();
-            }
-
-            List<String> participants = (List<String>) appointmentDoc.get("participants");
-            if (!participants.contains(userId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-
-            // Create new tag
-            Map<String, Object> newTag = new HashMap<>();
-            newTag.put("name", request.getName());
-            newTag.put("color", request.getColor());
-
-            // Get current tags or initialize new list
-            List<Map<String, Object>> currentTags = (List<Map<String, Object>>) appointmentDoc.get("tags");
-            if (currentTags == null) {
-                currentTags = new ArrayList<>();
-            }
-
-            // Check if tag with same name already exists
-            boolean tagExists = currentTags.stream()
-                    .anyMatch(tag -> request.getName().equals(tag.get("name")));
-
-            if (tagExists) {
-                return ResponseEntity.badRequest()
-                        .body(Map.of("message", "Tag with this name already exists"));
-            }
-
-            // Add new tag
-            currentTags.add(newTag);
-
-            // Update appointment
-            appointmentDoc.getReference().update("tags", currentTags).get();
-
+            Map<String, Object> newTag = appointmentTags.add(appointmentId, currentUser.getUserId(),
+                    request.getName(), request.getColor());
+            searchIndex.reindex(appointmentId);
             return ResponseEntity.ok(newTag);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error adding tag to appointment: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -1065,79 +853,125 @@ public class AppointmentController {
     public ResponseEntity<Void> removeTag(
             @PathVariable String appointmentId,
             @PathVariable String tagName,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userEmail = authentication.getName();
+            String userEmail = currentUser.getEmail();
             logger.info("Removing tag {} from appointment: {} by user: {}", tagName, appointmentId, userEmail);
 
-            // Get user document
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (userDocs.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            appointmentTags.remove(appointmentId, currentUser.getUserId(), tagName);
+            searchIndex.reindex(appointmentId);
+            return ResponseEntity.ok().build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (Exception e) {
+            logger.error("Error removing tag from appointment: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
     }
 
-            var userDoc = userDocs.iterator().next();
-            String userId = userDoc.getId();
-
-            // Check if appointment exists and user has access
-            var appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
-            if (!appointmentDoc.exists()) {
-                return ResponseEntity.notFound().build();
-            }
+    // Applies the same tag operations to many appointments in one commit
+    @PostMapping("/tags/bulk")
+    public ResponseEntity<Map<String, Object>> bulkUpdateTags(
+            @RequestBody BulkTagRequest request,
+            @AuthenticationPrincipal User currentUser) {
+        try {
+            logger.info("Bulk tag update on {} appointments by user: {}",
+                    request.getAppointmentIds() != null ? request.getAppointmentIds().size() : 0, currentUser.getEmail());
+
+            Map<String, Object> result = appointmentTags.applyBulk(currentUser.getUserId(),
+                    request.getAppointmentIds(), request.getOperations());
+            ((List<String>) result.get("updated")).forEach(searchIndex::reindex);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error applying bulk tag update: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
 
-            List<String> participants = (List<String>) appointmentDoc.get("participants");
-            if (!participants.contains(userId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
+    // Appointments carrying every given tag and starting in [from, to), answered from the tag index
+    @GetMapping("/search")
+    public ResponseEntity<List<Appointment>> searchByTag(
+            @RequestParam List<String> tag,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String pageToken,
+            @AuthenticationPrincipal User currentUser) {
+        try {
+            logger.info("Searching appointments tagged {} from {} to {} for user: {}", tag, from, to, currentUser.getEmail());
+
+            Timestamp fromTime = from != null ? toTimestamp(Instant.parse(from)) : null;
+            Timestamp toTime = to != null ? toTimestamp(Instant.parse(to)) : null;
+            var results = tagIndex.search(tag, fromTime, toTime, currentUser.getUserId(),
+                    "ADMIN".equals(currentUser.getRole()), PageCursor.of(pageSize, pageToken));
+            return page(results.getItems(), results.getNextPageToken());
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            logger.error("Invalid tag search request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error searching appointments by tag: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
 
-            // Get current tags
-            List<Map<String, Object>> currentTags = (List<Map<String, Object>>) appointmentDoc.get("tags");
-            if (currentTags == null || currentTags.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
+    // Ranked full-text search over title, description, creator name and tags
+    @GetMapping("/search/text")
+    public ResponseEntity<List<Appointment>> searchAppointments(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String pageToken,
+            @AuthenticationPrincipal User currentUser) {
+        try {
+            logger.info("Full-text appointment search by user: {}", currentUser.getEmail());
 
-            // Remove tag with matching name
-            boolean removed = currentTags.removeIf(tag -> tagName.equals(tag.get("name")));
-            if (!removed) {
-                return ResponseEntity.notFound().build();
+            // The index is rebuilt from Firestore at startup and cannot answer until that finishes
+            if (!searchIndex.isReady()) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
             }
+            var results = searchIndex.search(q, currentUser.getUserId(), "ADMIN".equals(currentUser.getRole()),
+                    PageCursor.of(pageSize, pageToken));
+            return page(results.getItems(), results.getNextPageToken());
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid appointment search request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error searching appointments: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
 
-            // Update appointment
-            appointmentDoc.getReference().update("tags", currentTags).get();
-
-        return ResponseEntity.ok().build();
+    // Backfill: regenerates the tag index from the appointments (also runs weekly)
+    @PostMapping("/tags/index/rebuild")
+    public ResponseEntity<Void> rebuildTagIndex(@AuthenticationPrincipal User currentUser) {
+        if (!"ADMIN".equals(currentUser.getRole())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            tagIndex.rebuild();
+            return ResponseEntity.ok().build();
         } catch (Exception e) {
-            logger.error("Error removing tag from appointment: {}", e.getMessage());
+            logger.error("Error rebuilding tag index: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    private static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+    }
+
     @GetMapping("/{appointmentId}/tags")
     public ResponseEntity<List<Map<String, Object>>> getAppointmentTags(
             @PathVariable String appointmentId,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userEmail = authentication.getName();
+            String userEmail = currentUser.getEmail();
             logger.info("Fetching tags for appointment: {} by user: {}", appointmentId, userEmail);
 
-            // Get user document
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (userDocs.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            var userDoc = userDocs.iterator().next();
-            String userId = userDoc.getId();
+            String userId = currentUser.getUserId();
 
             // Check if appointment exists and user has access
             var appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
@@ -1162,25 +996,12 @@ public class AppointmentController {
     @DeleteMapping("/{appointmentId}")
     public ResponseEntity<Void> deleteAppointment(
             @PathVariable String appointmentId,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userEmail = authentication.getName();
+            String userEmail = currentUser.getEmail();
             logger.info("Attempting to delete appointment: {} by user: {}", appointmentId, userEmail);
 
-            // Get user document by email
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (userDocs.isEmpty()) {
-                logger.error("User with email {} not found", userEmail);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            var userDoc = userDocs.iterator().next();
-            String userId = userDoc.getId();
+            String userId = currentUser.getUserId();
 
             // Check if appointment exists
             var appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
@@ -1195,30 +1016,29 @@ public class AppointmentController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            // Delete appointment
-            firestore.collection("appointments").document(appointmentId).delete().get();
-            
-            // Delete all user-appointment relationships for this appointment
-            var userAppointments = firestore.collection("user_appointments")
-                    .whereEqualTo("appointmentId", appointmentId)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            for (var userAppointment : userAppointments) {
-                userAppointment.getReference().delete().get();
+            // In tombstone mode the cleanup is recorded first so it survives a crash after the delete
+            if (appointmentCascadeDeleter.isTombstoneMode()) {
+                appointmentCascadeDeleter.markDeleted(appointmentId, userId);
             }
 
-            // Delete any notifications related to this appointment
-            var notifications = firestore.collection("notifications")
-                    .whereEqualTo("appointmentId", appointmentId)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            for (var notification : notifications) {
-                notification.getReference().delete().get();
+            // Delete appointment, dropping it from every linked user's timeline in the same commit
+            Set<String> linkedUsers = userTimelines.linkedUserIds(appointmentId);
+            appointmentCounters.delete(firestore.collection("appointments").document(appointmentId), writes -> {
+                userTimelines.remove(writes, linkedUsers, appointmentId);
+                tagIndex.removeAll(writes, TagIndex.tagNames(appointmentDoc), appointmentId);
+            });
+            conflictIndex.remove(appointmentId);
+            searchIndex.remove(appointmentId);
+            facultyLeaderboard.onAppointmentChanged(appointmentDoc.getString("status"),
+                    (List<String>) appointmentDoc.get("participants"), null, null);
+
+            // Delete user-appointment relationships and notifications for this appointment
+            if (appointmentCascadeDeleter.isTombstoneMode()) {
+                appointmentCascadeDeleter.sweepLater(appointmentId);
+                logger.info("Deleted appointment: {}, related data queued for removal", appointmentId);
+                return ResponseEntity.accepted().build();
             }
+            appointmentCascadeDeleter.deleteRelated(appointmentId);
 
             logger.info("Successfully deleted appointment: {} and all related data", appointmentId);
             return ResponseEntity.ok().build();
@@ -1232,24 +1052,14 @@ public class AppointmentController {
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<Appointment>> getUserAppointments(
             @PathVariable String userId,
-            Authentication authentication) {
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String pageToken,
+            @AuthenticationPrincipal User currentUser,
+            WebRequest webRequest) {
         try {
-            String requestingUserEmail = authentication.getName();
+            String requestingUserEmail = currentUser.getEmail();
             
-            // Get the requesting user's document by email
-            var requestingUserDocs = firestore.collection("users")
-                    .whereEqualTo("email", requestingUserEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-
-            if (requestingUserDocs.isEmpty()) {
-                logger.error("Requesting user with email {} not found", requestingUserEmail);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-
-            var requestingUserDoc = requestingUserDocs.iterator().next();
-            String requestingUserId = requestingUserDoc.getId();
+            String requestingUserId = currentUser.getUserId();
 
             // Check if the requesting user has permission to view these appointments
             if (!requestingUserId.equals(userId)) {
@@ -1257,63 +1067,21 @@ public class AppointmentController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            // Get user's appointment relationships
-            var userAppointments = firestore.collection("user_appointments")
-                    .whereEqualTo("userId", userId)
-                    .get()
-                    .get()
-                    .getDocuments();
-
-            List<Appointment> appointments = new ArrayList<>();
-            for (var userAppointment : userAppointments) {
-                String appointmentId = userAppointment.getString("appointmentId");
-                var appointmentDoc = firestore.collection("appointments")
-                        .document(appointmentId)
-                        .get()
-                        .get();
-
-                if (appointmentDoc.exists()) {
-                    String creatorId = appointmentDoc.getString("createdBy");
-                    
-                    // Get creator's details
-                    var creatorDoc = firestore.collection("users")
-                            .document(creatorId)
-                            .get()
-                            .get();
-                    
-                    String creatorName = "Unknown User";
-                    if (creatorDoc.exists()) {
-                        String firstName = creatorDoc.getString("firstName");
-                        String lastName = creatorDoc.getString("lastName");
-                        if (firstName != null && lastName != null) {
-                            creatorName = firstName + " " + lastName;
-                        }
-                    }
-                    logger.info("Setting creator name for appointment {}: {}", appointmentId, creatorName);
-
-                    Appointment appointment = new Appointment();
-                    appointment.setAppointmentId(appointmentId);
-                    appointment.setTitle(appointmentDoc.getString("title"));
-                    appointment.setDescription(appointmentDoc.getString("description"));
-                    appointment.setStartTime(appointmentDoc.getTimestamp("startTime"));
-                    appointment.setEndTime(appointmentDoc.getTimestamp("endTime"));
-                    appointment.setCreatedBy(creatorId);
-                    appointment.setCreatorName(creatorName);
-                    appointment.setParticipants((List<String>) appointmentDoc.get("participants"));
-                    appointment.setStatus(appointmentDoc.getString("status"));
-                    appointment.setCreatedAt(appointmentDoc.getTimestamp("createdAt"));
-                    appointment.setUpdatedAt(appointmentDoc.getTimestamp("updatedAt"));
-                    
-                    // Add user-specific appointment data
-                    appointment.setUserRole(userAppointment.getString("role"));
-                    appointment.setUserStatus(userAppointment.getString("status"));
-                    
-                    appointments.add(appointment);
-                }
+            boolean fromReadModel = readModel.isReady();
+            String etag = fromReadModel ? null
+                    : ListVersions.etag(userTimelines.version(userId), userId, pageSize, pageToken);
+            if (etag != null && webRequest.checkNotModified(etag)) {
+                return null;
             }
 
-            logger.info("Successfully retrieved {} appointments for user {}", appointments.size(), userId);
-            return ResponseEntity.ok(appointments);
+            var appointments = userAppointmentsPage(userId, null, PageCursor.orAll(pageSize, pageToken),
+                    fromReadModel);
+
+            logger.info("Successfully retrieved {} appointments for user {}", appointments.getItems().size(), userId);
+            return page(appointments.getItems(), appointments.getNextPageToken(), etag);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid user appointments page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.error("Error fetching user appointments: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -1324,34 +1092,21 @@ public class AppointmentController {
     @PostMapping("/request-faculty")
     public ResponseEntity<?> requestFacultyAppointment(
             @RequestBody FacultyAppointmentRequest request,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String studentEmail = authentication.getName();
+            String studentEmail = currentUser.getEmail();
             logger.info("Student {} requesting appointment with faculty: {}", studentEmail, request.getUserId());
 
-            // Verify the student's role using email
-            var studentDocs = firestore.collection("users")
-                    .whereEqualTo("email", studentEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
+            String studentId = currentUser.getUserId();
 
-            if (studentDocs.isEmpty()) {
-                logger.error("User with email {} not found", studentEmail);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-
-            var studentDoc = studentDocs.iterator().next();
-            String studentId = studentDoc.getId();
-
-            if (!"STUDENT".equals(studentDoc.getString("role"))) {
+            if (!"STUDENT".equals(currentUser.getRole())) {
                 logger.error("User {} is not a student and cannot request faculty appointments", studentEmail);
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
             // Verify the faculty exists
-            DocumentSnapshot facultyDoc = firestore.collection("users").document(request.getUserId()).get().get();
-            if (!facultyDoc.exists() || !"FACULTY".equals(facultyDoc.getString("role"))) {
+            UserDirectory.UserSummary faculty = userDirectory.get(request.getUserId());
+            if (faculty == null || !faculty.isFaculty()) {
                 logger.error("Faculty {} does not exist or is not a faculty member", request.getUserId());
                 return ResponseEntity.badRequest().build();
             }
@@ -1406,9 +1161,10 @@ public class AppointmentController {
             appointmentData.put("requiresApproval", true);
             appointmentData.put("appointmentType", "FACULTY_REQUEST");
 
-            // Save to Firestore
+            // Appointment, both relationships and the faculty notification commit in one batch
             var docRef = firestore.collection("appointments").document();
-            docRef.set(appointmentData).get();
+            WriteBatch batch = firestore.batch();
+            appointmentCounters.create(batch, docRef, appointmentData);
             
             // Create user-appointment relationships with proper roles and status
             // For student (creator)
@@ -1419,7 +1175,9 @@ public class AppointmentController {
             studentRelationship.put("status", "PENDING");
             studentRelationship.put("createdAt", now);
             studentRelationship.put("updatedAt", now);
-            firestore.collection("user_appointments").document().set(studentRelationship).get();
+            batch.set(firestore.collection("user_appointments").document(), studentRelationship);
+            String studentName = currentUser.getFirstName() + " " + currentUser.getLastName();
+            userTimelines.put(batch, studentId, docRef.getId(), appointmentData, studentName, "CREATOR", "PENDING");
             
             // For faculty
             Map<String, Object> facultyRelationship = new HashMap<>();
@@ -1430,10 +1188,19 @@ public class AppointmentController {
             facultyRelationship.put("hasApproved", false);
             facultyRelationship.put("createdAt", now);
             facultyRelationship.put("updatedAt", now);
-            firestore.collection("user_appointments").document().set(facultyRelationship).get();
-            
-            // Send notification to faculty
-            sendFacultyAppointmentRequest(docRef.getId(), request.getUserId(), studentId, request);
+            batch.set(firestore.collection("user_appointments").document(), facultyRelationship);
+            userTimelines.put(batch, request.getUserId(), docRef.getId(), appointmentData, studentName, "PARTICIPANT", "PENDING");
+
+            // Notification for faculty
+            addFacultyAppointmentRequest(batch, docRef.getId(), request.getUserId(), studentId,
+                    currentUser.getFirstName() + " " + currentUser.getLastName(), appointmentData, request);
+            batch.commit().get();
+
+            conflictIndex.record(docRef.getId(), request.getTitle(),
+                    (Timestamp) appointmentData.get("startTime"), (Timestamp) appointmentData.get("endTime"),
+                    "PENDING_APPROVAL", currentUser.getFirstName() + " " + currentUser.getLastName(),
+                    List.of(studentId, request.getUserId()));
+            searchIndex.reindex(docRef.getId());
 
             // Create response
             Appointment appointment = new Appointment();
@@ -1445,7 +1212,7 @@ public class AppointmentController {
             appointment.setEndTime(Timestamp.ofTimeSecondsAndNanos(
                     endTime.getEpochSecond(), endTime.getNano()));
             appointment.setCreatedBy(studentId);
-            appointment.setCreatorName(studentDoc.getString("firstName") + " " + studentDoc.getString("lastName"));
+            appointment.setCreatorName(currentUser.getFirstName() + " " + currentUser.getLastName());
             appointment.setParticipants(List.of(studentId, request.getUserId()));
             appointment.setStatus("PENDING_APPROVAL");
             appointment.setCreatedAt(now);
@@ -1468,126 +1235,48 @@ public class AppointmentController {
         }
     }
     
-    // Helper method to send faculty appointment request notification
-    private void sendFacultyAppointmentRequest(String appointmentId, String facultyId, String studentId, FacultyAppointmentRequest request) {
-        try {
-            // Get student details
-            var studentDoc = firestore.collection("users").document(studentId).get().get();
-            String studentName = studentDoc.getString("firstName") + " " + studentDoc.getString("lastName");
-            
-            // Create notification for faculty
-            Map<String, Object> notificationData = new HashMap<>();
-            notificationData.put("userId", facultyId);
-            notificationData.put("appointmentId", appointmentId);
-            notificationData.put("type", "FACULTY_APPOINTMENT_REQUEST");
-            notificationData.put("title", "Appointment Request from Student");
-            notificationData.put("message", studentName + " has requested an appointment with you.");
-            notificationData.put("details", Map.of(
-                "title", request.getTitle(),
-                "description", request.getDescription(),
-                "startTime", Timestamp.ofTimeSecondsAndNanos(
-                    Instant.parse(request.getStartTime()).getEpochSecond(),
-                    Instant.parse(request.getStartTime()).getNano()),
-                "endTime", Timestamp.ofTimeSecondsAndNanos(
-                    Instant.parse(request.getEndTime()).getEpochSecond(),
-                    Instant.parse(request.getEndTime()).getNano()),
-                "studentId", studentId,
-                "studentName", studentName,
-                "reason", request.getReason()
-            ));
-            notificationData.put("status", "UNREAD");
-            notificationData.put("createdAt", Timestamp.now());
-            
-            // Save notification
-            firestore.collection("notifications").document().set(notificationData).get();
-            
-            logger.info("Sent faculty appointment request notification to: {} for appointment: {}", facultyId, appointmentId);
-        } catch (Exception e) {
-            logger.error("Error sending faculty appointment request notification: {}", e.getMessage());
-        }
+    // Helper method to add the faculty appointment request notification to a creation batch
+    private void addFacultyAppointmentRequest(WriteBatch batch, String appointmentId, String facultyId, String studentId,
+                                              String studentName, Map<String, Object> appointmentData,
+                                              FacultyAppointmentRequest request) {
+        Map<String, Object> details = new HashMap<>();
+        details.put("title", request.getTitle());
+        details.put("description", request.getDescription());
+        details.put("startTime", appointmentData.get("startTime"));
+        details.put("endTime", appointmentData.get("endTime"));
+        details.put("studentId", studentId);
+        details.put("studentName", studentName);
+        details.put("reason", request.getReason());
+
+        // Create notification for faculty
+        Map<String, Object> notificationData = new HashMap<>();
+        notificationData.put("appointmentId", appointmentId);
+        notificationData.put("type", "FACULTY_APPOINTMENT_REQUEST");
+        notificationData.put("title", "Appointment Request from Student");
+        notificationData.put("message", studentName + " has requested an appointment with you.");
+        notificationData.put("details", details);
+        notificationInbox.add(batch, facultyId, notificationData);
     }
 
     // Helper method to check if user is admin
-    private boolean isAdmin(Authentication authentication) {
-        try {
-            String userEmail = authentication.getName();
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (!userDocs.isEmpty()) {
-                var userDoc = userDocs.iterator().next();
-                return "ADMIN".equals(userDoc.getString("role"));
-            }
-            return false;
-        } catch (Exception e) {
-            logger.error("Error checking admin status: {}", e.getMessage());
-            return false;
-        }
+    private boolean isAdmin(User currentUser) {
+        return currentUser != null && "ADMIN".equals(currentUser.getRole());
     }
 
     // Get top 5 most booked faculty (Admin only)
     @GetMapping("/faculty/most-booked")
-    public ResponseEntity<List<Map<String, Object>>> getTopBookedFaculty(Authentication authentication) {
+    public ResponseEntity<List<Map<String, Object>>> getTopBookedFaculty(@AuthenticationPrincipal User currentUser) {
         try {
             // Check if user is admin
-            if (!isAdmin(authentication)) {
-                logger.error("Unauthorized access attempt to most booked faculty by user: {}", authentication.getName());
+            if (!isAdmin(currentUser)) {
+                logger.error("Unauthorized access attempt to most booked faculty by user: {}", currentUser.getEmail());
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            logger.info("Admin {} fetching top 5 most booked faculty members", authentication.getName());
-
-            // Get all appointments
-            var appointments = firestore.collection("appointments")
-                    .whereEqualTo("status", "SCHEDULED")  // Only count confirmed appointments
-                    .get()
-                    .get()
-                    .getDocuments();
-
-            // Count appointments per faculty
-            Map<String, Integer> facultyBookings = new HashMap<>();
-            Map<String, String> facultyNames = new HashMap<>();
-
-            for (var appointment : appointments) {
-                List<String> participants = (List<String>) appointment.get("participants");
-                if (participants != null) {
-                    for (String participantId : participants) {
-                        // Check if participant is faculty
-                        var userDoc = firestore.collection("users")
-                                .document(participantId)
-                                .get()
-                                .get();
-                        
-                        if (userDoc.exists() && "FACULTY".equals(userDoc.getString("role"))) {
-                            // Count the booking
-                            facultyBookings.merge(participantId, 1, Integer::sum);
-                            
-                            // Store faculty name if not already stored
-                            if (!facultyNames.containsKey(participantId)) {
-                                String firstName = userDoc.getString("firstName");
-                                String lastName = userDoc.getString("lastName");
-                                facultyNames.put(participantId, firstName + " " + lastName);
-                            }
-                        }
-                    }
-                }
-            }
+            logger.info("Admin {} fetching top 5 most booked faculty members", currentUser.getEmail());
 
-            // Sort faculty by booking count and get top 5
-            List<Map<String, Object>> topFaculty = facultyBookings.entrySet().stream()
-                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                    .limit(5)
-                    .map(entry -> {
-                        Map<String, Object> facultyData = new HashMap<>();
-                        facultyData.put("userId", entry.getKey());
-                        facultyData.put("name", facultyNames.get(entry.getKey()));
-                        facultyData.put("bookingCount", entry.getValue());
-                        return facultyData;
-                    })
-                    .collect(Collectors.toList());
+            // Served from the maintained leaderboard; no appointment or user reads
+            List<Map<String, Object>> topFaculty = facultyLeaderboard.top(5);
 
             logger.info("Successfully retrieved top 5 most booked faculty members");
             return ResponseEntity.ok(topFaculty);
@@ -1598,12 +1287,11 @@ public class AppointmentController {
     }
 
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getAppointmentStats(Authentication authentication) {
+    public ResponseEntity<Map<String, Object>> getAppointmentStats(@AuthenticationPrincipal User currentUser) {
         try {
-            String adminEmail = authentication.getName();
-            logger.info("Admin {} requesting appointment statistics", adminEmail);
+            logger.info("Admin {} requesting appointment statistics", currentUser.getEmail());
 
-            Map<String, Object> stats = appointmentService.getAppointmentStats(adminEmail);
+            Map<String, Object> stats = appointmentService.getAppointmentStats(currentUser);
             
             logger.info("Successfully retrieved appointment statistics");
             return ResponseEntity.ok(stats);
@@ -1616,75 +1304,41 @@ public class AppointmentController {
         }
     }
 
+    // Backfill: regenerates every user's timeline document (also runs nightly)
+    @PostMapping("/timelines/rebuild")
+    public ResponseEntity<Void> rebuildTimelines(@AuthenticationPrincipal User currentUser) {
+        if (!"ADMIN".equals(currentUser.getRole())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            userTimelines.rebuild();
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            logger.error("Error rebuilding user timelines: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @PutMapping("/{appointmentId}/tags/{tagName}")
     public ResponseEntity<Map<String, Object>> updateTag(
             @PathVariable String appointmentId,
             @PathVariable String tagName,
             @RequestBody TagRequest request,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userEmail = authentication.getName();
+            String userEmail = currentUser.getEmail();
             logger.info("Updating tag {} in appointment: {} by user: {}", tagName, appointmentId, userEmail);
 
-            // Get user document
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (userDocs.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            var userDoc = userDocs.iterator().next();
-            String userId = userDoc.getId();
-
-            // Check if appointment exists and user has access
-            var appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
-            if (!appointmentDoc.exists()) {
-                return ResponseEntity.notFound().build();
-            }
-
-            List<String> participants = (List<String>) appointmentDoc.get("participants");
-            if (!participants.contains(userId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-
-            // Get current tags
-            List<Map<String, Object>> currentTags = (List<Map<String, Object>>) appointmentDoc.get("tags");
-            if (currentTags == null || currentTags.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-
-            // Check if new tag name already exists (only if name is being changed)
-            if (!tagName.equals(request.getName()) && 
-                currentTags.stream().anyMatch(tag -> request.getName().equals(tag.get("name")))) {
-                return ResponseEntity.badRequest()
-                        .body(Map.of("message", "Tag with this name already exists"));
-            }
-
-            // Find and update the tag
-            boolean updated = false;
-            Map<String, Object> updatedTag = null;
-            for (Map<String, Object> tag : currentTags) {
-                if (tagName.equals(tag.get("name"))) {
-                    tag.put("name", request.getName());
-                    tag.put("color", request.getColor());
-                    updatedTag = tag;
-                    updated = true;
-                    break;
-                }
-            }
-
-            if (!updated) {
-                return ResponseEntity.notFound().build();
-            }
-
-            // Update appointment
-            appointmentDoc.getReference().update("tags", currentTags).get();
-
+            Map<String, Object> updatedTag = appointmentTags.update(appointmentId, currentUser.getUserId(),
+                    tagName, request.getName(), request.getColor());
+            searchIndex.reindex(appointmentId);
             return ResponseEntity.ok(updatedTag);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error updating tag in appointment: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -1695,9 +1349,9 @@ public class AppointmentController {
     @PostMapping("/{appointmentId}/remind")
     public ResponseEntity<?> sendAppointmentReminder(
             @PathVariable String appointmentId,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userId = authentication.getName();
+            logger.info("User {} sending reminders for appointment: {}", currentUser.getEmail(), appointmentId);
             
             // Get appointment details
             var appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
@@ -1732,25 +1386,15 @@ public class AppointmentController {
     }
 
     @GetMapping("/all")
-    public ResponseEntity<List<Appointment>> getAllFacultyAppointments(Authentication authentication) {
+    public ResponseEntity<List<Appointment>> getAllFacultyAppointments(
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String pageToken,
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userEmail = authentication.getName();
+            String userEmail = currentUser.getEmail();
             logger.info("Getting all faculty appointments, requested by: {}", userEmail);
 
-            // Get requesting user's document
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (userDocs.isEmpty()) {
-                logger.error("User with email {} not found", userEmail);
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            
-            var userDoc = userDocs.iterator().next();
-            String userRole = userDoc.getString("role");
+            String userRole = currentUser.getRole();
 
             // Only admin and faculty can view all appointments
             if (!"ADMIN".equals(userRole) && !"FACULTY".equals(userRole)) {
@@ -1758,88 +1402,34 @@ public class AppointmentController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            // Get all faculty users
-            var facultyDocs = firestore.collection("users")
-                    .whereEqualTo("role", "FACULTY")
-                    .get()
-                    .get()
-                    .getDocuments();
-
-            List<Appointment> allAppointments = new ArrayList<>();
-
-            // For each faculty member
-            for (var facultyDoc : facultyDocs) {
-                String facultyId = facultyDoc.getId();
-                String facultyName = facultyDoc.getString("firstName") + " " + facultyDoc.getString("lastName");
-
-                // Get faculty's appointment relationships
-                var facultyAppointments = firestore.collection("user_appointments")
-                        .whereEqualTo("userId", facultyId)
-                        .get()
-                        .get()
-                        .getDocuments();
-
-                // Process each appointment
-                for (var userAppointment : facultyAppointments) {
-                    String appointmentId = userAppointment.getString("appointmentId");
-                    var appointmentDoc = firestore.collection("appointments")
-                            .document(appointmentId)
-                            .get()
-                            .get();
-
-                    if (appointmentDoc.exists() && "SCHEDULED".equals(appointmentDoc.getString("status"))) {
-                        String creatorId = appointmentDoc.getString("createdBy");
-                        
-                        // Get creator's details
-                        var creatorDoc = firestore.collection("users")
-                                .document(creatorId)
-                                .get()
-                                .get();
-                        
-                        String creatorName = "Unknown User";
-                        if (creatorDoc.exists()) {
-                            String firstName = creatorDoc.getString("firstName");
-                            String lastName = creatorDoc.getString("lastName");
-                            if (firstName != null && lastName != null) {
-                                creatorName = firstName + " " + lastName;
-                            }
-                        }
-
-                        Appointment appointment = new Appointment();
-                        appointment.setAppointmentId(appointmentId);
-                        appointment.setTitle(appointmentDoc.getString("title"));
-                        appointment.setDescription(appointmentDoc.getString("description"));
-                        appointment.setStartTime(appointmentDoc.getTimestamp("startTime"));
-                        appointment.setEndTime(appointmentDoc.getTimestamp("endTime"));
-                        appointment.setCreatedBy(creatorId);
-                        appointment.setCreatorName(creatorName);
-                        appointment.setParticipants((List<String>) appointmentDoc.get("participants"));
-                        appointment.setStatus(appointmentDoc.getString("status"));
-                        appointment.setCreatedAt(appointmentDoc.getTimestamp("createdAt"));
-                        appointment.setUpdatedAt(appointmentDoc.getTimestamp("updatedAt"));
-                        
-                        // Add faculty-specific data
-                        appointment.setUserRole("FACULTY");
-                        appointment.setUserStatus(userAppointment.getString("status"));
-                        appointment.setFacultyName(facultyName);
-
-                        // Add faculty approval status if available
-                        Map<String, Object> facultyApprovals = (Map<String, Object>) appointmentDoc.get("facultyApprovals");
-                        if (facultyApprovals != null) {
-                            Boolean hasApproved = (Boolean) facultyApprovals.get(facultyId);
-                            appointment.setHasApproved(hasApproved != null ? hasApproved : false);
-                        }
-                        
-                        allAppointments.add(appointment);
-                    }
-                }
-            }
+            // Scheduled appointments (one page when paging is requested), hydrated in parallel chunks
+            var allAppointments = facultyAppointmentFeed.page(PageCursor.orAll(pageSize, pageToken));
 
-            logger.info("Successfully retrieved {} scheduled faculty appointments", allAppointments.size());
-            return ResponseEntity.ok(allAppointments);
+            logger.info("Successfully retrieved {} scheduled faculty appointments", allAppointments.getItems().size());
+            return page(allAppointments.getItems(), allAppointments.getNextPageToken());
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid faculty appointments page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.error("Error fetching all faculty appointments: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
-} 
\ No newline at end of file
+
+    // Same rows as /all as newline-delimited JSON, written as each chunk finishes loading
+    @GetMapping(value = "/all/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllFacultyAppointments(@AuthenticationPrincipal User currentUser) {
+        String userRole = currentUser.getRole();
+
+        // Only admin and faculty can view all appointments
+        if (!"ADMIN".equals(userRole) && !"FACULTY".equals(userRole)) {
+            logger.error("Unauthorized access attempt to all faculty appointments by user: {}", currentUser.getEmail());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        logger.info("Streaming all faculty appointments, requested by: {}", currentUser.getEmail());
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(facultyAppointmentFeed::writeNdjson);
+    }
+}
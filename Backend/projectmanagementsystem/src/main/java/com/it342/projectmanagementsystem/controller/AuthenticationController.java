@@ -3,12 +3,14 @@ package com.it342.projectmanagementsystem.controller;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
 import com.it342.projectmanagementsystem.dto.AuthResponse;
 import com.it342.projectmanagementsystem.dto.LoginRequest;
 import com.it342.projectmanagementsystem.dto.RegisterRequest;
 import com.it342.projectmanagementsystem.dto.RegisterResponse;
 import com.it342.projectmanagementsystem.model.User;
 import com.it342.projectmanagementsystem.service.JwtService;
+import com.it342.projectmanagementsystem.service.ListVersions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -33,15 +35,18 @@ public class AuthenticationController {
     private final JwtService jwtService;
     private final Firestore firestore;
     private final PasswordEncoder passwordEncoder;
+    private final ListVersions listVersions;
 
     public AuthenticationController(AuthenticationManager authenticationManager,
                                   JwtService jwtService,
                                   Firestore firestore,
-                                  PasswordEncoder passwordEncoder) {
+                                  PasswordEncoder passwordEncoder,
+                                  ListVersions listVersions) {
         this.authenticationManager = authenticationManager;
         this.jwtService = jwtService;
         this.firestore = firestore;
         this.passwordEncoder = passwordEncoder;
+        this.listVersions = listVersions;
     }
 
     @PostMapping("/register")
@@ -70,7 +75,10 @@ public class AuthenticationController {
             userData.put("createdAt", Timestamp.now());
 
             var docRef = firestore.collection("users").document();
-            docRef.set(userData).get();
+            WriteBatch batch = firestore.batch();
+            batch.set(docRef, userData);
+            listVersions.bump(batch, ListVersions.USERS);
+            batch.commit().get();
 
             return ResponseEntity.ok(new RegisterResponse(docRef.getId(), 
                     request.getEmail(), request.getRole()));
@@ -0,0 +1,104 @@
+package com.it342.projectmanagementsystem.controller;
+
+import com.it342.projectmanagementsystem.dto.NotificationSummary;
+import com.it342.projectmanagementsystem.model.User;
+import com.it342.projectmanagementsystem.service.NotificationInbox;
+import com.it342.projectmanagementsystem.service.PageCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/api/notifications")
+public class NotificationController {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationController.class);
+    private final NotificationInbox notificationInbox;
+
+    public NotificationController(NotificationInbox notificationInbox) {
+        this.notificationInbox = notificationInbox;
+    }
+
+    // The current user's notifications, newest first; the next page token comes back in a header
+    @GetMapping
+    public ResponseEntity<List<NotificationSummary>> getNotifications(
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String pageToken,
+            @AuthenticationPrincipal User currentUser) {
+        try {
+            logger.info("Fetching notifications for user: {}", currentUser.getEmail());
+            var page = notificationInbox.page(currentUser.getUserId(), PageCursor.of(pageSize, pageToken));
+            var response = ResponseEntity.ok();
+            if (page.getNextPageToken() != null) {
+                response.header(PageCursor.NEXT_PAGE_TOKEN_HEADER, page.getNextPageToken());
+            }
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid notifications request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error fetching notifications: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // Badge count: a single counter document read
+    @GetMapping("/unread-count")
+    public ResponseEntity<Map<String, Object>> getUnreadCount(@AuthenticationPrincipal User currentUser) {
+        try {
+            return ResponseEntity.ok(Map.of("unreadCount", notificationInbox.unreadCount(currentUser.getUserId())));
+        } catch (Exception e) {
+            logger.error("Error fetching unread notification count: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PostMapping("/{notificationId}/read")
+    public ResponseEntity<Void> markRead(
+            @PathVariable String notificationId,
+            @AuthenticationPrincipal User currentUser) {
+        try {
+            notificationInbox.markRead(currentUser.getUserId(), notificationId);
+            return ResponseEntity.ok().build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (Exception e) {
+            logger.error("Error marking notification {} read: {}", notificationId, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PostMapping("/read-all")
+    public ResponseEntity<Map<String, Object>> markAllRead(@AuthenticationPrincipal User currentUser) {
+        try {
+            logger.info("Marking all notifications read for user: {}", currentUser.getEmail());
+            return ResponseEntity.ok(Map.of("marked", notificationInbox.markAllRead(currentUser.getUserId())));
+        } catch (Exception e) {
+            logger.error("Error marking all notifications read: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // Converts notifications written before recipientId existed (Admin only)
+    @PostMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> backfillRecipients(@AuthenticationPrincipal User currentUser) {
+        if (!"ADMIN".equals(currentUser.getRole())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return ResponseEntity.ok(Map.of("updated", notificationInbox.backfillRecipients()));
+        } catch (Exception e) {
+            logger.error("Error backfilling notifications: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.it342.projectmanagementsystem.controller;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.firebase.auth.FirebaseAuthException;
-import com.google.cloud.Timestamp;
 
 import com.it342.projectmanagementsystem.model.*;
 import com.it342.projectmanagementsystem.service.*;
@@ -11,10 +10,16 @@ import com.it342.projectmanagementsystem.service.*;
 import org.apache.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -28,10 +33,17 @@ public class UserController {
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
     private final UserService userService;
     private final Firestore firestore;
+    private final AvailabilityIndex availabilityIndex;
+    private final UserDirectory userDirectory;
+    private final ListVersions listVersions;
 
-    public UserController(UserService userService, Firestore firestore) {
+    public UserController(UserService userService, Firestore firestore, AvailabilityIndex availabilityIndex,
+                          UserDirectory userDirectory, ListVersions listVersions) {
         this.userService = userService;
         this.firestore = firestore;
+        this.availabilityIndex = availabilityIndex;
+        this.userDirectory = userDirectory;
+        this.listVersions = listVersions;
     }
 
     // Register User
@@ -126,6 +138,43 @@ public ResponseEntity<?> login(@RequestBody Map<String, String> loginData) {
         return user != null ? ResponseEntity.ok(user) : ResponseEntity.notFound().build();
     }
     
+    // Open windows of at least `duration` minutes in the faculty member's calendar, optionally
+    // intersected with other participants' calendars (`with`), within opening hours in Asia/Manila
+    @GetMapping("/{facultyId}/availability")
+    public ResponseEntity<Map<String, Object>> getAvailability(
+            @PathVariable String facultyId,
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(defaultValue = "30") int duration,
+            @RequestParam(required = false) List<String> with) {
+        try {
+            UserDirectory.UserSummary faculty = userDirectory.get(facultyId);
+            if (faculty == null || !faculty.isFaculty()) {
+                return ResponseEntity.notFound().build();
+            }
+
+            List<String> userIds = new ArrayList<>();
+            userIds.add(facultyId);
+            if (with != null) {
+                userIds.addAll(with);
+            }
+            List<Map<String, Object>> slots = availabilityIndex.freeSlots(userIds, Instant.parse(from), Instant.parse(to),
+                    Duration.ofMinutes(duration));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("userIds", userIds);
+            response.put("durationMinutes", duration);
+            response.put("slots", slots);
+            return ResponseEntity.ok(response);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            logger.error("Invalid availability request for {}: {}", facultyId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error computing availability for {}: {}", facultyId, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/test")
     public ResponseEntity<String> testGetEndpoint(){
     	return ResponseEntity.ok("Test Get Endpoint is WORKING!!!");
@@ -134,8 +183,13 @@ public ResponseEntity<?> login(@RequestBody Map<String, String> loginData) {
     // Update User
     @PatchMapping("/{id}")
     public ResponseEntity<?> updateUser(@PathVariable String id, @RequestBody Map<String, Object> updates) {
-        userService.updateUser(id, updates);
-        return ResponseEntity.ok("User updated successfully");
+        try {
+            userService.updateUser(id, updates);
+            return ResponseEntity.ok("User updated successfully");
+        } catch (Exception e) {
+            logger.error("Error updating user {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SC_INTERNAL_SERVER_ERROR).body("Update failed: " + e.getMessage());
+        }
     }
 
     // Delete User (Admin only)
@@ -161,47 +215,55 @@ public ResponseEntity<?> login(@RequestBody Map<String, String> loginData) {
         }
     }
 
-    // Helper method to check if user is admin
-    private boolean isAdmin(Authentication authentication) {
-        try {
-            String userEmail = authentication.getName();
-            var userDocs = firestore.collection("users")
-                    .whereEqualTo("email", userEmail)
-                    .get()
-                    .get()
-                    .getDocuments();
-            
-            if (!userDocs.isEmpty()) {
-                var userDoc = userDocs.iterator().next();
-                return "ADMIN".equals(userDoc.getString("role"));
-            }
-            return false;
-        } catch (Exception e) {
-            logger.error("Error checking admin status: {}", e.getMessage());
-            return false;
+    // List response with the cursor for the next page, if any, in a header
+    private static <T> ResponseEntity<List<T>> page(List<T> items, String nextPageToken) {
+        var response = ResponseEntity.ok();
+        if (nextPageToken != null) {
+            response.header(PageCursor.NEXT_PAGE_TOKEN_HEADER, nextPageToken);
         }
+        return response.body(items);
+    }
+
+    // Same, carrying the ETag; clients may store it but must revalidate every time
+    private static <T> ResponseEntity<List<T>> page(List<T> items, String nextPageToken, String etag) {
+        var response = ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache().cachePrivate());
+        if (nextPageToken != null) {
+            response.header(PageCursor.NEXT_PAGE_TOKEN_HEADER, nextPageToken);
+        }
+        return response.body(items);
+    }
+
+    // Helper method to check if user is admin
+    private boolean isAdmin(User currentUser) {
+        return currentUser != null && "ADMIN".equals(currentUser.getRole());
     }
 
     // Get all users (Admin only)
     @GetMapping("/all")
-    public ResponseEntity<List<Map<String, Object>>> getAllUsers(Authentication authentication) {
+    public ResponseEntity<List<Map<String, Object>>> getAllUsers(
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String pageToken,
+            @AuthenticationPrincipal User currentUser,
+            WebRequest webRequest) {
         try {
             // Check if user is admin
-            if (!isAdmin(authentication)) {
-                logger.error("Unauthorized access attempt to get all users by user: {}", authentication.getName());
+            if (!isAdmin(currentUser)) {
+                logger.error("Unauthorized access attempt to get all users by user: {}", currentUser.getEmail());
                 return ResponseEntity.status(org.springframework.http.HttpStatus.FORBIDDEN).build();
             }
 
-            logger.info("Admin {} fetching all users", authentication.getName());
+            String etag = ListVersions.etag(listVersions.version(ListVersions.USERS), "all", pageSize, pageToken);
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
+
+            logger.info("Admin {} fetching all users", currentUser.getEmail());
 
-            // Get all users
-            var userDocs = firestore.collection("users")
-                    .get()
-                    .get()
-                    .getDocuments();
+            // Get one page of users
+            var userDocs = PageCursor.orAll(pageSize, pageToken).fetch(firestore.collection("users"));
 
             List<Map<String, Object>> users = new ArrayList<>();
-            for (var userDoc : userDocs) {
+            for (var userDoc : userDocs.getItems()) {
                 Map<String, Object> userData = new HashMap<>();
                 userData.put("userId", userDoc.getId());
                 userData.put("firstName", userDoc.getString("firstName"));
@@ -214,7 +276,10 @@ public ResponseEntity<?> login(@RequestBody Map<String, String> loginData) {
             }
 
             logger.info("Successfully retrieved {} users", users.size());
-            return ResponseEntity.ok(users);
+            return page(users, userDocs.getNextPageToken(), etag);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid users page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.error("Error fetching all users: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -222,19 +287,25 @@ public ResponseEntity<?> login(@RequestBody Map<String, String> loginData) {
     }
 
     @GetMapping("/faculties")
-    public ResponseEntity<List<Map<String, Object>>> getAllFaculties() {
+    public ResponseEntity<List<Map<String, Object>>> getAllFaculties(
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String pageToken,
+            WebRequest webRequest) {
         try {
+            // 304 from one counter read when the directory has not changed
+            String etag = ListVersions.etag(listVersions.version(ListVersions.USERS), "faculties", pageSize, pageToken);
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
+
             logger.info("Fetching all faculty members");
 
-            // Query users collection for faculty members
-            var facultyDocs = firestore.collection("users")
-                    .whereEqualTo("role", "FACULTY")
-                    .get()
-                    .get()
-                    .getDocuments();
+            // Query one page of faculty members from the users collection
+            var facultyDocs = PageCursor.orAll(pageSize, pageToken).fetch(
+                    firestore.collection("users").whereEqualTo("role", "FACULTY"));
 
             List<Map<String, Object>> faculties = new ArrayList<>();
-            for (var facultyDoc : facultyDocs) {
+            for (var facultyDoc : facultyDocs.getItems()) {
                 Map<String, Object> facultyData = new HashMap<>();
                 facultyData.put("userId", facultyDoc.getId());
                 facultyData.put("firstName", facultyDoc.getString("firstName"));
@@ -246,7 +317,10 @@ public ResponseEntity<?> login(@RequestBody Map<String, String> loginData) {
             }
 
             logger.info("Successfully retrieved {} faculty members", faculties.size());
-            return ResponseEntity.ok(faculties);
+            return page(faculties, facultyDocs.getNextPageToken(), etag);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid faculty page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.error("Error fetching faculty members: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -292,13 +366,25 @@ public ResponseEntity<?> login(@RequestBody Map<String, String> loginData) {
     }
 
     @GetMapping("/students")
-    public ResponseEntity<?> getAllStudents(Authentication authentication) {
+    public ResponseEntity<?> getAllStudents(
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String pageToken,
+            Authentication authentication,
+            WebRequest webRequest) {
         try {
+            String etag = ListVersions.etag(listVersions.version(ListVersions.USERS), "students", pageSize, pageToken);
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
+
             logger.info("User {} fetching all students", authentication.getName());
-            List<Map<String, Object>> students = userService.getAllStudents();
-            logger.info("Successfully retrieved {} students", students.size());
-            return ResponseEntity.ok(students);
+            var students = userService.getAllStudents(PageCursor.orAll(pageSize, pageToken));
+            logger.info("Successfully retrieved {} students", students.getItems().size());
+            return page(students.getItems(), students.getNextPageToken(), etag);
 
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid students page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             logger.error("Error fetching all students: {}", e.getMessage());
             return ResponseEntity.internalServerError().body("Failed to fetch students: " + e.getMessage());
@@ -309,9 +395,9 @@ public ResponseEntity<?> login(@RequestBody Map<String, String> loginData) {
     @PostMapping("/fcm-token")
     public ResponseEntity<?> updateFcmToken(
             @RequestBody Map<String, String> request,
-            Authentication authentication) {
+            @AuthenticationPrincipal User currentUser) {
         try {
-            String userId = authentication.getName();
+            String userId = currentUser.getUserId();
             String fcmToken = request.get("fcmToken");
 
             if (fcmToken == null || fcmToken.isEmpty()) {
@@ -319,11 +405,7 @@ public ResponseEntity<?> login(@RequestBody Map<String, String> loginData) {
             }
 
             // Update user's FCM token in Firestore
-            Map<String, Object> updates = new HashMap<>();
-            updates.put("fcmToken", fcmToken);
-            updates.put("updatedAt", Timestamp.now());
-
-            firestore.collection("users").document(userId).update(updates).get();
+            userService.updateFcmToken(userId, fcmToken);
 
             return ResponseEntity.ok().body("FCM token updated successfully");
         } catch (Exception e) {
@@ -0,0 +1,40 @@
+package com.it342.projectmanagementsystem.dto;
+
+import java.util.List;
+
+public class BatchApprovalRequest {
+    private List<Decision> decisions;
+
+    public BatchApprovalRequest() {
+    }
+
+    public List<Decision> getDecisions() {
+        return decisions;
+    }
+
+    public void setDecisions(List<Decision> decisions) {
+        this.decisions = decisions;
+    }
+
+    // One faculty decision on one appointment
+    public static class Decision {
+        private String appointmentId;
+        private boolean approved;
+
+        public String getAppointmentId() {
+            return appointmentId;
+        }
+
+        public void setAppointmentId(String appointmentId) {
+            this.appointmentId = appointmentId;
+        }
+
+        public boolean isApproved() {
+            return approved;
+        }
+
+        public void setApproved(boolean approved) {
+            this.approved = approved;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.it342.projectmanagementsystem.dto;
+
+import java.util.List;
+
+public class BulkTagRequest {
+    private List<String> appointmentIds;
+    private List<Operation> operations;
+
+    public BulkTagRequest() {
+    }
+
+    public List<String> getAppointmentIds() {
+        return appointmentIds;
+    }
+
+    public void setAppointmentIds(List<String> appointmentIds) {
+        this.appointmentIds = appointmentIds;
+    }
+
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<Operation> operations) {
+        this.operations = operations;
+    }
+
+    // One tag change: ADD (name, color), REMOVE (name) or UPDATE (name, newName, color)
+    public static class Operation {
+        private String action;
+        private String name;
+        private String newName;
+        private String color;
+
+        public String getAction() {
+            return action;
+        }
+
+        public void setAction(String action) {
+            this.action = action;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getNewName() {
+            return newName;
+        }
+
+        public void setNewName(String newName) {
+            this.newName = newName;
+        }
+
+        public String getColor() {
+            return color;
+        }
+
+        public void setColor(String color) {
+            this.color = color;
+        }
+    }
+}
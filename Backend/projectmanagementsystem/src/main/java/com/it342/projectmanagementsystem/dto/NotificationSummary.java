@@ -0,0 +1,18 @@
+package com.it342.projectmanagementsystem.dto;
+
+import com.google.cloud.Timestamp;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+// One inbox entry; the full "details" map stays in Firestore
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class NotificationSummary {
+    private String id;
+    private String type;
+    private String title;
+    private String message;
+    private String appointmentId;
+    private boolean read;
+    private Timestamp createdAt;
+}
@@ -0,0 +1,384 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.UpdateBuilder;
+import com.google.cloud.firestore.WriteBatch;
+import com.it342.projectmanagementsystem.dto.BatchApprovalRequest;
+import com.it342.projectmanagementsystem.model.Appointment;
+import com.it342.projectmanagementsystem.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Faculty approval and denial of appointment requests.
+ *
+ * An approval records the faculty member's decision in facultyApprovals, moves the
+ * appointment to SCHEDULED once every faculty participant has approved, and updates the
+ * approver's user_appointments link, every linked user's timeline and the requester's inbox
+ * notification in the same commit.
+ * Batches read all appointments, links and participant roles up front, then commit many
+ * decisions per write batch; push notifications are queued after each commit.
+ *
+ * Throws NoSuchElementException for a missing appointment and SecurityException when the
+ * user is not a faculty participant.
+ */
+@Service
+public class AppointmentApprovals {
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentApprovals.class);
+
+    public static final int MAX_BATCH_SIZE = 200;
+    // Decisions per write batch; each carries its appointment, link and timeline writes
+    static final int COMMIT_CHUNK_SIZE = 50;
+    // Firestore "in" filters take at most 30 values
+    private static final int IN_QUERY_LIMIT = 30;
+
+    private final Firestore firestore;
+    private final AppointmentHydrator appointmentHydrator;
+    private final AppointmentCounters appointmentCounters;
+    private final AppointmentConflictIndex conflictIndex;
+    private final FacultyLeaderboard facultyLeaderboard;
+    private final UserDirectory userDirectory;
+    private final UserTimelines userTimelines;
+    private final NotificationService notificationService;
+    private final NotificationInbox notificationInbox;
+
+    public AppointmentApprovals(Firestore firestore, AppointmentHydrator appointmentHydrator,
+                                AppointmentCounters appointmentCounters, AppointmentConflictIndex conflictIndex,
+                                FacultyLeaderboard facultyLeaderboard, UserDirectory userDirectory,
+                                UserTimelines userTimelines, NotificationService notificationService,
+                                NotificationInbox notificationInbox) {
+        this.firestore = firestore;
+        this.appointmentHydrator = appointmentHydrator;
+        this.appointmentCounters = appointmentCounters;
+        this.conflictIndex = conflictIndex;
+        this.facultyLeaderboard = facultyLeaderboard;
+        this.userDirectory = userDirectory;
+        this.userTimelines = userTimelines;
+        this.notificationService = notificationService;
+        this.notificationInbox = notificationInbox;
+    }
+
+    /**
+     * Applies one decision. A status change goes through AppointmentCounters, which uses a
+     * transaction when counters are enabled.
+     */
+    public Appointment approve(User faculty, String appointmentId, boolean approved)
+            throws ExecutionException, InterruptedException {
+        // Check if appointment exists
+        DocumentSnapshot appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
+        if (!appointmentDoc.exists()) {
+            logger.error("Appointment not found: {}", appointmentId);
+            throw new NoSuchElementException("Appointment not found");
+        }
+        checkFaculty(faculty);
+
+        List<String> participants = (List<String>) appointmentDoc.get("participants");
+        Map<String, UserDirectory.UserSummary> participantUsers =
+                userDirectory.getAll(participants != null ? participants : List.of());
+        Decision decision = decide(appointmentDoc, faculty.getUserId(), approved, participantUsers);
+
+        // Every link to the appointment, so the approver's relationship and all timelines update with it
+        List<QueryDocumentSnapshot> links = firestore.collection("user_appointments")
+                .whereEqualTo("appointmentId", appointmentId)
+                .get()
+                .get()
+                .getDocuments();
+
+        appointmentCounters.update(appointmentDoc.getReference(), decision.updates,
+                writes -> writeDependents(writes, decision, links));
+        afterCommit(decision);
+
+        Appointment appointment = AppointmentHydrator.toAppointment(appointmentDoc, null);
+        appointment.setStatus(decision.newStatus);
+        appointment.setUpdatedAt(decision.now);
+        appointment.setUserRole("PARTICIPANT");  // Faculty's role
+        appointment.setUserStatus(decision.userStatus());
+        appointment.setHasApproved(approved);
+        appointment.setFacultyName(faculty.getFirstName() + " " + faculty.getLastName());
+        return appointment;
+    }
+
+    /**
+     * Applies many decisions by one faculty member. Appointments that do not exist or where
+     * the faculty member is not a participant are reported per entry, not as a failure.
+     * Each write batch is conditional on the appointments being unchanged since they were
+     * read; if a batch fails, its decisions are retried one at a time through {@link #approve}.
+     *
+     * @return one entry per decision: appointmentId plus status and userStatus, or error
+     */
+    public List<Map<String, Object>> approveBatch(User faculty, List<BatchApprovalRequest.Decision> decisions)
+            throws ExecutionException, InterruptedException {
+        checkFaculty(faculty);
+        if (decisions == null || decisions.isEmpty() || decisions.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_BATCH_SIZE + " decisions are required");
+        }
+
+        // Last decision per appointment wins
+        Map<String, Boolean> approvedById = new LinkedHashMap<>();
+        for (BatchApprovalRequest.Decision decision : decisions) {
+            if (decision.getAppointmentId() == null || decision.getAppointmentId().isEmpty()) {
+                throw new IllegalArgumentException("appointmentId is required");
+            }
+            approvedById.put(decision.getAppointmentId(), decision.isApproved());
+        }
+
+        // All reads up front: appointments, participant roles and links
+        Map<String, DocumentSnapshot> appointmentDocs = appointmentHydrator.getAll("appointments", approvedById.keySet());
+        Set<String> participantIds = new LinkedHashSet<>();
+        for (DocumentSnapshot appointmentDoc : appointmentDocs.values()) {
+            List<String> participants = (List<String>) appointmentDoc.get("participants");
+            if (participants != null) {
+                participantIds.addAll(participants);
+            }
+        }
+        Map<String, UserDirectory.UserSummary> participantUsers = userDirectory.getAll(participantIds);
+        Map<String, List<QueryDocumentSnapshot>> linksByAppointment = loadLinks(appointmentDocs.keySet());
+
+        Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+        List<Decision> planned = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entry : approvedById.entrySet()) {
+            DocumentSnapshot appointmentDoc = appointmentDocs.get(entry.getKey());
+            if (appointmentDoc == null) {
+                results.put(entry.getKey(), error(entry.getKey(), "NOT_FOUND"));
+                continue;
+            }
+            try {
+                planned.add(decide(appointmentDoc, faculty.getUserId(), entry.getValue(), participantUsers));
+                results.put(entry.getKey(), null);
+            } catch (SecurityException e) {
+                results.put(entry.getKey(), error(entry.getKey(), "FORBIDDEN"));
+            }
+        }
+
+        for (int from = 0; from < planned.size(); from += COMMIT_CHUNK_SIZE) {
+            List<Decision> chunk = planned.subList(from, Math.min(from + COMMIT_CHUNK_SIZE, planned.size()));
+            WriteBatch batch = firestore.batch();
+            Map<String, Long> statusDeltas = new HashMap<>();
+            for (Decision decision : chunk) {
+                batch.update(decision.appointmentDoc.getReference(), decision.updates,
+                        Precondition.updatedAt(decision.appointmentDoc.getUpdateTime()));
+                writeDependents(batch, decision,
+                        linksByAppointment.getOrDefault(decision.appointmentDoc.getId(), List.of()));
+                String oldStatus = decision.appointmentDoc.getString("status");
+                if (!decision.newStatus.equals(oldStatus)) {
+                    if (oldStatus != null) {
+                        statusDeltas.merge(oldStatus, -1L, Long::sum);
+                    }
+                    statusDeltas.merge(decision.newStatus, 1L, Long::sum);
+                }
+            }
+            appointmentCounters.adjustStatuses(batch, statusDeltas);
+
+            try {
+                batch.commit().get();
+            } catch (ExecutionException e) {
+                // Usually a concurrent change to one of the appointments; redo these one by one
+                logger.warn("Approval batch of {} failed ({}), retrying individually", chunk.size(), e.getMessage());
+                for (Decision decision : chunk) {
+                    String appointmentId = decision.appointmentDoc.getId();
+                    try {
+                        Appointment appointment = approve(faculty, appointmentId, decision.approved);
+                        results.put(appointmentId, result(appointmentId, appointment.getStatus(), appointment.getUserStatus()));
+                    } catch (NoSuchElementException retryError) {
+                        results.put(appointmentId, error(appointmentId, "NOT_FOUND"));
+                    } catch (SecurityException retryError) {
+                        results.put(appointmentId, error(appointmentId, "FORBIDDEN"));
+                    } catch (ExecutionException retryError) {
+                        logger.error("Error approving appointment {}: {}", appointmentId, retryError.getMessage());
+                        results.put(appointmentId, error(appointmentId, "FAILED"));
+                    }
+                }
+                continue;
+            }
+
+            for (Decision decision : chunk) {
+                afterCommit(decision);
+                String appointmentId = decision.appointmentDoc.getId();
+                results.put(appointmentId, result(appointmentId, decision.newStatus, decision.userStatus()));
+            }
+        }
+
+        logger.info("Faculty {} applied {} approval decisions ({} requested)",
+                faculty.getUserId(), planned.size(), decisions.size());
+        return new ArrayList<>(results.values());
+    }
+
+    private void checkFaculty(User faculty) {
+        if (!"FACULTY".equals(faculty.getRole())) {
+            logger.error("User {} is not faculty and cannot approve appointments", faculty.getEmail());
+            throw new SecurityException("User is not faculty");
+        }
+    }
+
+    // Works out the appointment update for one decision
+    private Decision decide(DocumentSnapshot appointmentDoc, String facultyId, boolean approved,
+                            Map<String, UserDirectory.UserSummary> participantUsers) {
+        // Check if user is a participant
+        List<String> participants = (List<String>) appointmentDoc.get("participants");
+        if (participants == null || !participants.contains(facultyId)) {
+            logger.error("User {} is not a participant in appointment {}", facultyId, appointmentDoc.getId());
+            throw new SecurityException("User is not a participant in this appointment");
+        }
+
+        // Update faculty approval status
+        Map<String, Object> facultyApprovals = (Map<String, Object>) appointmentDoc.get("facultyApprovals");
+        facultyApprovals = facultyApprovals != null ? new HashMap<>(facultyApprovals) : new HashMap<>();
+        facultyApprovals.put(facultyId, approved);
+
+        Timestamp now = Timestamp.now();
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("facultyApprovals", facultyApprovals);
+        updates.put("updatedAt", now);
+        updates.put("status", statusAfter(participants, facultyApprovals, participantUsers));
+        return new Decision(appointmentDoc, facultyId, approved, updates, now);
+    }
+
+    // SCHEDULED once every faculty participant has approved, PENDING_APPROVAL until then
+    static String statusAfter(List<String> participants, Map<String, Object> facultyApprovals,
+                              Map<String, UserDirectory.UserSummary> participantUsers) {
+        for (String participantId : participants) {
+            UserDirectory.UserSummary participant = participantUsers.get(participantId);
+            if (participant != null && participant.isFaculty()
+                    && !Boolean.TRUE.equals(facultyApprovals.get(participantId))) {
+                return "PENDING_APPROVAL";
+            }
+        }
+        return "SCHEDULED";
+    }
+
+    // The approver's relationship, every linked user's timeline entry and the requester's notification
+    private void writeDependents(UpdateBuilder<?> writes, Decision decision, List<QueryDocumentSnapshot> links) {
+        String appointmentId = decision.appointmentDoc.getId();
+        List<String> linkedUsers = new ArrayList<>();
+        QueryDocumentSnapshot approverLink = null;
+        for (QueryDocumentSnapshot link : links) {
+            linkedUsers.add(link.getString("userId"));
+            if (approverLink == null && decision.facultyId.equals(link.getString("userId"))) {
+                approverLink = link;
+            }
+        }
+
+        if (approverLink != null) {
+            Map<String, Object> relationshipUpdates = new HashMap<>();
+            relationshipUpdates.put("status", decision.userStatus());
+            relationshipUpdates.put("hasApproved", decision.approved);
+            relationshipUpdates.put("updatedAt", decision.now);
+            writes.update(approverLink.getReference(), relationshipUpdates);
+
+            Map<String, Object> approverEntry = new HashMap<>();
+            approverEntry.put("userStatus", decision.userStatus());
+            approverEntry.put("hasApproved", decision.approved);
+            userTimelines.updateForUser(writes, decision.facultyId, appointmentId, approverEntry);
+        }
+        userTimelines.update(writes, linkedUsers, appointmentId, decision.updates);
+
+        String requesterId = decision.appointmentDoc.getString("createdBy");
+        if (requesterId != null) {
+            Map<String, Object> notification = new HashMap<>();
+            notification.put("appointmentId", appointmentId);
+            notification.put("type", "APPOINTMENT_UPDATE");
+            notification.put("title", "Appointment Update");
+            notification.put("message", "Your appointment '" + decision.appointmentDoc.getString("title")
+                    + "' has been " + decision.decisionName().toLowerCase());
+            // A retried transaction writes a fresh id; the one from the committed attempt is kept
+            decision.notificationId = notificationInbox.add(writes, requesterId, notification);
+        }
+    }
+
+    // In-memory indexes and the requester's push notification, once the decision is committed
+    private void afterCommit(Decision decision) {
+        DocumentSnapshot appointmentDoc = decision.appointmentDoc;
+        List<String> participants = (List<String>) appointmentDoc.get("participants");
+        conflictIndex.updateStatus(appointmentDoc.getId(), decision.newStatus);
+        facultyLeaderboard.onAppointmentChanged(appointmentDoc.getString("status"), participants,
+                decision.newStatus, participants);
+        notificationService.sendAppointmentUpdate(appointmentDoc.getString("createdBy"), appointmentDoc.getId(),
+                appointmentDoc.getString("title"), decision.decisionName(), decision.notificationId);
+    }
+
+    // One "in" query per 30 appointments, run concurrently
+    private Map<String, List<QueryDocumentSnapshot>> loadLinks(Set<String> appointmentIds)
+            throws ExecutionException, InterruptedException {
+        List<ApiFuture<QuerySnapshot>> futures = new ArrayList<>();
+        List<String> chunk = new ArrayList<>(IN_QUERY_LIMIT);
+        for (String appointmentId : appointmentIds) {
+            chunk.add(appointmentId);
+            if (chunk.size() == IN_QUERY_LIMIT) {
+                futures.add(firestore.collection("user_appointments").whereIn("appointmentId", new ArrayList<>(chunk)).get());
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            futures.add(firestore.collection("user_appointments").whereIn("appointmentId", chunk).get());
+        }
+
+        Map<String, List<QueryDocumentSnapshot>> linksByAppointment = new HashMap<>();
+        for (QuerySnapshot snapshot : ApiFutures.allAsList(futures).get()) {
+            for (QueryDocumentSnapshot link : snapshot.getDocuments()) {
+                linksByAppointment.computeIfAbsent(link.getString("appointmentId"), id -> new ArrayList<>()).add(link);
+            }
+        }
+        return linksByAppointment;
+    }
+
+    private static Map<String, Object> result(String appointmentId, String status, String userStatus) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("appointmentId", appointmentId);
+        result.put("status", status);
+        result.put("userStatus", userStatus);
+        return result;
+    }
+
+    private static Map<String, Object> error(String appointmentId, String error) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("appointmentId", appointmentId);
+        result.put("error", error);
+        return result;
+    }
+
+    private static final class Decision {
+        final DocumentSnapshot appointmentDoc;
+        final String facultyId;
+        final boolean approved;
+        final Map<String, Object> updates;
+        final String newStatus;
+        final Timestamp now;
+        String notificationId;
+
+        Decision(DocumentSnapshot appointmentDoc, String facultyId, boolean approved,
+                 Map<String, Object> updates, Timestamp now) {
+            this.appointmentDoc = appointmentDoc;
+            this.facultyId = facultyId;
+            this.approved = approved;
+            this.updates = updates;
+            this.newStatus = (String) updates.get("status");
+            this.now = now;
+        }
+
+        String userStatus() {
+            return approved ? "CONFIRMED" : "DENIED";
+        }
+
+        String decisionName() {
+            return approved ? "APPROVED" : "DENIED";
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.BulkWriterOptions;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Removes the user_appointments links and notifications of a deleted appointment.
+ *
+ * Deletes go through a rate-limited BulkWriter, which batches and parallelizes them
+ * and retries contention errors. In "tombstone" mode the request only records an
+ * appointment_tombstones document; the sweep runs on a background thread right away
+ * and a scheduled job retries any tombstone left behind (e.g. after a restart).
+ */
+@Service
+public class AppointmentCascadeDeleter {
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentCascadeDeleter.class);
+
+    static final String TOMBSTONES = "appointment_tombstones";
+    static final int PAGE_SIZE = 500;
+
+    private final Firestore firestore;
+    private final NotificationInbox notificationInbox;
+    private final boolean tombstoneMode;
+    private final int initialOpsPerSecond;
+    private final int maxOpsPerSecond;
+    private final ExecutorService sweeper;
+
+    private final AtomicInteger pendingSweeps = new AtomicInteger();
+    // Appointments queued or being swept, so the scheduled job does not queue them twice
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Counter deletedLinks;
+    private final Counter deletedNotifications;
+    private final Counter failedDeletes;
+    private final Timer cascadeTimer;
+
+    public AppointmentCascadeDeleter(Firestore firestore, NotificationInbox notificationInbox, MeterRegistry meterRegistry,
+                                     @Value("${app.appointments.delete-mode:sync}") String deleteMode,
+                                     @Value("${app.appointments.delete.initial-ops-per-second:100}") int initialOpsPerSecond,
+                                     @Value("${app.appointments.delete.max-ops-per-second:500}") int maxOpsPerSecond) {
+        this.firestore = firestore;
+        this.notificationInbox = notificationInbox;
+        this.tombstoneMode = "tombstone".equalsIgnoreCase(deleteMode);
+        this.initialOpsPerSecond = initialOpsPerSecond;
+        this.maxOpsPerSecond = maxOpsPerSecond;
+        this.sweeper = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "appointment-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("appointments.cascade.pending", pendingSweeps, AtomicInteger::get)
+                .description("Deleted appointments whose related documents are still being removed")
+                .register(meterRegistry);
+        this.deletedLinks = Counter.builder("appointments.cascade.deleted")
+                .tag("collection", "user_appointments").register(meterRegistry);
+        this.deletedNotifications = Counter.builder("appointments.cascade.deleted")
+                .tag("collection", "notifications").register(meterRegistry);
+        this.failedDeletes = Counter.builder("appointments.cascade.failed").register(meterRegistry);
+        this.cascadeTimer = Timer.builder("appointments.cascade.duration")
+                .description("Time to remove all documents related to one appointment")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    public boolean isTombstoneMode() {
+        return tombstoneMode;
+    }
+
+    /**
+     * Writes the tombstone before the appointment itself is deleted, so cleanup is never lost.
+     */
+    public void markDeleted(String appointmentId, String deletedBy) throws ExecutionException, InterruptedException {
+        Map<String, Object> tombstone = new HashMap<>();
+        tombstone.put("appointmentId", appointmentId);
+        tombstone.put("deletedBy", deletedBy);
+        tombstone.put("deletedAt", Timestamp.now());
+        firestore.collection(TOMBSTONES).document(appointmentId).set(tombstone).get();
+    }
+
+    /**
+     * Queues the sweep for an appointment that has been tombstoned and deleted.
+     */
+    public void sweepLater(String appointmentId) {
+        if (!inFlight.add(appointmentId)) {
+            return;
+        }
+        pendingSweeps.incrementAndGet();
+        sweeper.execute(() -> {
+            try {
+                sweep(appointmentId);
+            } finally {
+                inFlight.remove(appointmentId);
+                pendingSweeps.decrementAndGet();
+            }
+        });
+    }
+
+    // Picks up tombstones whose sweep did not finish, oldest first, skipping ones still queued
+    @Scheduled(fixedDelayString = "${app.appointments.delete.sweep-interval:PT5M}",
+               initialDelayString = "${app.appointments.delete.sweep-interval:PT5M}")
+    public void sweepTombstones() throws ExecutionException, InterruptedException {
+        if (!tombstoneMode) {
+            return;
+        }
+        var tombstones = firestore.collection(TOMBSTONES)
+                .orderBy("deletedAt")
+                .limit(PAGE_SIZE)
+                .get()
+                .get()
+                .getDocuments();
+        for (QueryDocumentSnapshot tombstone : tombstones) {
+            sweepLater(tombstone.getId());
+        }
+    }
+
+    private void sweep(String appointmentId) {
+        try {
+            // The appointment delete may have failed after the tombstone was written; leave its data alone
+            if (firestore.collection("appointments").document(appointmentId).get().get().exists()) {
+                logger.warn("Appointment {} still exists, dropping its tombstone", appointmentId);
+            } else {
+                deleteRelated(appointmentId);
+            }
+            firestore.collection(TOMBSTONES).document(appointmentId).delete().get();
+        } catch (Exception e) {
+            // The tombstone stays, so the scheduled sweep retries
+            logger.error("Error sweeping deleted appointment {}: {}", appointmentId, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes every user_appointments link and notification of the appointment and waits for
+     * completion. Throws if any delete failed, so a tombstone stays for the next sweep.
+     * Recipients who lose an unread notification get their unread counter reset.
+     */
+    public void deleteRelated(String appointmentId) throws ExecutionException, InterruptedException {
+        Timer.Sample sample = Timer.start();
+        BulkWriter bulkWriter = firestore.bulkWriter(BulkWriterOptions.builder()
+                .setInitialOpsPerSecond(initialOpsPerSecond)
+                .setMaxOpsPerSecond(maxOpsPerSecond)
+                .build());
+
+        List<ApiFuture<WriteResult>> deletes = new ArrayList<>();
+        Set<String> unreadRecipients = new HashSet<>();
+        int links;
+        int notifications;
+        try {
+            links = enqueueDeletes(bulkWriter, "user_appointments", appointmentId, deletes, deletedLinks, null);
+            notifications = enqueueDeletes(bulkWriter, "notifications", appointmentId, deletes, deletedNotifications,
+                    unreadRecipients);
+        } finally {
+            // Flushes everything enqueued and waits for it
+            bulkWriter.close();
+        }
+        // Fails with the first delete that did not go through
+        ApiFutures.allAsList(deletes).get();
+
+        // Reset rather than decrement: a notification marked read after the query was already uncounted
+        if (!unreadRecipients.isEmpty()) {
+            WriteBatch batch = firestore.batch();
+            unreadRecipients.forEach(recipientId -> notificationInbox.resetCounter(batch, recipientId));
+            batch.commit().get();
+        }
+
+        long elapsedNanos = sample.stop(cascadeTimer);
+        logger.info("Deleted {} user-appointment links and {} notifications for appointment {} in {} ms",
+                links, notifications, appointmentId, elapsedNanos / 1_000_000);
+    }
+
+    // Reads only document ids, page by page, and hands each one to the BulkWriter. With
+    // unreadRecipients set, also reads recipientId and read, collecting who had an unread one.
+    private int enqueueDeletes(BulkWriter bulkWriter, String collection, String appointmentId,
+                               List<ApiFuture<WriteResult>> deletes, Counter deletedCounter, Set<String> unreadRecipients)
+            throws ExecutionException, InterruptedException {
+        int enqueued = 0;
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            Query page = firestore.collection(collection)
+                    .whereEqualTo("appointmentId", appointmentId)
+                    .select(unreadRecipients != null
+                            ? new FieldPath[]{FieldPath.documentId(), FieldPath.of("recipientId"), FieldPath.of("read")}
+                            : new FieldPath[]{FieldPath.documentId()})
+                    .orderBy(FieldPath.documentId())
+                    .limit(PAGE_SIZE);
+            if (last != null) {
+                page = page.startAfter(last);
+            }
+            List<QueryDocumentSnapshot> docs = page.get().get().getDocuments();
+            for (QueryDocumentSnapshot doc : docs) {
+                if (unreadRecipients != null && doc.getString("recipientId") != null
+                        && !Boolean.TRUE.equals(doc.getBoolean("read"))) {
+                    unreadRecipients.add(doc.getString("recipientId"));
+                }
+                ApiFuture<WriteResult> delete = bulkWriter.delete(doc.getReference());
+                delete.addListener(() -> {
+                    try {
+                        delete.get();
+                        deletedCounter.increment();
+                    } catch (Exception e) {
+                        failedDeletes.increment();
+                        logger.error("Error deleting {}/{}: {}", collection, doc.getId(), e.getMessage());
+                    }
+                }, Runnable::run);
+                deletes.add(delete);
+            }
+            enqueued += docs.size();
+            if (docs.size() < PAGE_SIZE) {
+                return enqueued;
+            }
+            last = docs.get(docs.size() - 1);
+        }
+    }
+}
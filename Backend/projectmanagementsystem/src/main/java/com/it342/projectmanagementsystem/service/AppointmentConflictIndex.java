@@ -0,0 +1,356 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * In-memory index of each user's active (SCHEDULED / PENDING_APPROVAL) appointments.
+ *
+ * A user's intervals are loaded from Firestore the first time they are checked and then
+ * kept current by the appointment write paths, so a warm conflict check does no reads.
+ * Entries are reloaded after {@link #RELOAD_AFTER} to pick up writes made by other instances.
+ * {@link ChangeListener}s are told which time ranges changed, so derived views such as
+ * {@link AvailabilityIndex} can update just those ranges.
+ */
+@Service
+public class AppointmentConflictIndex {
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentConflictIndex.class);
+
+    static final Duration RELOAD_AFTER = Duration.ofMinutes(10);
+
+    private final Firestore firestore;
+    private final AppointmentHydrator appointmentHydrator;
+    private final UserDirectory userDirectory;
+
+    private final Map<String, UserIntervals> usersById = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> usersByAppointment = new ConcurrentHashMap<>();
+    private final Map<String, Reload> reloading = new ConcurrentHashMap<>();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public AppointmentConflictIndex(Firestore firestore, AppointmentHydrator appointmentHydrator, UserDirectory userDirectory) {
+        this.firestore = firestore;
+        this.appointmentHydrator = appointmentHydrator;
+        this.userDirectory = userDirectory;
+    }
+
+    /**
+     * Told when a user's busy time changes. A null range means the user's intervals were
+     * (re)loaded from Firestore and anything derived from them should be dropped.
+     */
+    public interface ChangeListener {
+        void onChanged(String userId, Long startMillis, Long endMillis);
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    static boolean isActive(String status) {
+        return "SCHEDULED".equals(status) || "PENDING_APPROVAL".equals(status);
+    }
+
+    /**
+     * Returns one conflict entry per existing appointment that overlaps [start, end)
+     * for any of the given users.
+     */
+    public List<Map<String, Object>> findConflicts(Timestamp start, Timestamp end, Collection<String> userIds)
+            throws ExecutionException, InterruptedException {
+        long startMillis = toMillis(start);
+        long endMillis = toMillis(end);
+
+        Map<String, Map<String, Object>> uniqueConflicts = new LinkedHashMap<>();
+        for (String userId : new LinkedHashSet<>(userIds)) {
+            UserIntervals intervals = load(userId);
+            List<Entry> overlapping;
+            synchronized (intervals) {
+                overlapping = intervals.index.overlapping(startMillis, endMillis);
+            }
+            for (Entry entry : overlapping) {
+                uniqueConflicts.computeIfAbsent(entry.appointmentId, id -> entry.toConflict());
+            }
+        }
+        return new ArrayList<>(uniqueConflicts.values());
+    }
+
+    /**
+     * Busy [start, end) millisecond ranges of the user's active appointments overlapping [fromMillis, toMillis).
+     */
+    public List<long[]> busyIntervals(String userId, long fromMillis, long toMillis)
+            throws ExecutionException, InterruptedException {
+        UserIntervals intervals = load(userId);
+        List<long[]> busy = new ArrayList<>();
+        synchronized (intervals) {
+            for (Entry entry : intervals.index.overlapping(fromMillis, toMillis)) {
+                busy.add(new long[]{toMillis(entry.start), toMillis(entry.end)});
+            }
+        }
+        return busy;
+    }
+
+    /**
+     * Records a created or changed appointment. userIds is everyone now linked to it: their
+     * loaded intervals get the new entry, and users that were linked before but are not any
+     * more lose it. Appointments that are no longer active are dropped from the index.
+     * A null creatorName keeps the name already indexed.
+     */
+    public void record(String appointmentId, String title, Timestamp start, Timestamp end, String status,
+                       String creatorName, Collection<String> userIds) {
+        if (!isActive(status) || start == null || end == null) {
+            remove(appointmentId);
+            return;
+        }
+        Set<String> linkedUsers = ConcurrentHashMap.newKeySet();
+        linkedUsers.addAll(userIds);
+        Set<String> previousUsers = usersByAppointment.put(appointmentId, linkedUsers);
+        if (previousUsers != null) {
+            for (String userId : previousUsers) {
+                if (!linkedUsers.contains(userId)) {
+                    apply(userId, appointmentId, null);
+                }
+            }
+        }
+        for (String userId : linkedUsers) {
+            String name = creatorName != null ? creatorName : indexedCreatorName(userId, appointmentId);
+            apply(userId, appointmentId, new Entry(appointmentId, title, start, end, status, name));
+        }
+    }
+
+    /**
+     * Applies a status change to an appointment that is already indexed.
+     */
+    public void updateStatus(String appointmentId, String status) {
+        Set<String> linkedUsers = usersByAppointment.get(appointmentId);
+        if (linkedUsers == null) {
+            return;
+        }
+        if (!isActive(status)) {
+            remove(appointmentId);
+            return;
+        }
+        for (String userId : linkedUsers) {
+            UserIntervals intervals = usersById.get(userId);
+            if (intervals == null) {
+                continue;
+            }
+            Entry current;
+            synchronized (intervals) {
+                current = intervals.index.get(appointmentId);
+            }
+            if (current != null) {
+                apply(userId, appointmentId, current.withStatus(status));
+            }
+        }
+    }
+
+    public void remove(String appointmentId) {
+        Set<String> linkedUsers = usersByAppointment.remove(appointmentId);
+        if (linkedUsers == null) {
+            return;
+        }
+        for (String userId : linkedUsers) {
+            apply(userId, appointmentId, null);
+        }
+    }
+
+    /**
+     * Puts (or, for a null entry, removes) one appointment in the user's intervals. A reload
+     * in progress for the user also gets the change, so it survives the reloaded intervals
+     * replacing the current ones.
+     */
+    private void apply(String userId, String appointmentId, Entry entry) {
+        Reload reload = reloading.get(userId);
+        if (reload != null) {
+            synchronized (reload) {
+                if (!reload.done) {
+                    reload.changes.put(appointmentId, entry);
+                }
+            }
+        }
+        UserIntervals intervals = usersById.get(userId);
+        if (intervals == null) {
+            return;
+        }
+        Entry previous;
+        synchronized (intervals) {
+            previous = intervals.index.get(appointmentId);
+            if (entry != null) {
+                intervals.index.put(appointmentId, toMillis(entry.start), toMillis(entry.end), entry);
+            } else {
+                intervals.index.remove(appointmentId);
+            }
+        }
+        if (previous != null) {
+            notifyChanged(userId, previous);
+        }
+        if (entry != null) {
+            notifyChanged(userId, entry);
+        }
+    }
+
+    private String indexedCreatorName(String userId, String appointmentId) {
+        UserIntervals intervals = usersById.get(userId);
+        if (intervals == null) {
+            return null;
+        }
+        synchronized (intervals) {
+            Entry current = intervals.index.get(appointmentId);
+            return current != null ? current.creatorName : null;
+        }
+    }
+
+    private UserIntervals load(String userId) throws ExecutionException, InterruptedException {
+        UserIntervals cached = usersById.get(userId);
+        if (cached != null && System.nanoTime() - cached.loadedAtNanos < RELOAD_AFTER.toNanos()) {
+            return cached;
+        }
+
+        // Registered before the reads, so changes recorded while they run are replayed on the result
+        Reload reload = new Reload();
+        reloading.put(userId, reload);
+        try {
+            var userAppointments = firestore.collection("user_appointments")
+                    .whereEqualTo("userId", userId)
+                    .get()
+                    .get()
+                    .getDocuments();
+
+            Set<String> appointmentIds = new HashSet<>();
+            for (var userAppointment : userAppointments) {
+                appointmentIds.add(userAppointment.getString("appointmentId"));
+            }
+            Map<String, DocumentSnapshot> appointmentDocs = appointmentHydrator.getAll("appointments", appointmentIds);
+
+            Map<String, DocumentSnapshot> activeDocs = new HashMap<>();
+            Set<String> creatorIds = new HashSet<>();
+            for (DocumentSnapshot appointmentDoc : appointmentDocs.values()) {
+                // Participant edits leave user_appointments links behind, so check the user is still on it
+                if (isActive(appointmentDoc.getString("status"))
+                        && isLinked(appointmentDoc, userId)
+                        && appointmentDoc.getTimestamp("startTime") != null
+                        && appointmentDoc.getTimestamp("endTime") != null) {
+                    activeDocs.put(appointmentDoc.getId(), appointmentDoc);
+                    creatorIds.add(appointmentDoc.getString("createdBy"));
+                }
+            }
+            Map<String, UserDirectory.UserSummary> creators = userDirectory.getAll(creatorIds);
+
+            UserIntervals intervals = new UserIntervals();
+            for (DocumentSnapshot appointmentDoc : activeDocs.values()) {
+                UserDirectory.UserSummary creator = creators.get(appointmentDoc.getString("createdBy"));
+                Entry entry = new Entry(
+                        appointmentDoc.getId(),
+                        appointmentDoc.getString("title"),
+                        appointmentDoc.getTimestamp("startTime"),
+                        appointmentDoc.getTimestamp("endTime"),
+                        appointmentDoc.getString("status"),
+                        creator != null ? creator.getDisplayName() : null);
+                intervals.index.put(entry.appointmentId, toMillis(entry.start), toMillis(entry.end), entry);
+                usersByAppointment.computeIfAbsent(entry.appointmentId, id -> ConcurrentHashMap.newKeySet()).add(userId);
+            }
+
+            synchronized (reload) {
+                reload.changes.forEach((appointmentId, entry) -> {
+                    if (entry != null) {
+                        intervals.index.put(appointmentId, toMillis(entry.start), toMillis(entry.end), entry);
+                    } else {
+                        intervals.index.remove(appointmentId);
+                    }
+                });
+                usersById.put(userId, intervals);
+                reload.done = true;
+            }
+            for (ChangeListener listener : listeners) {
+                listener.onChanged(userId, null, null);
+            }
+            logger.info("Loaded {} active appointments into the conflict index for user {}", intervals.index.size(), userId);
+            return intervals;
+        } finally {
+            reloading.remove(userId, reload);
+        }
+    }
+
+    private static boolean isLinked(DocumentSnapshot appointmentDoc, String userId) {
+        List<String> participants = (List<String>) appointmentDoc.get("participants");
+        return userId.equals(appointmentDoc.getString("createdBy")) || (participants != null && participants.contains(userId));
+    }
+
+    private void notifyChanged(String userId, Entry entry) {
+        for (ChangeListener listener : listeners) {
+            listener.onChanged(userId, toMillis(entry.start), toMillis(entry.end));
+        }
+    }
+
+    // Shape of one entry in a conflict-check response
+    static Map<String, Object> conflict(String appointmentId, String title, Timestamp start, Timestamp end,
+                                        String status, String creatorName) {
+        Map<String, Object> conflict = new HashMap<>();
+        conflict.put("conflictingAppointmentId", appointmentId);
+        conflict.put("conflictingTitle", title);
+        conflict.put("conflictingStartTime", start);
+        conflict.put("conflictingEndTime", end);
+        conflict.put("conflictingStatus", status);
+        if (creatorName != null) {
+            conflict.put("conflictingStudent", creatorName);
+        }
+        return conflict;
+    }
+
+    static long toMillis(Timestamp timestamp) {
+        return timestamp.getSeconds() * 1000 + timestamp.getNanos() / 1_000_000;
+    }
+
+    private static final class UserIntervals {
+        final IntervalIndex<Entry> index = new IntervalIndex<>();
+        final long loadedAtNanos = System.nanoTime();
+    }
+
+    // Changes recorded for a user while their intervals are being reloaded; null entries are removals
+    private static final class Reload {
+        final Map<String, Entry> changes = new HashMap<>();
+        boolean done;
+    }
+
+    private static final class Entry {
+        final String appointmentId;
+        final String title;
+        final Timestamp start;
+        final Timestamp end;
+        final String status;
+        final String creatorName;
+
+        Entry(String appointmentId, String title, Timestamp start, Timestamp end, String status, String creatorName) {
+            this.appointmentId = appointmentId;
+            this.title = title;
+            this.start = start;
+            this.end = end;
+            this.status = status;
+            this.creatorName = creatorName;
+        }
+
+        Entry withStatus(String newStatus) {
+            return new Entry(appointmentId, title, start, end, newStatus, creatorName);
+        }
+
+        Map<String, Object> toConflict() {
+            return conflict(appointmentId, title, start, end, status, creatorName);
+        }
+    }
+}
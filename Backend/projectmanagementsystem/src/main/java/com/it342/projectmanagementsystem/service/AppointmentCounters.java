@@ -0,0 +1,267 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.AggregateQuerySnapshot;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.UpdateBuilder;
+import com.google.cloud.firestore.WriteBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Appointment totals for the admin dashboard.
+ *
+ * By default every read runs Firestore count() aggregations, which are billed per
+ * index entry batch rather than per document and never download the appointments.
+ * With app.stats.counters.enabled=true the appointment create / status-change / delete
+ * paths go through this class instead, which applies the appointment write and a counter
+ * increment on a random shard of appointment_counters in one batch or transaction; reads then sum
+ * the shards in a single getAll no matter how large the collection is. Until shard 0 carries
+ * "seeded", reads recount once in a transaction and replace the shards with the result.
+ */
+@Service
+public class AppointmentCounters {
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentCounters.class);
+
+    static final String COLLECTION = "appointment_counters";
+
+    // Statuses reported by getAppointmentStats
+    static final List<String> REPORTED_STATUSES = List.of("PENDING_APPROVAL", "SCHEDULED", "COMPLETED");
+
+    private final Firestore firestore;
+    private final boolean enabled;
+    private final int shards;
+
+    public AppointmentCounters(Firestore firestore,
+                               @Value("${app.stats.counters.enabled:false}") boolean enabled,
+                               @Value("${app.stats.counters.shards:10}") int shards) {
+        this.firestore = firestore;
+        this.enabled = enabled;
+        this.shards = Math.max(1, shards);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds the appointment document to the caller's batch, plus a shard increment when
+     * counters are enabled, so the count commits together with the appointment.
+     */
+    public void create(WriteBatch batch, DocumentReference appointmentRef, Map<String, Object> appointmentData) {
+        batch.set(appointmentRef, appointmentData);
+        if (enabled) {
+            batch.set(randomShard(), counterDeltas(1, (String) appointmentData.get("status"), 1), SetOptions.merge());
+        }
+    }
+
+    /**
+     * Updates the appointment document. When counters are enabled and the update
+     * changes "status", the old status is read inside the transaction so concurrent
+     * approvals cannot move the same appointment between buckets twice.
+     * alsoWrite adds the caller's dependent writes (links, timelines) to the same commit.
+     */
+    public void update(DocumentReference appointmentRef, Map<String, Object> updates,
+                       Consumer<UpdateBuilder<?>> alsoWrite) throws ExecutionException, InterruptedException {
+        if (!enabled || !updates.containsKey("status")) {
+            WriteBatch batch = firestore.batch();
+            batch.update(appointmentRef, updates);
+            alsoWrite.accept(batch);
+            batch.commit().get();
+            return;
+        }
+        String newStatus = (String) updates.get("status");
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot current = transaction.get(appointmentRef).get();
+            String oldStatus = current.getString("status");
+            transaction.update(appointmentRef, updates);
+            alsoWrite.accept(transaction);
+            if (current.exists() && !newStatus.equals(oldStatus)) {
+                Map<String, Object> deltas = counterDeltas(0, oldStatus, -1);
+                ((Map<String, Object>) deltas.get("byStatus")).put(newStatus, FieldValue.increment(1));
+                transaction.set(randomShard(), deltas, SetOptions.merge());
+            }
+            return null;
+        }).get();
+    }
+
+    /**
+     * Adds one shard increment for status changes the caller already worked out, for
+     * batched writes whose appointment updates are guarded by update-time preconditions.
+     * Does nothing when counters are disabled.
+     */
+    public void adjustStatuses(UpdateBuilder<?> writes, Map<String, Long> statusDeltas) {
+        if (!enabled || statusDeltas.isEmpty()) {
+            return;
+        }
+        Map<String, Object> byStatus = new HashMap<>();
+        statusDeltas.forEach((status, delta) -> byStatus.put(status, FieldValue.increment(delta)));
+        Map<String, Object> deltas = new HashMap<>();
+        deltas.put("byStatus", byStatus);
+        writes.set(randomShard(), deltas, SetOptions.merge());
+    }
+
+    /**
+     * Deletes the appointment document, uncounting it when counters are enabled.
+     * alsoWrite adds the caller's dependent writes to the same commit.
+     */
+    public void delete(DocumentReference appointmentRef, Consumer<UpdateBuilder<?>> alsoWrite)
+            throws ExecutionException, InterruptedException {
+        if (!enabled) {
+            WriteBatch batch = firestore.batch();
+            batch.delete(appointmentRef);
+            alsoWrite.accept(batch);
+            batch.commit().get();
+            return;
+        }
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot current = transaction.get(appointmentRef).get();
+            transaction.delete(appointmentRef);
+            alsoWrite.accept(transaction);
+            if (current.exists()) {
+                transaction.set(randomShard(), counterDeltas(-1, current.getString("status"), -1), SetOptions.merge());
+            }
+            return null;
+        }).get();
+    }
+
+    /**
+     * Returns "total" plus one entry per reported status.
+     */
+    public Map<String, Long> read() throws ExecutionException, InterruptedException {
+        if (!enabled) {
+            return countByAggregation();
+        }
+
+        List<DocumentReference> shardRefs = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            shardRefs.add(shardRef(shard));
+        }
+        List<DocumentSnapshot> shardDocs = firestore.getAll(shardRefs.toArray(new DocumentReference[0])).get();
+
+        if (!Boolean.TRUE.equals(shardDocs.get(0).getBoolean("seeded"))) {
+            return seed(shardRefs);
+        }
+        return sum(shardDocs);
+    }
+
+    /**
+     * First read after enabling counters: starts the shards from count() aggregations, in
+     * one transaction with the shard reads. Increments committed before the seed are part
+     * of the same snapshot the aggregations count, so every shard is replaced and the
+     * totals land on shard 0 with the "seeded" marker; a concurrent increment makes the
+     * transaction retry.
+     */
+    private Map<String, Long> seed(List<DocumentReference> shardRefs) throws ExecutionException, InterruptedException {
+        return firestore.runTransaction(transaction -> {
+            List<DocumentSnapshot> shardDocs = transaction.getAll(shardRefs.toArray(new DocumentReference[0])).get();
+            if (Boolean.TRUE.equals(shardDocs.get(0).getBoolean("seeded"))) {
+                return sum(shardDocs);
+            }
+            Map<String, Long> counts = new HashMap<>();
+            counts.put("total", transaction.get(firestore.collection("appointments").count()).get().getCount());
+            Map<String, Object> byStatus = new HashMap<>();
+            for (String status : REPORTED_STATUSES) {
+                long count = transaction.get(firestore.collection("appointments").whereEqualTo("status", status).count())
+                        .get().getCount();
+                counts.put(status, count);
+                byStatus.put(status, count);
+            }
+            Map<String, Object> seed = new HashMap<>();
+            seed.put("total", counts.get("total"));
+            seed.put("byStatus", byStatus);
+            seed.put("seeded", true);
+            transaction.set(shardRefs.get(0), seed);
+            for (int shard = 1; shard < shardDocs.size(); shard++) {
+                if (shardDocs.get(shard).exists()) {
+                    transaction.delete(shardRefs.get(shard));
+                }
+            }
+            logger.info("Seeded appointment counters from count() aggregation: {}", counts);
+            return counts;
+        }).get();
+    }
+
+    private static Map<String, Long> sum(List<DocumentSnapshot> shardDocs) {
+        Map<String, Long> counts = emptyCounts();
+        for (DocumentSnapshot shardDoc : shardDocs) {
+            if (!shardDoc.exists()) {
+                continue;
+            }
+            counts.merge("total", longValue(shardDoc.get("total")), Long::sum);
+            Map<String, Object> byStatus = (Map<String, Object>) shardDoc.get("byStatus");
+            if (byStatus != null) {
+                for (String status : REPORTED_STATUSES) {
+                    counts.merge(status, longValue(byStatus.get(status)), Long::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private Map<String, Long> countByAggregation() throws ExecutionException, InterruptedException {
+        List<ApiFuture<AggregateQuerySnapshot>> futures = new ArrayList<>();
+        futures.add(firestore.collection("appointments").count().get());
+        for (String status : REPORTED_STATUSES) {
+            futures.add(firestore.collection("appointments").whereEqualTo("status", status).count().get());
+        }
+        List<AggregateQuerySnapshot> results = ApiFutures.allAsList(futures).get();
+
+        Map<String, Long> counts = new HashMap<>();
+        counts.put("total", results.get(0).getCount());
+        for (int i = 0; i < REPORTED_STATUSES.size(); i++) {
+            counts.put(REPORTED_STATUSES.get(i), results.get(i + 1).getCount());
+        }
+        return counts;
+    }
+
+    // One merge-write per shard; FieldValue.increment is applied server-side
+    private static Map<String, Object> counterDeltas(long totalDelta, String status, long statusDelta) {
+        Map<String, Object> fields = new HashMap<>();
+        if (totalDelta != 0) {
+            fields.put("total", FieldValue.increment(totalDelta));
+        }
+        Map<String, Object> byStatus = new HashMap<>();
+        if (status != null) {
+            byStatus.put(status, FieldValue.increment(statusDelta));
+        }
+        fields.put("byStatus", byStatus);
+        return fields;
+    }
+
+    private DocumentReference randomShard() {
+        return shardRef(ThreadLocalRandom.current().nextInt(shards));
+    }
+
+    private DocumentReference shardRef(int shard) {
+        return firestore.collection(COLLECTION).document("shard_" + shard);
+    }
+
+    private static Map<String, Long> emptyCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        counts.put("total", 0L);
+        for (String status : REPORTED_STATUSES) {
+            counts.put(status, 0L);
+        }
+        return counts;
+    }
+
+    private static long longValue(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+}
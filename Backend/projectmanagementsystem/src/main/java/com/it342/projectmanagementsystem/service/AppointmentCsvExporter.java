@@ -0,0 +1,198 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Writes a user's appointments as CSV straight to an output stream.
+ *
+ * user_appointments is read one page at a time and each page's appointments are
+ * fetched with batched getAll calls, so memory use depends on the page size rather
+ * than on how many rows are exported. Participant names come from the UserDirectory.
+ */
+@Service
+public class AppointmentCsvExporter {
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentCsvExporter.class);
+
+    static final int PAGE_SIZE = 200;
+
+    static final String HEADER = "Title,Description,Start Time,End Time,Status,Participants,Tags\n";
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.of("Asia/Manila"));
+
+    private final Firestore firestore;
+    private final AppointmentHydrator appointmentHydrator;
+    private final UserDirectory userDirectory;
+
+    public AppointmentCsvExporter(Firestore firestore, AppointmentHydrator appointmentHydrator, UserDirectory userDirectory) {
+        this.firestore = firestore;
+        this.appointmentHydrator = appointmentHydrator;
+        this.userDirectory = userDirectory;
+    }
+
+    /**
+     * Streams the CSV for every appointment of the user that overlaps [start, end].
+     * Either bound may be null. The stream is flushed after each page.
+     */
+    public void write(String userId, Timestamp start, Timestamp end, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write(HEADER);
+
+        int written = 0;
+        int skipped = 0;
+        int pages = 0;
+        try {
+            QueryDocumentSnapshot lastLink = null;
+            while (true) {
+                Query page = firestore.collection("user_appointments")
+                        .whereEqualTo("userId", userId)
+                        .orderBy(FieldPath.documentId())
+                        .limit(PAGE_SIZE);
+                if (lastLink != null) {
+                    page = page.startAfter(lastLink);
+                }
+                List<QueryDocumentSnapshot> links = page.get().get().getDocuments();
+                if (links.isEmpty()) {
+                    break;
+                }
+                pages++;
+                lastLink = links.get(links.size() - 1);
+
+                Set<String> appointmentIds = new LinkedHashSet<>();
+                for (QueryDocumentSnapshot link : links) {
+                    appointmentIds.add(link.getString("appointmentId"));
+                }
+                Map<String, DocumentSnapshot> appointmentDocs = appointmentHydrator.getAll("appointments", appointmentIds);
+
+                Set<String> pageParticipants = new LinkedHashSet<>();
+                for (DocumentSnapshot appointmentDoc : appointmentDocs.values()) {
+                    List<String> participantIds = (List<String>) appointmentDoc.get("participants");
+                    if (participantIds != null) {
+                        pageParticipants.addAll(participantIds);
+                    }
+                }
+                Map<String, UserDirectory.UserSummary> participants = userDirectory.getAll(pageParticipants);
+
+                for (String appointmentId : appointmentIds) {
+                    DocumentSnapshot appointmentDoc = appointmentDocs.get(appointmentId);
+                    if (appointmentDoc == null) {
+                        logger.warn("Appointment {} not found", appointmentId);
+                        continue;
+                    }
+                    if (!inRange(appointmentDoc, start, end)) {
+                        skipped++;
+                        continue;
+                    }
+                    writeRow(writer, appointmentDoc, participants);
+                    written++;
+                }
+
+                writer.flush();
+                if (links.size() < PAGE_SIZE) {
+                    break;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to read appointments for export", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while exporting appointments", e);
+        }
+
+        writer.flush();
+        logger.info("Exported {} appointments for user {} in {} pages, skipped {} outside the date range",
+                written, userId, pages, skipped);
+    }
+
+    // Keep appointments that overlap the requested range; rows without times are left out
+    private static boolean inRange(DocumentSnapshot appointmentDoc, Timestamp start, Timestamp end) {
+        Timestamp appointmentStart = appointmentDoc.getTimestamp("startTime");
+        Timestamp appointmentEnd = appointmentDoc.getTimestamp("endTime");
+        if (appointmentStart == null || appointmentEnd == null) {
+            return false;
+        }
+        if (end != null && appointmentStart.compareTo(end) > 0) {
+            return false;
+        }
+        return start == null || appointmentEnd.compareTo(start) >= 0;
+    }
+
+    private static void writeRow(Writer writer, DocumentSnapshot appointmentDoc, Map<String, UserDirectory.UserSummary> participantNames)
+            throws IOException {
+        StringBuilder participants = new StringBuilder();
+        List<String> participantIds = (List<String>) appointmentDoc.get("participants");
+        if (participantIds != null) {
+            for (String participantId : participantIds) {
+                UserDirectory.UserSummary participant = participantNames.get(participantId);
+                if (participant != null) {
+                    if (participants.length() > 0) {
+                        participants.append(", ");
+                    }
+                    participants.append(participant.getDisplayName());
+                }
+            }
+        }
+
+        StringBuilder tagNames = new StringBuilder();
+        List<Object> tags = (List<Object>) appointmentDoc.get("tags");
+        if (tags != null) {
+            for (Object tagObj : tags) {
+                if (tagObj instanceof Map) {
+                    Object tagName = ((Map<String, Object>) tagObj).get("name");
+                    if (tagName != null) {
+                        if (tagNames.length() > 0) {
+                            tagNames.append(", ");
+                        }
+                        tagNames.append(tagName);
+                    }
+                }
+            }
+        }
+
+        writeField(writer, appointmentDoc.getString("title"));
+        writer.write(',');
+        writeField(writer, appointmentDoc.getString("description"));
+        writer.write(',');
+        writeField(writer, FORMATTER.format(appointmentDoc.getTimestamp("startTime").toDate().toInstant()));
+        writer.write(',');
+        writeField(writer, FORMATTER.format(appointmentDoc.getTimestamp("endTime").toDate().toInstant()));
+        writer.write(',');
+        writeField(writer, appointmentDoc.getString("status"));
+        writer.write(',');
+        writeField(writer, participants.toString());
+        writer.write(',');
+        writeField(writer, tagNames.toString());
+        writer.write('\n');
+    }
+
+    // Always quoted, embedded quotes doubled, null written as an empty field
+    private static void writeField(Writer writer, String field) throws IOException {
+        writer.write('"');
+        if (field != null) {
+            writer.write(field.replace("\"", "\"\""));
+        }
+        writer.write('"');
+    }
+}
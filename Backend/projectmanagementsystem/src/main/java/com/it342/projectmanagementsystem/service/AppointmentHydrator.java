@@ -0,0 +1,173 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.it342.projectmanagementsystem.model.Appointment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Turns user_appointments links into Appointment responses using batched
+ * Firestore.getAll reads instead of one blocking get per document.
+ */
+@Service
+public class AppointmentHydrator {
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentHydrator.class);
+
+    // Documents per getAll call; chunks are issued concurrently
+    static final int GET_ALL_BATCH_SIZE = 100;
+
+    private final Firestore firestore;
+    private final UserDirectory userDirectory;
+    private final Timer hydrationTimer;
+    private final Counter roundTrips;
+
+    public AppointmentHydrator(Firestore firestore, UserDirectory userDirectory, MeterRegistry meterRegistry) {
+        this.firestore = firestore;
+        this.userDirectory = userDirectory;
+        this.hydrationTimer = Timer.builder("appointments.hydration")
+                .description("Time spent hydrating appointment lists from user_appointments links")
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+        this.roundTrips = Counter.builder("appointments.hydration.round_trips")
+                .description("Firestore getAll calls issued while hydrating appointments")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Fetches the given documents from a collection in chunked, concurrent getAll calls.
+     * Duplicate and blank ids are ignored; missing documents are left out of the result.
+     */
+    public Map<String, DocumentSnapshot> getAll(String collection, Collection<String> ids)
+            throws ExecutionException, InterruptedException {
+        Set<String> uniqueIds = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id != null && !id.isEmpty()) {
+                uniqueIds.add(id);
+            }
+        }
+
+        Map<String, DocumentSnapshot> documents = new HashMap<>();
+        if (uniqueIds.isEmpty()) {
+            return documents;
+        }
+
+        List<ApiFuture<List<DocumentSnapshot>>> futures = new ArrayList<>();
+        List<DocumentReference> chunk = new ArrayList<>(GET_ALL_BATCH_SIZE);
+        for (String id : uniqueIds) {
+            chunk.add(firestore.collection(collection).document(id));
+            if (chunk.size() == GET_ALL_BATCH_SIZE) {
+                futures.add(firestore.getAll(chunk.toArray(new DocumentReference[0])));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            futures.add(firestore.getAll(chunk.toArray(new DocumentReference[0])));
+        }
+        roundTrips.increment(futures.size());
+
+        for (List<DocumentSnapshot> snapshots : ApiFutures.allAsList(futures).get()) {
+            for (DocumentSnapshot snapshot : snapshots) {
+                if (snapshot.exists()) {
+                    documents.put(snapshot.getId(), snapshot);
+                }
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Builds the appointment list for a user from their user_appointments links.
+     * Appointments are fetched in one pass; creator names come from the UserDirectory.
+     *
+     * @param userRole when "FACULTY", hasApproved is filled from facultyApprovals
+     */
+    public List<Appointment> hydrate(String userId, String userRole, List<QueryDocumentSnapshot> userAppointments)
+            throws ExecutionException, InterruptedException {
+        Timer.Sample sample = Timer.start();
+
+        Set<String> appointmentIds = new LinkedHashSet<>();
+        for (var userAppointment : userAppointments) {
+            appointmentIds.add(userAppointment.getString("appointmentId"));
+        }
+        Map<String, DocumentSnapshot> appointmentDocs = getAll("appointments", appointmentIds);
+
+        // Creator names come from the user directory, so repeat creators cost nothing
+        Set<String> creatorIds = new LinkedHashSet<>();
+        for (DocumentSnapshot appointmentDoc : appointmentDocs.values()) {
+            creatorIds.add(appointmentDoc.getString("createdBy"));
+        }
+        Map<String, UserDirectory.UserSummary> creators = userDirectory.getAll(creatorIds);
+
+        List<Appointment> appointments = new ArrayList<>();
+        for (var userAppointment : userAppointments) {
+            String appointmentId = userAppointment.getString("appointmentId");
+            DocumentSnapshot appointmentDoc = appointmentDocs.get(appointmentId);
+            if (appointmentDoc == null) {
+                continue;
+            }
+
+            UserDirectory.UserSummary creator = creators.get(appointmentDoc.getString("createdBy"));
+            Appointment appointment = toAppointment(appointmentDoc,
+                    creator != null ? creator.getDisplayName() : UserDirectory.UserSummary.UNKNOWN_NAME);
+
+            // Add user-specific appointment data
+            appointment.setUserRole(userAppointment.getString("role"));
+            appointment.setUserStatus(userAppointment.getString("status"));
+
+            // For faculty, add approval status if applicable
+            if ("FACULTY".equals(userRole)) {
+                Map<String, Object> facultyApprovals = (Map<String, Object>) appointmentDoc.get("facultyApprovals");
+                if (facultyApprovals != null) {
+                    Boolean hasApproved = (Boolean) facultyApprovals.get(userId);
+                    appointment.setHasApproved(hasApproved != null ? hasApproved : false);
+                }
+            }
+
+            appointments.add(appointment);
+        }
+
+        long elapsedNanos = sample.stop(hydrationTimer);
+        logger.info("Hydrated {} appointments for user {} in {} getAll round trips ({} ms)",
+                appointments.size(), userId, batchCount(appointmentIds.size()), elapsedNanos / 1_000_000);
+        return appointments;
+    }
+
+    // Fields shared by every appointment response; callers add the per-user fields
+    static Appointment toAppointment(DocumentSnapshot appointmentDoc, String creatorName) {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(appointmentDoc.getId());
+        appointment.setTitle(appointmentDoc.getString("title"));
+        appointment.setDescription(appointmentDoc.getString("description"));
+        appointment.setStartTime(appointmentDoc.getTimestamp("startTime"));
+        appointment.setEndTime(appointmentDoc.getTimestamp("endTime"));
+        appointment.setCreatedBy(appointmentDoc.getString("createdBy"));
+        appointment.setCreatorName(creatorName);
+        appointment.setParticipants((List<String>) appointmentDoc.get("participants"));
+        appointment.setStatus(appointmentDoc.getString("status"));
+        appointment.setCreatedAt(appointmentDoc.getTimestamp("createdAt"));
+        appointment.setUpdatedAt(appointmentDoc.getTimestamp("updatedAt"));
+        return appointment;
+    }
+
+    private static int batchCount(int documents) {
+        return (documents + GET_ALL_BATCH_SIZE - 1) / GET_ALL_BATCH_SIZE;
+    }
+}
@@ -0,0 +1,455 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.it342.projectmanagementsystem.model.Appointment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Optional in-memory materialized view of appointments and user_appointments.
+ *
+ * When app.read-model.enabled is set, snapshot listeners on both collections keep compact
+ * copies of every document, indexed by appointment id, by linked user and by status.
+ * Appointment lists, stats and conflict checks are then answered from memory once the
+ * initial snapshots have arrived; until then, or after a listener error, callers fall
+ * back to Firestore. Each subscription has a generation number, and callbacks from a
+ * replaced subscription are ignored.
+ *
+ * Staleness is reported as the delay between a change's server read time and it being
+ * applied, plus the age of the last applied snapshot; memory as entry counts and an
+ * estimated byte size.
+ */
+@Service
+public class AppointmentReadModel {
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentReadModel.class);
+
+    private final Firestore firestore;
+    private final UserDirectory userDirectory;
+    private final boolean enabled;
+
+    // Guarded by this
+    private final Map<String, AppointmentView> appointments = new HashMap<>();
+    private final Map<String, LinkView> links = new HashMap<>();
+    // userId -> that user's links keyed by appointment id, the order every appointment list pages in
+    private final Map<String, NavigableMap<String, LinkView>> linksByUser = new HashMap<>();
+    private final Map<String, Set<String>> byStatus = new HashMap<>();
+    private long subscription;
+
+    private final List<ListenerRegistration> listeners = new ArrayList<>();
+    private volatile boolean appointmentsLoaded;
+    private volatile boolean linksLoaded;
+    private volatile boolean failed;
+    private volatile long lastAppliedAtMillis;
+    private final AtomicLong estimatedBytes = new AtomicLong();
+
+    private final Timer lag;
+    private final Counter listenerErrors;
+
+    public AppointmentReadModel(Firestore firestore, UserDirectory userDirectory, MeterRegistry meterRegistry,
+                                @Value("${app.read-model.enabled:false}") boolean enabled) {
+        this.firestore = firestore;
+        this.userDirectory = userDirectory;
+        this.enabled = enabled;
+
+        this.lag = Timer.builder("appointments.read_model.lag")
+                .description("Delay between a change's server read time and it being applied in memory")
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+        this.listenerErrors = Counter.builder("appointments.read_model.listener_errors").register(meterRegistry);
+        Gauge.builder("appointments.read_model.staleness", this, model -> model.lastAppliedAtMillis == 0
+                        ? Double.NaN : (System.currentTimeMillis() - model.lastAppliedAtMillis) / 1000.0)
+                .description("Seconds since the last snapshot was applied")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("appointments.read_model.entries", this, model -> model.count(model.appointments))
+                .tag("kind", "appointments").register(meterRegistry);
+        Gauge.builder("appointments.read_model.entries", this, model -> model.count(model.links))
+                .tag("kind", "user_appointments").register(meterRegistry);
+        Gauge.builder("appointments.read_model.memory", estimatedBytes, AtomicLong::get)
+                .description("Estimated heap held by the materialized view")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("appointments.read_model.ready", this, model -> model.isReady() ? 1 : 0).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            subscribe();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        listeners.forEach(ListenerRegistration::remove);
+        listeners.clear();
+    }
+
+    // A failed listener is not restarted by the client library; subscribe again from scratch
+    @Scheduled(fixedDelayString = "${app.read-model.resubscribe-interval:PT1M}")
+    public void resubscribeIfFailed() {
+        if (enabled && failed) {
+            logger.info("Resubscribing appointment read model after a listener error");
+            stop();
+            subscribe();
+        }
+    }
+
+    /**
+     * True when the view is complete and current enough to answer reads.
+     */
+    public boolean isReady() {
+        return enabled && !failed && appointmentsLoaded && linksLoaded;
+    }
+
+    /**
+     * One page of the user's appointments, in the same order and with the same tokens as
+     * the timeline and Firestore-backed listings (appointment id).
+     */
+    public PageCursor.Page<Appointment> userAppointments(String userId, String userRole, PageCursor cursor)
+            throws ExecutionException, InterruptedException {
+        List<LinkView> pageLinks;
+        List<AppointmentView> pageAppointments = new ArrayList<>();
+        String nextPageToken;
+        synchronized (this) {
+            PageCursor.Page<LinkView> linkPage = cursor.page(linksByUser.getOrDefault(userId, new TreeMap<>()));
+            pageLinks = linkPage.getItems();
+            nextPageToken = linkPage.getNextPageToken();
+            for (LinkView link : pageLinks) {
+                pageAppointments.add(appointments.get(link.appointmentId));
+            }
+        }
+
+        Set<String> creatorIds = new LinkedHashSet<>();
+        for (AppointmentView view : pageAppointments) {
+            if (view != null) {
+                creatorIds.add(view.createdBy);
+            }
+        }
+        Map<String, UserDirectory.UserSummary> creators = userDirectory.getAll(creatorIds);
+
+        List<Appointment> result = new ArrayList<>(pageLinks.size());
+        for (int i = 0; i < pageLinks.size(); i++) {
+            AppointmentView view = pageAppointments.get(i);
+            if (view == null) {
+                continue;
+            }
+            LinkView link = pageLinks.get(i);
+            UserDirectory.UserSummary creator = creators.get(view.createdBy);
+            Appointment appointment = view.toAppointment(
+                    creator != null ? creator.getDisplayName() : UserDirectory.UserSummary.UNKNOWN_NAME);
+            appointment.setUserRole(link.role);
+            appointment.setUserStatus(link.status);
+            if ("FACULTY".equals(userRole) && view.facultyApprovals != null) {
+                Boolean hasApproved = (Boolean) view.facultyApprovals.get(userId);
+                appointment.setHasApproved(hasApproved != null ? hasApproved : false);
+            }
+            result.add(appointment);
+        }
+        return new PageCursor.Page<>(result, nextPageToken);
+    }
+
+    /**
+     * Appointment counts keyed like AppointmentCounters.read(): "total" plus one entry per status.
+     */
+    public synchronized Map<String, Long> counts() {
+        Map<String, Long> counts = new HashMap<>();
+        counts.put("total", (long) appointments.size());
+        for (String status : AppointmentCounters.REPORTED_STATUSES) {
+            counts.put(status, (long) byStatus.getOrDefault(status, Set.of()).size());
+        }
+        return counts;
+    }
+
+    /**
+     * Same result as AppointmentConflictIndex.findConflicts, computed from the view.
+     */
+    public List<Map<String, Object>> findConflicts(Timestamp start, Timestamp end, Collection<String> userIds)
+            throws ExecutionException, InterruptedException {
+        long startMillis = AppointmentConflictIndex.toMillis(start);
+        long endMillis = AppointmentConflictIndex.toMillis(end);
+
+        Map<String, AppointmentView> overlapping = new LinkedHashMap<>();
+        synchronized (this) {
+            for (String userId : new LinkedHashSet<>(userIds)) {
+                for (LinkView link : linksByUser.getOrDefault(userId, new TreeMap<>()).values()) {
+                    AppointmentView view = appointments.get(link.appointmentId);
+                    if (view != null && view.overlaps(startMillis, endMillis)) {
+                        overlapping.putIfAbsent(view.appointmentId, view);
+                    }
+                }
+            }
+        }
+
+        Set<String> creatorIds = new HashSet<>();
+        overlapping.values().forEach(view -> creatorIds.add(view.createdBy));
+        Map<String, UserDirectory.UserSummary> creators = userDirectory.getAll(creatorIds);
+
+        List<Map<String, Object>> conflicts = new ArrayList<>();
+        for (AppointmentView view : overlapping.values()) {
+            UserDirectory.UserSummary creator = creators.get(view.createdBy);
+            conflicts.add(AppointmentConflictIndex.conflict(view.appointmentId, view.title, view.startTime,
+                    view.endTime, view.status, creator != null ? creator.getDisplayName() : null));
+        }
+        return conflicts;
+    }
+
+    private synchronized void subscribe() {
+        long generation = ++subscription;
+        failed = false;
+        appointmentsLoaded = false;
+        linksLoaded = false;
+        listeners.add(firestore.collection("appointments").addSnapshotListener((snapshot, error) ->
+                onSnapshot(generation, snapshot, error, "appointments", () -> appointmentsLoaded,
+                        this::clearAppointments, this::applyAppointment, () -> appointmentsLoaded = true)));
+        listeners.add(firestore.collection("user_appointments").addSnapshotListener((snapshot, error) ->
+                onSnapshot(generation, snapshot, error, "user_appointments", () -> linksLoaded,
+                        this::clearLinks, this::applyLink, () -> linksLoaded = true)));
+    }
+
+    // The first snapshot after subscribing lists every document, so earlier state is dropped first.
+    // Callbacks still queued for an earlier subscription are dropped under the lock.
+    private void onSnapshot(long generation, QuerySnapshot snapshot, Exception error, String name,
+                            BooleanSupplier loaded, Runnable clear, Consumer<DocumentChange> apply,
+                            Runnable markLoaded) {
+        boolean initial;
+        synchronized (this) {
+            if (generation != subscription) {
+                return;
+            }
+            if (error != null) {
+                failed = true;
+                listenerErrors.increment();
+                logger.error("Read model listener on {} failed: {}", name, error.getMessage());
+                return;
+            }
+            initial = !loaded.getAsBoolean();
+            if (initial) {
+                clear.run();
+            }
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                apply.accept(change);
+            }
+            if (initial) {
+                markLoaded.run();
+            }
+        }
+        if (initial) {
+            logger.info("Read model loaded {} {} documents", snapshot.size(), name);
+        }
+        lastAppliedAtMillis = System.currentTimeMillis();
+        Timestamp readTime = snapshot.getReadTime();
+        long lagMillis = lastAppliedAtMillis - (readTime.getSeconds() * 1000 + readTime.getNanos() / 1_000_000);
+        lag.record(Math.max(0, lagMillis), TimeUnit.MILLISECONDS);
+    }
+
+    // Caller holds the lock
+    private void applyAppointment(DocumentChange change) {
+        DocumentSnapshot doc = change.getDocument();
+        AppointmentView previous = appointments.remove(doc.getId());
+        if (previous != null) {
+            unindex(previous);
+        }
+        if (change.getType() != DocumentChange.Type.REMOVED) {
+            AppointmentView view = AppointmentView.from(doc);
+            appointments.put(view.appointmentId, view);
+            index(view);
+        }
+    }
+
+    // Caller holds the lock
+    private void applyLink(DocumentChange change) {
+        DocumentSnapshot doc = change.getDocument();
+        LinkView previous = links.remove(doc.getId());
+        if (previous != null) {
+            NavigableMap<String, LinkView> userLinks = linksByUser.get(previous.userId);
+            if (userLinks != null) {
+                userLinks.remove(previous.appointmentId, previous);
+                if (userLinks.isEmpty()) {
+                    linksByUser.remove(previous.userId);
+                }
+            }
+            estimatedBytes.addAndGet(-previous.estimatedBytes());
+        }
+        if (change.getType() != DocumentChange.Type.REMOVED) {
+            LinkView link = LinkView.from(doc);
+            if (link.userId == null || link.appointmentId == null) {
+                return;
+            }
+            links.put(link.linkId, link);
+            linksByUser.computeIfAbsent(link.userId, id -> new TreeMap<>()).put(link.appointmentId, link);
+            estimatedBytes.addAndGet(link.estimatedBytes());
+        }
+    }
+
+    private void clearAppointments() {
+        appointments.values().forEach(view -> estimatedBytes.addAndGet(-view.estimatedBytes()));
+        appointments.clear();
+        byStatus.clear();
+    }
+
+    private void clearLinks() {
+        links.values().forEach(link -> estimatedBytes.addAndGet(-link.estimatedBytes()));
+        links.clear();
+        linksByUser.clear();
+    }
+
+    private void index(AppointmentView view) {
+        if (view.status != null) {
+            byStatus.computeIfAbsent(view.status, status -> new HashSet<>()).add(view.appointmentId);
+        }
+        estimatedBytes.addAndGet(view.estimatedBytes());
+    }
+
+    private void unindex(AppointmentView view) {
+        if (view.status != null) {
+            removeFrom(byStatus, view.status, view.appointmentId);
+        }
+        estimatedBytes.addAndGet(-view.estimatedBytes());
+    }
+
+    private static void removeFrom(Map<String, Set<String>> index, String key, String appointmentId) {
+        Set<String> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(appointmentId);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private synchronized int count(Map<String, ?> entries) {
+        return entries.size();
+    }
+
+    // Rough heap cost of a string field: object headers plus two bytes per char
+    private static long sizeOf(String value) {
+        return value == null ? 0 : 56 + 2L * value.length();
+    }
+
+    private static final class AppointmentView {
+        final String appointmentId;
+        final String title;
+        final String description;
+        final Timestamp startTime;
+        final Timestamp endTime;
+        final String createdBy;
+        final List<String> participants;
+        final String status;
+        final Timestamp createdAt;
+        final Timestamp updatedAt;
+        final Map<String, Object> facultyApprovals;
+
+        AppointmentView(DocumentSnapshot doc) {
+            this.appointmentId = doc.getId();
+            this.title = doc.getString("title");
+            this.description = doc.getString("description");
+            this.startTime = doc.getTimestamp("startTime");
+            this.endTime = doc.getTimestamp("endTime");
+            this.createdBy = doc.getString("createdBy");
+            this.participants = (List<String>) doc.get("participants");
+            this.status = doc.getString("status");
+            this.createdAt = doc.getTimestamp("createdAt");
+            this.updatedAt = doc.getTimestamp("updatedAt");
+            this.facultyApprovals = (Map<String, Object>) doc.get("facultyApprovals");
+        }
+
+        static AppointmentView from(DocumentSnapshot doc) {
+            return new AppointmentView(doc);
+        }
+
+        // Same rule as the conflict index: active appointments overlapping [start, end)
+        boolean overlaps(long startMillis, long endMillis) {
+            return AppointmentConflictIndex.isActive(status) && startTime != null && endTime != null
+                    && AppointmentConflictIndex.toMillis(startTime) < endMillis
+                    && AppointmentConflictIndex.toMillis(endTime) > startMillis;
+        }
+
+        // Mirrors AppointmentHydrator.toAppointment
+        Appointment toAppointment(String creatorName) {
+            Appointment appointment = new Appointment();
+            appointment.setAppointmentId(appointmentId);
+            appointment.setTitle(title);
+            appointment.setDescription(description);
+            appointment.setStartTime(startTime);
+            appointment.setEndTime(endTime);
+            appointment.setCreatedBy(createdBy);
+            appointment.setCreatorName(creatorName);
+            appointment.setParticipants(participants);
+            appointment.setStatus(status);
+            appointment.setCreatedAt(createdAt);
+            appointment.setUpdatedAt(updatedAt);
+            return appointment;
+        }
+
+        long estimatedBytes() {
+            long bytes = 96 + sizeOf(appointmentId) + sizeOf(title) + sizeOf(description) + sizeOf(createdBy)
+                    + sizeOf(status) + 4 * 32;
+            if (participants != null) {
+                for (String participantId : participants) {
+                    bytes += 8 + sizeOf(participantId);
+                }
+            }
+            if (facultyApprovals != null) {
+                bytes += 48L * facultyApprovals.size();
+            }
+            return bytes;
+        }
+    }
+
+    private static final class LinkView {
+        final String linkId;
+        final String userId;
+        final String appointmentId;
+        final String role;
+        final String status;
+
+        LinkView(String linkId, String userId, String appointmentId, String role, String status) {
+            this.linkId = linkId;
+            this.userId = userId;
+            this.appointmentId = appointmentId;
+            this.role = role;
+            this.status = status;
+        }
+
+        static LinkView from(DocumentSnapshot doc) {
+            return new LinkView(doc.getId(), doc.getString("userId"), doc.getString("appointmentId"),
+                    doc.getString("role"), doc.getString("status"));
+        }
+
+        long estimatedBytes() {
+            return 40 + sizeOf(linkId) + sizeOf(userId) + sizeOf(appointmentId) + sizeOf(role) + sizeOf(status);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.it342.projectmanagementsystem.model.Appointment;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search over appointment title, description, creator name and tags, using an
+ * embedded Lucene index on local disk.
+ *
+ * The index is only a cache: it is recreated from Firestore on every startup, in a
+ * per-process directory under app.search.index-dir so instances sharing a host never
+ * contend for one write lock, and the appointment mutation paths queue re-indexing of the
+ * appointments they touch. All index writes run on one thread, so a re-index queued during
+ * the startup rebuild lands after it; a failed rebuild is retried with backoff.
+ * Results are ranked by BM25 with title matches weighted highest; each query word may
+ * match exactly, as a prefix, or within one or two edits.
+ */
+@Service
+public class AppointmentSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentSearchIndex.class);
+
+    private static final int REBUILD_PAGE_SIZE = 500;
+    private static final Duration FIRST_RETRY_DELAY = Duration.ofSeconds(15);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(10);
+    private static final String PROCESS_DIR_PREFIX = "pid-";
+    // Offset pagination re-runs the query, so deep pages are capped
+    static final int MAX_RESULTS = 1000;
+
+    private static final Map<String, Float> FIELD_BOOSTS = Map.of(
+            "title", 3.0f, "tags", 2.0f, "creatorName", 1.5f, "description", 1.0f);
+
+    private final Firestore firestore;
+    private final AppointmentHydrator appointmentHydrator;
+    private final UserDirectory userDirectory;
+    private final Path baseDir;
+    private final Path indexDir;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final ScheduledExecutorService indexer;
+
+    private FSDirectory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private volatile boolean ready;
+    // Only touched on the indexer thread
+    private int failedRebuilds;
+
+    public AppointmentSearchIndex(Firestore firestore, AppointmentHydrator appointmentHydrator, UserDirectory userDirectory,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.search.index-dir:${java.io.tmpdir}/pms-search-index}") String indexDir) {
+        this.firestore = firestore;
+        this.appointmentHydrator = appointmentHydrator;
+        this.userDirectory = userDirectory;
+        this.baseDir = Path.of(indexDir);
+        this.indexDir = baseDir.resolve(PROCESS_DIR_PREFIX + ProcessHandle.current().pid());
+        this.indexer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "appointment-search-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("appointments.search.documents", this, AppointmentSearchIndex::documentCount)
+                .description("Appointments in the full-text search index")
+                .register(meterRegistry);
+        Gauge.builder("appointments.search.ready", this, index -> index.ready ? 1 : 0).register(meterRegistry);
+    }
+
+    // A fresh index each start; the rebuild runs in the background so startup is not held up
+    @PostConstruct
+    public void open() throws IOException {
+        deleteAbandonedIndexes();
+        directory = FSDirectory.open(indexDir);
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+        searcherManager = new SearcherManager(writer, null);
+        indexer.execute(this::rebuild);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        indexer.shutdownNow();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+        deleteRecursively(indexDir);
+    }
+
+    // Directories left by processes that exited without closing the index
+    private void deleteAbandonedIndexes() throws IOException {
+        if (!Files.isDirectory(baseDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> processDirs = Files.newDirectoryStream(baseDir, PROCESS_DIR_PREFIX + "*")) {
+            for (Path processDir : processDirs) {
+                try {
+                    long pid = Long.parseLong(processDir.getFileName().toString().substring(PROCESS_DIR_PREFIX.length()));
+                    if (ProcessHandle.of(pid).isEmpty()) {
+                        deleteRecursively(processDir);
+                    }
+                } catch (NumberFormatException | IOException e) {
+                    logger.warn("Could not remove abandoned search index {}: {}", processDir, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Queues re-indexing of an appointment from its current Firestore document.
+     */
+    public void reindex(String appointmentId) {
+        indexer.execute(() -> {
+            try {
+                DocumentSnapshot appointmentDoc = firestore.collection("appointments").document(appointmentId).get().get();
+                if (appointmentDoc.exists()) {
+                    writer.updateDocument(new Term("id", appointmentId),
+                            toDocument(appointmentDoc, userDirectory.displayName(appointmentDoc.getString("createdBy"))));
+                } else {
+                    writer.deleteDocuments(new Term("id", appointmentId));
+                }
+                searcherManager.maybeRefresh();
+            } catch (Exception e) {
+                logger.error("Failed to index appointment {}: {}", appointmentId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Queues removal of a deleted appointment.
+     */
+    public void remove(String appointmentId) {
+        indexer.execute(() -> {
+            try {
+                writer.deleteDocuments(new Term("id", appointmentId));
+                searcherManager.maybeRefresh();
+            } catch (IOException e) {
+                logger.error("Failed to remove appointment {} from search index: {}", appointmentId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * One page of appointments matching the query text, best match first. Only appointments
+     * the user created or participates in are returned, unless admin is set.
+     */
+    public PageCursor.Page<Appointment> search(String text, String userId, boolean admin, PageCursor cursor)
+            throws IOException, ExecutionException, InterruptedException {
+        List<String> words = analyze(text);
+        if (words.isEmpty()) {
+            throw new IllegalArgumentException("Search text is required");
+        }
+        int offset = offset(cursor);
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String word : words) {
+            query.add(wordQuery(word), BooleanClause.Occur.MUST);
+        }
+        if (!admin) {
+            query.add(new BooleanQuery.Builder()
+                    .add(new TermQuery(new Term("createdBy", userId)), BooleanClause.Occur.SHOULD)
+                    .add(new TermQuery(new Term("participants", userId)), BooleanClause.Occur.SHOULD)
+                    .build(), BooleanClause.Occur.FILTER);
+        }
+
+        List<String> appointmentIds = new ArrayList<>();
+        boolean hasMore;
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(query.build(), offset + cursor.getPageSize() + 1);
+            ScoreDoc[] hits = topDocs.scoreDocs;
+            for (int i = offset; i < Math.min(hits.length, offset + cursor.getPageSize()); i++) {
+                appointmentIds.add(searcher.storedFields().document(hits[i].doc).get("id"));
+            }
+            hasMore = hits.length > offset + cursor.getPageSize() && offset + cursor.getPageSize() < MAX_RESULTS;
+        } finally {
+            searcherManager.release(searcher);
+        }
+
+        // Results come from Firestore in rank order; hits deleted since indexing are dropped
+        Map<String, DocumentSnapshot> appointmentDocs = appointmentHydrator.getAll("appointments", appointmentIds);
+        Set<String> creatorIds = new LinkedHashSet<>();
+        appointmentDocs.values().forEach(doc -> creatorIds.add(doc.getString("createdBy")));
+        Map<String, UserDirectory.UserSummary> creators = userDirectory.getAll(creatorIds);
+        List<Appointment> appointments = new ArrayList<>();
+        for (String appointmentId : appointmentIds) {
+            DocumentSnapshot appointmentDoc = appointmentDocs.get(appointmentId);
+            if (appointmentDoc != null) {
+                UserDirectory.UserSummary creator = creators.get(appointmentDoc.getString("createdBy"));
+                appointments.add(AppointmentHydrator.toAppointment(appointmentDoc,
+                        creator != null ? creator.getDisplayName() : UserDirectory.UserSummary.UNKNOWN_NAME));
+            }
+        }
+        String nextPageToken = hasMore ? PageCursor.encode(String.valueOf(offset + cursor.getPageSize())) : null;
+        return new PageCursor.Page<>(appointments, nextPageToken);
+    }
+
+    // Exact, prefix and fuzzy matches of one word in any field; exact matches score highest
+    private static BooleanQuery wordQuery(String word) {
+        BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+        for (Map.Entry<String, Float> field : FIELD_BOOSTS.entrySet()) {
+            Term term = new Term(field.getKey(), word);
+            float boost = field.getValue();
+            anyField.add(new BoostQuery(new TermQuery(term), boost * 2), BooleanClause.Occur.SHOULD);
+            if (word.length() >= 2) {
+                anyField.add(new BoostQuery(new PrefixQuery(term), boost), BooleanClause.Occur.SHOULD);
+            }
+            if (word.length() >= 4) {
+                anyField.add(new BoostQuery(new FuzzyQuery(term, word.length() >= 8 ? 2 : 1, 1), boost),
+                        BooleanClause.Occur.SHOULD);
+            }
+        }
+        return anyField.build();
+    }
+
+    private List<String> analyze(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        try (TokenStream tokens = analyzer.tokenStream("title", text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                words.add(term.toString());
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return words;
+    }
+
+    // Page tokens carry the offset of the next hit
+    private static int offset(PageCursor cursor) {
+        if (cursor.getStartAfter() == null) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(cursor.getStartAfter());
+            if (offset < 0 || offset >= MAX_RESULTS) {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+    }
+
+    private void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            QueryDocumentSnapshot last = null;
+            int indexed = 0;
+            while (true) {
+                Query page = firestore.collection("appointments")
+                        .select("title", "description", "createdBy", "participants", AppointmentTags.TAGS)
+                        .orderBy(FieldPath.documentId())
+                        .limit(REBUILD_PAGE_SIZE);
+                if (last != null) {
+                    page = page.startAfter(last);
+                }
+                List<QueryDocumentSnapshot> docs = page.get().get().getDocuments();
+                Set<String> creatorIds = new LinkedHashSet<>();
+                docs.forEach(doc -> creatorIds.add(doc.getString("createdBy")));
+                Map<String, UserDirectory.UserSummary> creators = userDirectory.getAll(creatorIds);
+                for (QueryDocumentSnapshot appointmentDoc : docs) {
+                    UserDirectory.UserSummary creator = creators.get(appointmentDoc.getString("createdBy"));
+                    writer.updateDocument(new Term("id", appointmentDoc.getId()), toDocument(appointmentDoc,
+                            creator != null ? creator.getDisplayName() : UserDirectory.UserSummary.UNKNOWN_NAME));
+                }
+                indexed += docs.size();
+                if (docs.size() < REBUILD_PAGE_SIZE) {
+                    break;
+                }
+                last = docs.get(docs.size() - 1);
+            }
+            writer.commit();
+            searcherManager.maybeRefresh();
+            ready = true;
+            failedRebuilds = 0;
+            logger.info("Built appointment search index: {} appointments in {} ms",
+                    indexed, System.currentTimeMillis() - startedAt);
+        } catch (Exception e) {
+            // Doubling delay per failure; search keeps answering not-ready until a rebuild succeeds
+            Duration delay = FIRST_RETRY_DELAY.multipliedBy(1L << Math.min(failedRebuilds, 10));
+            if (delay.compareTo(MAX_RETRY_DELAY) > 0) {
+                delay = MAX_RETRY_DELAY;
+            }
+            failedRebuilds++;
+            logger.error("Failed to build appointment search index, retrying in {} s: {}",
+                    delay.toSeconds(), e.getMessage());
+            if (!indexer.isShutdown()) {
+                indexer.schedule(this::rebuild, delay.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private static Document toDocument(DocumentSnapshot appointmentDoc, String creatorName) {
+        Document document = new Document();
+        document.add(new StringField("id", appointmentDoc.getId(), Field.Store.YES));
+        addText(document, "title", appointmentDoc.getString("title"));
+        addText(document, "description", appointmentDoc.getString("description"));
+        addText(document, "creatorName", creatorName);
+        for (String tag : TagIndex.tagNames(appointmentDoc)) {
+            addText(document, "tags", tag);
+        }
+        String createdBy = appointmentDoc.getString("createdBy");
+        if (createdBy != null) {
+            document.add(new StringField("createdBy", createdBy, Field.Store.NO));
+        }
+        List<String> participants = (List<String>) appointmentDoc.get("participants");
+        if (participants != null) {
+            for (String participant : participants) {
+                document.add(new StringField("participants", participant, Field.Store.NO));
+            }
+        }
+        return document;
+    }
+
+    private static void addText(Document document, String field, String value) {
+        if (value != null) {
+            document.add(new TextField(field, value, Field.Store.NO));
+        }
+    }
+
+    private long documentCount() {
+        return writer != null ? writer.getDocStats().numDocs : 0;
+    }
+}
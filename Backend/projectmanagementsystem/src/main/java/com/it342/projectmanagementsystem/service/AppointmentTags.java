@@ -0,0 +1,333 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Transaction;
+import com.it342.projectmanagementsystem.dto.BulkTagRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Tag mutations on appointments.
+ *
+ * Tags are kept twice on the appointment: the "tags" array clients read, and a
+ * "tagsByName" map (name -> tag) so a single tag can be found and written by its
+ * field path. Every mutation runs in a transaction, so the duplicate / missing checks
+ * and the write see the same document and concurrent editors cannot lose each other's
+ * tags. Appointments written before the map existed get it on their first tag change.
+ * The {@link TagIndex} entries for the changed tags are written in the same transaction.
+ *
+ * Callers map NoSuchElementException to 404, SecurityException to 403 and
+ * IllegalArgumentException to 400.
+ */
+@Service
+public class AppointmentTags {
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentTags.class);
+
+    static final String TAGS = "tags";
+    static final String TAGS_BY_NAME = "tagsByName";
+
+    // Bounds the single commit: one write per appointment plus its tag index writes
+    public static final int MAX_BULK_APPOINTMENTS = 500;
+
+    private final Firestore firestore;
+    private final TagIndex tagIndex;
+
+    public AppointmentTags(Firestore firestore, TagIndex tagIndex) {
+        this.firestore = firestore;
+        this.tagIndex = tagIndex;
+    }
+
+    /**
+     * Adds a tag; fails if the appointment already has a tag with this name.
+     */
+    public Map<String, Object> add(String appointmentId, String userId, String name, String color)
+            throws ExecutionException, InterruptedException {
+        DocumentReference ref = appointmentRef(appointmentId);
+        Map<String, Object> tag = tag(name, color);
+        inTransaction(transaction -> {
+            DocumentSnapshot appointmentDoc = checkAccess(transaction.get(ref).get(), userId);
+            Map<String, Map<String, Object>> tagsByName = tagsByName(appointmentDoc);
+            if (tagsByName.containsKey(name)) {
+                throw new IllegalArgumentException("Tag with this name already exists");
+            }
+
+            List<Object> updates = new ArrayList<>(List.of(FieldPath.of(TAGS), FieldValue.arrayUnion(tag)));
+            if (appointmentDoc.contains(TAGS_BY_NAME)) {
+                updates.addAll(List.of(FieldPath.of(TAGS_BY_NAME, name), tag));
+            } else {
+                tagsByName.put(name, tag);
+                updates.addAll(List.of(FieldPath.of(TAGS_BY_NAME), tagsByName));
+            }
+            update(transaction, ref, updates);
+            tagIndex.add(transaction, name, appointmentDoc);
+            return null;
+        });
+        return tag;
+    }
+
+    /**
+     * Removes the tag with this name.
+     */
+    public void remove(String appointmentId, String userId, String name) throws ExecutionException, InterruptedException {
+        DocumentReference ref = appointmentRef(appointmentId);
+        inTransaction(transaction -> {
+            DocumentSnapshot appointmentDoc = checkAccess(transaction.get(ref).get(), userId);
+            Map<String, Map<String, Object>> tagsByName = tagsByName(appointmentDoc);
+            Map<String, Object> stored = tagsByName.remove(name);
+            if (stored == null) {
+                throw new NoSuchElementException("Tag not found");
+            }
+
+            // arrayRemove matches whole elements, so it is given the stored tag
+            List<Object> updates = new ArrayList<>(List.of(FieldPath.of(TAGS), FieldValue.arrayRemove(stored)));
+            if (appointmentDoc.contains(TAGS_BY_NAME)) {
+                updates.addAll(List.of(FieldPath.of(TAGS_BY_NAME, name), FieldValue.delete()));
+            } else {
+                updates.addAll(List.of(FieldPath.of(TAGS_BY_NAME), tagsByName));
+            }
+            update(transaction, ref, updates);
+            tagIndex.remove(transaction, name, appointmentId);
+            return null;
+        });
+    }
+
+    /**
+     * Renames and/or recolors a tag in place, keeping its position in the array.
+     */
+    public Map<String, Object> update(String appointmentId, String userId, String name, String newName, String color)
+            throws ExecutionException, InterruptedException {
+        DocumentReference ref = appointmentRef(appointmentId);
+        Map<String, Object> updatedTag = tag(newName, color);
+        inTransaction(transaction -> {
+            DocumentSnapshot appointmentDoc = checkAccess(transaction.get(ref).get(), userId);
+            LinkedHashMap<String, Map<String, Object>> tags = orderedTags(appointmentDoc);
+            if (!tags.containsKey(name)) {
+                throw new NoSuchElementException("Tag not found");
+            }
+            if (!name.equals(newName) && tags.containsKey(newName)) {
+                throw new IllegalArgumentException("Tag with this name already exists");
+            }
+
+            // The array cannot take arrayRemove and arrayUnion in one write; the
+            // transaction makes rewriting it from this read safe
+            LinkedHashMap<String, Map<String, Object>> replaced = replace(tags, name, updatedTag);
+            List<Object> updates = new ArrayList<>(List.of(FieldPath.of(TAGS), new ArrayList<>(replaced.values())));
+            if (appointmentDoc.contains(TAGS_BY_NAME)) {
+                if (!name.equals(newName)) {
+                    updates.addAll(List.of(FieldPath.of(TAGS_BY_NAME, name), FieldValue.delete()));
+                }
+                updates.addAll(List.of(FieldPath.of(TAGS_BY_NAME, newName), updatedTag));
+            } else {
+                updates.addAll(List.of(FieldPath.of(TAGS_BY_NAME), new HashMap<>(replaced)));
+            }
+            update(transaction, ref, updates);
+            if (!name.equals(newName)) {
+                tagIndex.remove(transaction, name, appointmentId);
+                tagIndex.add(transaction, newName, appointmentDoc);
+            }
+            return null;
+        });
+        return updatedTag;
+    }
+
+    /**
+     * Applies every operation, in order, to every appointment in one transaction, so
+     * the whole request commits or fails together. ADD overwrites an existing tag of the
+     * same name and REMOVE / UPDATE of a missing tag are no-ops, so the operations can be
+     * applied to appointments whose tags differ. Appointments that do not exist or that
+     * the user cannot access are reported and left untouched.
+     *
+     * @return "updated" (appointment ids written) and "skipped" (id -> reason)
+     */
+    public Map<String, Object> applyBulk(String userId, List<String> appointmentIds, List<BulkTagRequest.Operation> operations)
+            throws ExecutionException, InterruptedException {
+        if (appointmentIds == null || appointmentIds.isEmpty() || operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("appointmentIds and operations are required");
+        }
+        Set<String> uniqueIds = new LinkedHashSet<>(appointmentIds);
+        if (uniqueIds.size() > MAX_BULK_APPOINTMENTS) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_APPOINTMENTS + " appointments per request");
+        }
+        for (BulkTagRequest.Operation operation : operations) {
+            validate(operation);
+        }
+
+        DocumentReference[] refs = uniqueIds.stream().map(this::appointmentRef).toArray(DocumentReference[]::new);
+        Map<String, Object> result = inTransaction(transaction -> {
+            List<String> updated = new ArrayList<>();
+            Map<String, String> skipped = new LinkedHashMap<>();
+            Map<String, Long> countDeltas = new HashMap<>();
+            for (DocumentSnapshot appointmentDoc : transaction.getAll(refs).get()) {
+                if (!appointmentDoc.exists()) {
+                    skipped.put(appointmentDoc.getId(), "NOT_FOUND");
+                    continue;
+                }
+                if (!isParticipant(appointmentDoc, userId)) {
+                    skipped.put(appointmentDoc.getId(), "FORBIDDEN");
+                    continue;
+                }
+
+                LinkedHashMap<String, Map<String, Object>> before = orderedTags(appointmentDoc);
+                LinkedHashMap<String, Map<String, Object>> tags = new LinkedHashMap<>(before);
+                for (BulkTagRequest.Operation operation : operations) {
+                    tags = apply(tags, operation);
+                }
+                if (tags.equals(before) && appointmentDoc.contains(TAGS_BY_NAME)) {
+                    continue;
+                }
+                transaction.update(appointmentDoc.getReference(),
+                        FieldPath.of(TAGS), new ArrayList<>(tags.values()),
+                        FieldPath.of(TAGS_BY_NAME), new HashMap<>(tags));
+                updated.add(appointmentDoc.getId());
+
+                for (String name : before.keySet()) {
+                    if (!tags.containsKey(name)) {
+                        tagIndex.removePosting(transaction, name, appointmentDoc.getId());
+                        countDeltas.merge(name, -1L, Long::sum);
+                    }
+                }
+                for (String name : tags.keySet()) {
+                    if (!before.containsKey(name)) {
+                        tagIndex.addPosting(transaction, name, appointmentDoc);
+                        countDeltas.merge(name, 1L, Long::sum);
+                    }
+                }
+            }
+            tagIndex.adjustCounts(transaction, countDeltas);
+
+            Map<String, Object> outcome = new HashMap<>();
+            outcome.put("updated", updated);
+            outcome.put("skipped", skipped);
+            return outcome;
+        });
+
+        logger.info("Bulk tag update by {}: {} operations, {} appointments updated, {} skipped", userId,
+                operations.size(), ((List<?>) result.get("updated")).size(), ((Map<?, ?>) result.get("skipped")).size());
+        return result;
+    }
+
+    static void validate(BulkTagRequest.Operation operation) {
+        String action = operation.getAction();
+        if (operation.getName() == null || operation.getName().isEmpty()) {
+            throw new IllegalArgumentException("Tag name is required");
+        }
+        if (!"ADD".equals(action) && !"REMOVE".equals(action) && !"UPDATE".equals(action)) {
+            throw new IllegalArgumentException("Unknown tag action: " + action);
+        }
+    }
+
+    static LinkedHashMap<String, Map<String, Object>> apply(LinkedHashMap<String, Map<String, Object>> tags,
+                                                           BulkTagRequest.Operation operation) {
+        String name = operation.getName();
+        switch (operation.getAction()) {
+            case "ADD":
+                tags.put(name, tag(name, operation.getColor()));
+                return tags;
+            case "REMOVE":
+                tags.remove(name);
+                return tags;
+            default:
+                if (!tags.containsKey(name)) {
+                    return tags;
+                }
+                String newName = operation.getNewName() != null ? operation.getNewName() : name;
+                String color = operation.getColor() != null ? operation.getColor() : (String) tags.get(name).get("color");
+                if (!name.equals(newName)) {
+                    tags.remove(newName);
+                }
+                return replace(tags, name, tag(newName, color));
+        }
+    }
+
+    private DocumentSnapshot checkAccess(DocumentSnapshot appointmentDoc, String userId) {
+        if (!appointmentDoc.exists()) {
+            throw new NoSuchElementException("Appointment not found");
+        }
+        if (!isParticipant(appointmentDoc, userId)) {
+            throw new SecurityException("User is not a participant in this appointment");
+        }
+        return appointmentDoc;
+    }
+
+    private static boolean isParticipant(DocumentSnapshot appointmentDoc, String userId) {
+        List<String> participants = (List<String>) appointmentDoc.get("participants");
+        return participants != null && participants.contains(userId);
+    }
+
+    // Name -> tag from the map field, or from the array for appointments written before it
+    private static Map<String, Map<String, Object>> tagsByName(DocumentSnapshot appointmentDoc) {
+        Map<String, Map<String, Object>> stored = (Map<String, Map<String, Object>>) appointmentDoc.get(TAGS_BY_NAME);
+        return stored != null ? new HashMap<>(stored) : orderedTags(appointmentDoc);
+    }
+
+    // Name -> tag in array order
+    private static LinkedHashMap<String, Map<String, Object>> orderedTags(DocumentSnapshot appointmentDoc) {
+        LinkedHashMap<String, Map<String, Object>> tags = new LinkedHashMap<>();
+        List<Map<String, Object>> array = (List<Map<String, Object>>) appointmentDoc.get(TAGS);
+        if (array != null) {
+            for (Map<String, Object> tag : array) {
+                tags.putIfAbsent((String) tag.get("name"), tag);
+            }
+        }
+        return tags;
+    }
+
+    // Copy with the tag under oldName replaced by newTag at the same position
+    private static LinkedHashMap<String, Map<String, Object>> replace(LinkedHashMap<String, Map<String, Object>> tags,
+                                                                     String oldName, Map<String, Object> newTag) {
+        LinkedHashMap<String, Map<String, Object>> replaced = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : tags.entrySet()) {
+            if (Objects.equals(entry.getKey(), oldName)) {
+                replaced.put((String) newTag.get("name"), newTag);
+            } else {
+                replaced.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return replaced;
+    }
+
+    private static Map<String, Object> tag(String name, String color) {
+        Map<String, Object> tag = new HashMap<>();
+        tag.put("name", name);
+        tag.put("color", color);
+        return tag;
+    }
+
+    // Field-path updates, since tag names may contain dots
+    private static void update(Transaction transaction, DocumentReference ref, List<Object> fieldsAndValues) {
+        Object[] more = fieldsAndValues.subList(2, fieldsAndValues.size()).toArray();
+        transaction.update(ref, (FieldPath) fieldsAndValues.get(0), fieldsAndValues.get(1), more);
+    }
+
+    // Unwraps the validation exceptions thrown inside the transaction
+    private <T> T inTransaction(Transaction.Function<T> function) throws ExecutionException, InterruptedException {
+        try {
+            return firestore.runTransaction(function).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private DocumentReference appointmentRef(String appointmentId) {
+        return firestore.collection("appointments").document(appointmentId);
+    }
+}
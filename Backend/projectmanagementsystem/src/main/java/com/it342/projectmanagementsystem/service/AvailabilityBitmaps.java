@@ -0,0 +1,75 @@
+package com.it342.projectmanagementsystem.service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Per-day slot bitmaps: bit i of a day is the 5-minute slot starting i * 5 minutes after
+ * local midnight, set when the slot is unavailable. Combining calendars is a word-level
+ * {@link BitSet#or}. Days are taken to be 24 hours long, which holds for Asia/Manila.
+ */
+final class AvailabilityBitmaps {
+
+    static final int SLOT_MINUTES = 5;
+    static final long SLOT_MILLIS = SLOT_MINUTES * 60_000L;
+    static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    static final long DAY_MILLIS = SLOTS_PER_DAY * SLOT_MILLIS;
+
+    private AvailabilityBitmaps() {
+    }
+
+    /**
+     * Slots touched by any of the [start, end) millisecond intervals; a partly covered slot is busy.
+     */
+    static BitSet busySlots(long dayStartMillis, List<long[]> intervals) {
+        BitSet busy = new BitSet(SLOTS_PER_DAY);
+        long dayEndMillis = dayStartMillis + DAY_MILLIS;
+        for (long[] interval : intervals) {
+            long start = Math.max(interval[0], dayStartMillis);
+            long end = Math.min(interval[1], dayEndMillis);
+            if (start < end) {
+                busy.set((int) ((start - dayStartMillis) / SLOT_MILLIS),
+                        (int) ((end - dayStartMillis + SLOT_MILLIS - 1) / SLOT_MILLIS));
+            }
+        }
+        return busy;
+    }
+
+    /**
+     * Slots outside [openSlot, closeSlot) or not wholly inside [fromMillis, toMillis).
+     */
+    static BitSet closedSlots(long dayStartMillis, int openSlot, int closeSlot, long fromMillis, long toMillis) {
+        BitSet closed = new BitSet(SLOTS_PER_DAY);
+        closed.set(0, SLOTS_PER_DAY);
+        int first = Math.max(openSlot, clamp(-Math.floorDiv(dayStartMillis - fromMillis, SLOT_MILLIS)));
+        int last = Math.min(closeSlot, clamp(Math.floorDiv(toMillis - dayStartMillis, SLOT_MILLIS)));
+        if (first < last) {
+            closed.clear(first, last);
+        }
+        return closed;
+    }
+
+    /**
+     * Maximal runs of at least minSlots free slots, as [startMillis, endMillis).
+     */
+    static List<long[]> freeWindows(long dayStartMillis, BitSet unavailable, int minSlots) {
+        List<long[]> windows = new ArrayList<>();
+        int start = unavailable.nextClearBit(0);
+        while (start < SLOTS_PER_DAY) {
+            int end = unavailable.nextSetBit(start);
+            if (end < 0 || end > SLOTS_PER_DAY) {
+                end = SLOTS_PER_DAY;
+            }
+            if (end - start >= minSlots) {
+                windows.add(new long[]{dayStartMillis + start * SLOT_MILLIS, dayStartMillis + end * SLOT_MILLIS});
+            }
+            start = unavailable.nextClearBit(end);
+        }
+        return windows;
+    }
+
+    private static int clamp(long slot) {
+        return (int) Math.max(0, Math.min(SLOTS_PER_DAY, slot));
+    }
+}
@@ -0,0 +1,143 @@
+package com.it342.projectmanagementsystem.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Free-slot finder over cached per-user, per-day busy bitmaps (see {@link AvailabilityBitmaps}).
+ *
+ * A day's bitmap is built from the user's intervals in the {@link AppointmentConflictIndex}
+ * the first time it is needed, and dropped again when the conflict index reports a change
+ * touching that day, so bookings, approvals and cancellations only rebuild the days they
+ * affect. Several calendars are intersected by OR-ing their busy bitmaps.
+ */
+@Service
+public class AvailabilityIndex {
+
+    static final ZoneId ZONE = ZoneId.of("Asia/Manila");
+    static final Duration MAX_RANGE = Duration.ofDays(31);
+
+    private final AppointmentConflictIndex conflictIndex;
+    private final int openSlot;
+    private final int closeSlot;
+    private final Map<String, UserDays> usersById = new ConcurrentHashMap<>();
+
+    public AvailabilityIndex(AppointmentConflictIndex conflictIndex,
+                             @Value("${app.availability.open:08:00}") String open,
+                             @Value("${app.availability.close:17:00}") String close) {
+        this.conflictIndex = conflictIndex;
+        this.openSlot = LocalTime.parse(open).toSecondOfDay() / 60 / AvailabilityBitmaps.SLOT_MINUTES;
+        this.closeSlot = LocalTime.parse(close).toSecondOfDay() / 60 / AvailabilityBitmaps.SLOT_MINUTES;
+        conflictIndex.addChangeListener(this::onChanged);
+    }
+
+    /**
+     * Windows in [from, to), within opening hours, where every user is free for at least
+     * the duration. Each entry has ISO-8601 "startTime" and "endTime".
+     */
+    public List<Map<String, Object>> freeSlots(Collection<String> userIds, Instant from, Instant to, Duration duration)
+            throws ExecutionException, InterruptedException {
+        if (!from.isBefore(to) || Duration.between(from, to).compareTo(MAX_RANGE) > 0) {
+            throw new IllegalArgumentException("from must be before to, at most " + MAX_RANGE.toDays() + " days apart");
+        }
+        long slotMillis = AvailabilityBitmaps.SLOT_MILLIS;
+        int minSlots = (int) ((duration.toMillis() + slotMillis - 1) / slotMillis);
+        if (minSlots <= 0 || minSlots > closeSlot - openSlot) {
+            throw new IllegalArgumentException("duration must fit within opening hours");
+        }
+
+        List<Map<String, Object>> slots = new ArrayList<>();
+        LocalDate lastDay = to.minusMillis(1).atZone(ZONE).toLocalDate();
+        for (LocalDate day = from.atZone(ZONE).toLocalDate(); !day.isAfter(lastDay); day = day.plusDays(1)) {
+            long dayStart = day.atStartOfDay(ZONE).toInstant().toEpochMilli();
+            BitSet unavailable = AvailabilityBitmaps.closedSlots(dayStart, openSlot, closeSlot,
+                    from.toEpochMilli(), to.toEpochMilli());
+            if (unavailable.nextClearBit(0) >= AvailabilityBitmaps.SLOTS_PER_DAY) {
+                continue;
+            }
+            for (String userId : new LinkedHashSet<>(userIds)) {
+                unavailable.or(busyDay(userId, day, dayStart));
+            }
+            for (long[] window : AvailabilityBitmaps.freeWindows(dayStart, unavailable, minSlots)) {
+                Map<String, Object> slot = new HashMap<>();
+                slot.put("startTime", Instant.ofEpochMilli(window[0]).toString());
+                slot.put("endTime", Instant.ofEpochMilli(window[1]).toString());
+                slots.add(slot);
+            }
+        }
+        return slots;
+    }
+
+    private BitSet busyDay(String userId, LocalDate day, long dayStart) throws ExecutionException, InterruptedException {
+        UserDays days = usersById.computeIfAbsent(userId, id -> new UserDays());
+        long version;
+        synchronized (days) {
+            // Past the conflict index's reload age, go back to it so other instances' writes show up
+            if (System.nanoTime() - days.loadedAtNanos > AppointmentConflictIndex.RELOAD_AFTER.toNanos()) {
+                days.clear();
+            }
+            BitSet cached = days.byDay.get(day);
+            if (cached != null) {
+                return cached;
+            }
+            version = days.version;
+        }
+
+        BitSet busy = AvailabilityBitmaps.busySlots(dayStart,
+                conflictIndex.busyIntervals(userId, dayStart, dayStart + AvailabilityBitmaps.DAY_MILLIS));
+
+        // Only cache if no change was reported while the intervals were being read
+        synchronized (days) {
+            if (days.version == version) {
+                days.byDay.put(day, busy);
+            }
+        }
+        return busy;
+    }
+
+    void onChanged(String userId, Long startMillis, Long endMillis) {
+        UserDays days = usersById.get(userId);
+        if (days == null) {
+            return;
+        }
+        synchronized (days) {
+            if (startMillis == null || endMillis == null) {
+                days.clear();
+                return;
+            }
+            days.version++;
+            LocalDate last = Instant.ofEpochMilli(Math.max(startMillis, endMillis - 1)).atZone(ZONE).toLocalDate();
+            for (LocalDate day = Instant.ofEpochMilli(startMillis).atZone(ZONE).toLocalDate();
+                 !day.isAfter(last); day = day.plusDays(1)) {
+                days.byDay.remove(day);
+            }
+        }
+    }
+
+    private static final class UserDays {
+        final Map<LocalDate, BitSet> byDay = new HashMap<>();
+        long version;
+        long loadedAtNanos = System.nanoTime();
+
+        void clear() {
+            byDay.clear();
+            version++;
+            loadedAtNanos = System.nanoTime();
+        }
+    }
+}
@@ -15,13 +15,20 @@ import java.util.concurrent.ExecutionException;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final Firestore firestore;
+    private final PrincipalCache principalCache;
 
-    public CustomUserDetailsService(Firestore firestore) {
+    public CustomUserDetailsService(Firestore firestore, PrincipalCache principalCache) {
         this.firestore = firestore;
+        this.principalCache = principalCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        User cached = principalCache.get(email);
+        if (cached != null) {
+            return cached;
+        }
+
         try {
             List<QueryDocumentSnapshot> documents = firestore.collection("users")
                     .whereEqualTo("email", email)
@@ -46,6 +53,7 @@ public class CustomUserDetailsService implements UserDetailsService {
             user.setCreatedAt(document.getTimestamp("createdAt"));
             user.setEnabled(true);
 
+            principalCache.put(user);
             return user;
         } catch (InterruptedException | ExecutionException e) {
             throw new UsernameNotFoundException("Error loading user with email: " + email, e);
@@ -0,0 +1,244 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.it342.projectmanagementsystem.model.Appointment;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Builds the admin "all faculty appointments" view: one row per faculty member
+ * linked to each SCHEDULED appointment.
+ *
+ * Scheduled appointments are read page by page and split into chunks of
+ * {@link #IN_QUERY_LIMIT}. Each chunk's user_appointments links are found with one
+ * whereIn query and its linked faculty and creators through the UserDirectory, on a
+ * fixed-size pool, so each appointment is read once no matter how many faculty share
+ * it and only the users a chunk needs are resolved. Chunks are handed to
+ * the caller in completion order, which lets the NDJSON variant start writing early.
+ */
+@Service
+public class FacultyAppointmentFeed {
+    private static final Logger logger = LoggerFactory.getLogger(FacultyAppointmentFeed.class);
+
+    // Firestore's limit on values in a whereIn filter
+    static final int IN_QUERY_LIMIT = 30;
+    static final int APPOINTMENT_PAGE_SIZE = 300;
+    private static final int QUEUED_CHUNKS_PER_THREAD = 4;
+
+    private final Firestore firestore;
+    private final UserDirectory userDirectory;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executor;
+
+    public FacultyAppointmentFeed(Firestore firestore, UserDirectory userDirectory, ObjectMapper objectMapper,
+                                  @Value("${app.all-appointments.parallelism:8}") int parallelism) {
+        this.firestore = firestore;
+        this.userDirectory = userDirectory;
+        this.objectMapper = objectMapper;
+        // A bounded queue; when it is full the submitting thread loads the chunk itself, which
+        // also keeps one export from queueing every page of a large collection
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism * QUEUED_CHUNKS_PER_THREAD), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "faculty-feed-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the rows for one page of scheduled appointments, grouped by faculty member within the page.
+     * The cursor counts appointments, so a page holds one row per linked faculty member of each;
+     * an unpaged cursor returns every scheduled appointment.
+     */
+    public PageCursor.Page<Appointment> page(PageCursor cursor) throws ExecutionException, InterruptedException {
+        var appointmentDocs = cursor.fetch(firestore.collection("appointments").whereEqualTo("status", "SCHEDULED"));
+        List<QueryDocumentSnapshot> docs = appointmentDocs.getItems();
+
+        CompletionService<List<Appointment>> completion = new ExecutorCompletionService<>(executor);
+        int submitted = 0;
+        for (int from = 0; from < docs.size(); from += IN_QUERY_LIMIT) {
+            List<QueryDocumentSnapshot> chunk = docs.subList(from, Math.min(from + IN_QUERY_LIMIT, docs.size()));
+            completion.submit(() -> loadChunk(chunk));
+            submitted++;
+        }
+        List<Appointment> rows = new ArrayList<>();
+        for (int received = 0; received < submitted; received++) {
+            rows.addAll(completion.take().get());
+        }
+        rows.sort(Comparator.comparing(Appointment::getFacultyName, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(Appointment::getAppointmentId));
+        return new PageCursor.Page<>(rows, appointmentDocs.getNextPageToken());
+    }
+
+    /**
+     * Writes rows as newline-delimited JSON, flushing after every chunk.
+     */
+    public void writeNdjson(OutputStream outputStream) throws IOException {
+        try {
+            forEachChunk(rows -> {
+                try {
+                    for (Appointment row : rows) {
+                        outputStream.write(objectMapper.writeValueAsBytes(row));
+                        outputStream.write('\n');
+                    }
+                    outputStream.flush();
+                } catch (IOException e) {
+                    throw new ChunkWriteException(e);
+                }
+            });
+        } catch (ChunkWriteException e) {
+            throw (IOException) e.getCause();
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to load faculty appointments", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading faculty appointments", e);
+        }
+    }
+
+    /**
+     * Runs the pipeline, calling sink on this thread once per finished chunk.
+     */
+    public void forEachChunk(Consumer<List<Appointment>> sink) throws ExecutionException, InterruptedException {
+        long startedAt = System.currentTimeMillis();
+
+        CompletionService<List<Appointment>> completion = new ExecutorCompletionService<>(executor);
+        int submitted = 0;
+        int received = 0;
+        int appointments = 0;
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            Query page = firestore.collection("appointments")
+                    .whereEqualTo("status", "SCHEDULED")
+                    .orderBy(FieldPath.documentId())
+                    .limit(APPOINTMENT_PAGE_SIZE);
+            if (last != null) {
+                page = page.startAfter(last);
+            }
+            List<QueryDocumentSnapshot> docs = page.get().get().getDocuments();
+            for (int from = 0; from < docs.size(); from += IN_QUERY_LIMIT) {
+                List<QueryDocumentSnapshot> chunk = docs.subList(from, Math.min(from + IN_QUERY_LIMIT, docs.size()));
+                completion.submit(() -> loadChunk(chunk));
+                submitted++;
+            }
+            appointments += docs.size();
+
+            // Hand over whatever has finished while the next page loads
+            for (var done = completion.poll(); done != null; done = completion.poll()) {
+                sink.accept(done.get());
+                received++;
+            }
+
+            if (docs.size() < APPOINTMENT_PAGE_SIZE) {
+                break;
+            }
+            last = docs.get(docs.size() - 1);
+        }
+        while (received < submitted) {
+            sink.accept(completion.take().get());
+            received++;
+        }
+
+        logger.info("Loaded {} scheduled appointments in {} chunks ({} ms)",
+                appointments, submitted, System.currentTimeMillis() - startedAt);
+    }
+
+    private List<Appointment> loadChunk(List<QueryDocumentSnapshot> appointmentDocs)
+            throws ExecutionException, InterruptedException {
+        List<String> appointmentIds = new ArrayList<>(appointmentDocs.size());
+        for (QueryDocumentSnapshot appointmentDoc : appointmentDocs) {
+            appointmentIds.add(appointmentDoc.getId());
+        }
+        List<QueryDocumentSnapshot> links = firestore.collection("user_appointments")
+                .whereIn("appointmentId", new ArrayList<Object>(appointmentIds))
+                .get()
+                .get()
+                .getDocuments();
+
+        // Only the chunk's linked users and creators are resolved, mostly from the directory cache
+        Set<String> userIds = new LinkedHashSet<>();
+        appointmentDocs.forEach(appointmentDoc -> userIds.add(appointmentDoc.getString("createdBy")));
+        links.forEach(link -> userIds.add(link.getString("userId")));
+        Map<String, UserDirectory.UserSummary> users = userDirectory.getAll(userIds);
+
+        Map<String, List<QueryDocumentSnapshot>> facultyLinks = new HashMap<>();
+        for (QueryDocumentSnapshot link : links) {
+            UserDirectory.UserSummary user = users.get(link.getString("userId"));
+            if (user != null && user.isFaculty()) {
+                facultyLinks.computeIfAbsent(link.getString("appointmentId"), id -> new ArrayList<>()).add(link);
+            }
+        }
+
+        List<Appointment> rows = new ArrayList<>();
+        for (QueryDocumentSnapshot appointmentDoc : appointmentDocs) {
+            List<QueryDocumentSnapshot> linksForAppointment = facultyLinks.get(appointmentDoc.getId());
+            if (linksForAppointment == null) {
+                continue;
+            }
+            UserDirectory.UserSummary creator = users.get(appointmentDoc.getString("createdBy"));
+            String creatorName = creator != null ? creator.getDisplayName() : UserDirectory.UserSummary.UNKNOWN_NAME;
+            Map<String, Object> facultyApprovals = (Map<String, Object>) appointmentDoc.get("facultyApprovals");
+            for (QueryDocumentSnapshot link : linksForAppointment) {
+                String facultyId = link.getString("userId");
+                Appointment appointment = AppointmentHydrator.toAppointment(appointmentDoc, creatorName);
+
+                // Add faculty-specific data
+                appointment.setUserRole("FACULTY");
+                appointment.setUserStatus(link.getString("status"));
+                appointment.setFacultyName(users.get(facultyId).getDisplayName());
+
+                // Add faculty approval status if available
+                if (facultyApprovals != null) {
+                    Boolean hasApproved = (Boolean) facultyApprovals.get(facultyId);
+                    appointment.setHasApproved(hasApproved != null ? hasApproved : false);
+                }
+                rows.add(appointment);
+            }
+        }
+        return rows;
+    }
+
+    // Carries an IOException out of the chunk consumer
+    private static final class ChunkWriteException extends RuntimeException {
+        ChunkWriteException(IOException cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.TransactionOptions;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Booking counts per faculty member, counting SCHEDULED appointments they take part in.
+ *
+ * Counts live in one aggregate document (leaderboards/faculty_bookings) that the
+ * appointment write paths increment, and in memory as a set ordered by count so the
+ * top K is read without sorting. A scheduled job recomputes everything from the
+ * appointments collection to correct any drift; another reloads the document so
+ * every instance converges on increments made elsewhere.
+ */
+@Service
+public class FacultyLeaderboard {
+    private static final Logger logger = LoggerFactory.getLogger(FacultyLeaderboard.class);
+
+    static final String COLLECTION = "leaderboards";
+    static final String DOCUMENT = "faculty_bookings";
+
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    private static final Comparator<Standing> BY_BOOKINGS = Comparator
+            .comparingLong((Standing standing) -> standing.bookings).reversed()
+            .thenComparing(standing -> standing.facultyId);
+
+    private final Firestore firestore;
+    private final UserDirectory userDirectory;
+
+    // Guarded by this
+    private final Map<String, Standing> standings = new HashMap<>();
+    private final TreeSet<Standing> ranking = new TreeSet<>(BY_BOOKINGS);
+    private boolean loaded;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ExecutorService rebuilder;
+
+    public FacultyLeaderboard(Firestore firestore, UserDirectory userDirectory) {
+        this.firestore = firestore;
+        this.userDirectory = userDirectory;
+        this.rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "leaderboard-rebuilder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * Returns up to limit entries with userId, name and bookingCount, most booked first.
+     * Empty until the first rebuild has written the aggregate document.
+     */
+    public List<Map<String, Object>> top(int limit) throws ExecutionException, InterruptedException {
+        if (!isLoaded()) {
+            reload();
+        }
+        List<Map<String, Object>> top = new ArrayList<>(limit);
+        synchronized (this) {
+            Iterator<Standing> iterator = ranking.iterator();
+            while (top.size() < limit && iterator.hasNext()) {
+                Standing standing = iterator.next();
+                Map<String, Object> facultyData = new HashMap<>();
+                facultyData.put("userId", standing.facultyId);
+                facultyData.put("name", standing.name);
+                facultyData.put("bookingCount", standing.bookings);
+                top.add(facultyData);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Applies an appointment change. Faculty in oldParticipants stop counting it if it
+     * was SCHEDULED, faculty in newParticipants start counting it if it now is.
+     * Pass null for the new status when the appointment was deleted.
+     */
+    public void onAppointmentChanged(String oldStatus, Collection<String> oldParticipants,
+                                     String newStatus, Collection<String> newParticipants) {
+        Map<String, Integer> deltas = new HashMap<>();
+        if ("SCHEDULED".equals(oldStatus) && oldParticipants != null) {
+            for (String participantId : new HashSet<>(oldParticipants)) {
+                deltas.merge(participantId, -1, Integer::sum);
+            }
+        }
+        if ("SCHEDULED".equals(newStatus) && newParticipants != null) {
+            for (String participantId : new HashSet<>(newParticipants)) {
+                deltas.merge(participantId, 1, Integer::sum);
+            }
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<String, Object> counts = new HashMap<>();
+            Map<String, Object> names = new HashMap<>();
+            for (UserDirectory.UserSummary user : userDirectory.getAll(deltas.keySet()).values()) {
+                if (!user.isFaculty()) {
+                    continue;
+                }
+                String facultyId = user.getUserId();
+                String name = user.getDisplayName();
+                int delta = deltas.get(facultyId);
+                counts.put(facultyId, FieldValue.increment(delta));
+                names.put(facultyId, name);
+                synchronized (this) {
+                    Standing current = standings.get(facultyId);
+                    apply(facultyId, name, (current != null ? current.bookings : 0) + delta);
+                }
+            }
+            if (counts.isEmpty()) {
+                return;
+            }
+
+            Map<String, Object> update = new HashMap<>();
+            update.put("counts", counts);
+            update.put("names", names);
+            update.put("updatedAt", Timestamp.now());
+            leaderboardRef().set(update, SetOptions.merge()).get();
+        } catch (Exception e) {
+            // The next rebuild corrects the counts; the appointment write itself already succeeded
+            logger.error("Error updating faculty leaderboard: {}", e.getMessage());
+        }
+    }
+
+    // Picks up increments made by other instances. Without a document yet, starts a rebuild
+    // in the background instead of making the caller wait for a full scan.
+    @Scheduled(fixedDelayString = "${app.leaderboard.reload-interval:PT1M}",
+               initialDelayString = "${app.leaderboard.reload-interval:PT1M}")
+    public void reload() throws ExecutionException, InterruptedException {
+        DocumentSnapshot leaderboardDoc = leaderboardRef().get().get();
+        if (!leaderboardDoc.exists()) {
+            rebuildLater();
+            return;
+        }
+        Map<String, Object> counts = (Map<String, Object>) leaderboardDoc.get("counts");
+        Map<String, Object> names = (Map<String, Object>) leaderboardDoc.get("names");
+        replace(counts != null ? counts : Map.of(), names != null ? names : Map.of());
+    }
+
+    private void rebuildLater() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        rebuilder.execute(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("Error rebuilding faculty leaderboard: {}", e.getMessage());
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+    }
+
+    /**
+     * Recomputes every count from the SCHEDULED appointments and overwrites the aggregate
+     * document. The scan reads a lock-free snapshot pinned to the read time of the
+     * document, so it blocks no appointment writes; a short transaction then writes the
+     * scanned counts plus whatever other writers incremented since that read time.
+     */
+    @Scheduled(cron = "${app.leaderboard.rebuild-cron:0 0 3 * * *}", zone = "Asia/Manila")
+    public void rebuild() throws ExecutionException, InterruptedException {
+        long startedAt = System.currentTimeMillis();
+
+        DocumentSnapshot baseline = leaderboardRef().get().get();
+        TransactionOptions snapshot = TransactionOptions.createReadOnlyOptionsBuilder()
+                .setReadTime(baseline.getReadTime().toProto())
+                .build();
+        Map<String, Long> participantBookings = new HashMap<>();
+        int appointments = firestore.runTransaction(transaction -> {
+            // The function reruns when the transaction retries
+            participantBookings.clear();
+            QueryDocumentSnapshot last = null;
+            int scanned = 0;
+            while (true) {
+                Query page = firestore.collection("appointments")
+                        .whereEqualTo("status", "SCHEDULED")
+                        .select("participants")
+                        .orderBy(FieldPath.documentId())
+                        .limit(REBUILD_PAGE_SIZE);
+                if (last != null) {
+                    page = page.startAfter(last);
+                }
+                List<QueryDocumentSnapshot> docs = transaction.get(page).get().getDocuments();
+                for (QueryDocumentSnapshot appointmentDoc : docs) {
+                    List<String> participants = (List<String>) appointmentDoc.get("participants");
+                    if (participants != null) {
+                        for (String participantId : new HashSet<>(participants)) {
+                            participantBookings.merge(participantId, 1L, Long::sum);
+                        }
+                    }
+                }
+                scanned += docs.size();
+                if (docs.size() < REBUILD_PAGE_SIZE) {
+                    return scanned;
+                }
+                last = docs.get(docs.size() - 1);
+            }
+        }, snapshot).get();
+
+        Map<String, Long> scannedCounts = new HashMap<>();
+        Map<String, Object> scannedNames = new HashMap<>();
+        for (UserDirectory.UserSummary user : userDirectory.getAll(participantBookings.keySet()).values()) {
+            if (user.isFaculty()) {
+                scannedCounts.put(user.getUserId(), participantBookings.get(user.getUserId()));
+                scannedNames.put(user.getUserId(), user.getDisplayName());
+            }
+        }
+
+        Map<String, Object> counts = new HashMap<>();
+        Map<String, Object> names = new HashMap<>();
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot current = transaction.get(leaderboardRef()).get();
+            Map<String, Object> currentNames = fieldMap(current, "names");
+            counts.clear();
+            names.clear();
+            counts.putAll(withIncrementsSince(scannedCounts, fieldMap(baseline, "counts"), fieldMap(current, "counts")));
+            for (String facultyId : counts.keySet()) {
+                Object name = scannedNames.containsKey(facultyId)
+                        ? scannedNames.get(facultyId) : currentNames.get(facultyId);
+                if (name != null) {
+                    names.put(facultyId, name);
+                }
+            }
+
+            Map<String, Object> leaderboard = new HashMap<>();
+            leaderboard.put("counts", counts);
+            leaderboard.put("names", names);
+            leaderboard.put("rebuiltAt", Timestamp.now());
+            leaderboard.put("updatedAt", Timestamp.now());
+            transaction.set(leaderboardRef(), leaderboard);
+            return null;
+        }).get();
+        replace(counts, names);
+
+        logger.info("Rebuilt faculty leaderboard from {} scheduled appointments: {} faculty in {} ms",
+                appointments, counts.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    // Scanned counts plus the increments made between the baseline and current documents
+    static Map<String, Long> withIncrementsSince(Map<String, Long> scanned, Map<String, Object> baseline,
+                                                 Map<String, Object> current) {
+        Set<String> facultyIds = new HashSet<>(scanned.keySet());
+        facultyIds.addAll(baseline.keySet());
+        facultyIds.addAll(current.keySet());
+
+        Map<String, Long> counts = new HashMap<>();
+        for (String facultyId : facultyIds) {
+            long bookings = scanned.getOrDefault(facultyId, 0L)
+                    + longValue(current.get(facultyId)) - longValue(baseline.get(facultyId));
+            if (bookings > 0) {
+                counts.put(facultyId, bookings);
+            }
+        }
+        return counts;
+    }
+
+    private static long longValue(Object count) {
+        return count instanceof Number ? ((Number) count).longValue() : 0;
+    }
+
+    private static Map<String, Object> fieldMap(DocumentSnapshot leaderboardDoc, String field) {
+        Map<String, Object> value = leaderboardDoc.exists() ? (Map<String, Object>) leaderboardDoc.get(field) : null;
+        return value != null ? value : Map.of();
+    }
+
+    private synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    private synchronized void replace(Map<String, Object> counts, Map<String, Object> names) {
+        standings.clear();
+        ranking.clear();
+        for (Map.Entry<String, Object> count : counts.entrySet()) {
+            Object name = names.get(count.getKey());
+            apply(count.getKey(), name != null ? name.toString() : null, ((Number) count.getValue()).longValue());
+        }
+        loaded = true;
+    }
+
+    // Caller holds the lock
+    private void apply(String facultyId, String name, long bookings) {
+        Standing previous = standings.remove(facultyId);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        if (bookings > 0) {
+            Standing standing = new Standing(facultyId, name, bookings);
+            standings.put(facultyId, standing);
+            ranking.add(standing);
+        }
+    }
+
+    private DocumentReference leaderboardRef() {
+        return firestore.collection(COLLECTION).document(DOCUMENT);
+    }
+
+    private static final class Standing {
+        final String facultyId;
+        final String name;
+        final long bookings;
+
+        Standing(String facultyId, String name, long bookings) {
+            this.facultyId = facultyId;
+            this.name = name;
+            this.bookings = bookings;
+        }
+    }
+}
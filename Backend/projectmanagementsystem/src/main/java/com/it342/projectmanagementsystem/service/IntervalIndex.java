@@ -0,0 +1,67 @@
+package com.it342.projectmanagementsystem.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Half-open [start, end) intervals keyed by id and ordered by start time.
+ *
+ * An overlap query only walks starts in (queryStart - longest interval, queryEnd),
+ * so lookups cost O(log n + k) as long as interval lengths are bounded, which holds
+ * for appointments. Not thread-safe; callers synchronize.
+ */
+final class IntervalIndex<T> {
+    private final TreeMap<Long, Map<String, T>> byStart = new TreeMap<>();
+    private final Map<String, long[]> spans = new HashMap<>();
+    private long maxDuration;
+
+    void put(String id, long start, long end, T value) {
+        remove(id);
+        byStart.computeIfAbsent(start, key -> new LinkedHashMap<>()).put(id, value);
+        spans.put(id, new long[]{start, end});
+        maxDuration = Math.max(maxDuration, end - start);
+    }
+
+    boolean remove(String id) {
+        long[] span = spans.remove(id);
+        if (span == null) {
+            return false;
+        }
+        Map<String, T> sameStart = byStart.get(span[0]);
+        sameStart.remove(id);
+        if (sameStart.isEmpty()) {
+            byStart.remove(span[0]);
+        }
+        // maxDuration is only an upper bound, so it is left alone here
+        return true;
+    }
+
+    T get(String id) {
+        long[] span = spans.get(id);
+        return span == null ? null : byStart.get(span[0]).get(id);
+    }
+
+    List<T> overlapping(long start, long end) {
+        List<T> result = new ArrayList<>();
+        if (byStart.isEmpty() || end <= start) {
+            return result;
+        }
+        long earliestStart = start - maxDuration;
+        for (var entry : byStart.subMap(earliestStart, true, end, false).entrySet()) {
+            for (var candidate : entry.getValue().entrySet()) {
+                if (spans.get(candidate.getKey())[1] > start) {
+                    result.add(candidate.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    int size() {
+        return spans.size();
+    }
+}
@@ -2,14 +2,21 @@ package com.it342.projectmanagementsystem.service;
 
 import com.it342.projectmanagementsystem.config.JwtConfig;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -17,8 +24,52 @@ import java.util.function.Function;
 public class JwtService {
     private final JwtConfig jwtConfig;
 
-    public JwtService(JwtConfig jwtConfig) {
+    // Parsers are immutable and thread-safe, so one is built up front and shared
+    private final JwtParser parser;
+
+    // SHA-256 of a verified token -> its claims, evicted LRU or once the token expires
+    private final int claimsCacheSize;
+    private final Map<ByteBuffer, Claims> verifiedClaims = new LinkedHashMap<>(16, 0.75f, true);
+
+    public JwtService(JwtConfig jwtConfig, @Value("${app.jwt.claims-cache.max-size:1024}") int claimsCacheSize) {
         this.jwtConfig = jwtConfig;
+        this.parser = Jwts.parserBuilder().setSigningKey(jwtConfig.getKey()).build();
+        this.claimsCacheSize = claimsCacheSize;
+    }
+
+    /**
+     * Verifies the token's signature and expiry and returns its claims.
+     * Callers should parse once per request and pass the claims along.
+     */
+    public Claims parseVerified(String token) {
+        if (claimsCacheSize <= 0) {
+            return parser.parseClaimsJws(token).getBody();
+        }
+
+        ByteBuffer digest = digest(token);
+        synchronized (verifiedClaims) {
+            Claims cached = verifiedClaims.get(digest);
+            if (cached != null) {
+                if (!isExpired(cached)) {
+                    return cached;
+                }
+                verifiedClaims.remove(digest);
+            }
+        }
+
+        // Throws for bad signatures and expired tokens, so only valid claims are cached
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null) {
+            synchronized (verifiedClaims) {
+                verifiedClaims.put(digest, claims);
+                Iterator<Claims> eldest = verifiedClaims.values().iterator();
+                while (verifiedClaims.size() > claimsCacheSize && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        return claims;
     }
 
     public String extractUsername(String token) {
@@ -26,7 +77,7 @@ public class JwtService {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseVerified(token);
         return claimsResolver.apply(claims);
     }
 
@@ -46,24 +97,26 @@ public class JwtService {
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(parseVerified(token), userDetails);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        final String username = claims.getSubject();
+        return (username != null && username.equals(userDetails.getUsername())) && !isExpired(claims);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private static boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(jwtConfig.getKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private static ByteBuffer digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
     }
-} 
\ No newline at end of file
+}
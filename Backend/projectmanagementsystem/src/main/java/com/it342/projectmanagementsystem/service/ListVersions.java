@@ -0,0 +1,89 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.UpdateBuilder;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Version counters for list endpoints whose contents cannot be validated from a single
+ * document, kept in list_versions/{list}. Every write that changes a list's contents bumps
+ * its counter in the same batch, so the counter document's update time is a validator for
+ * the whole list: list endpoints turn it into an ETag and answer 304 Not Modified before
+ * running their query.
+ */
+@Service
+public class ListVersions {
+
+    static final String COLLECTION = "list_versions";
+
+    // The user directory: /api/users/all, /faculties and /students
+    public static final String USERS = "users";
+
+    private final Firestore firestore;
+
+    public ListVersions(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    /**
+     * Adds the counter increment for the list to the caller's batch or transaction.
+     */
+    public void bump(UpdateBuilder<?> writes, String list) {
+        writes.set(versionRef(list), Map.of("version", FieldValue.increment(1)), SetOptions.merge());
+    }
+
+    /**
+     * The list's current version: one small document read. A list that was never bumped
+     * is version "0" until its first bump creates the counter.
+     */
+    public String version(String list) throws ExecutionException, InterruptedException {
+        DocumentSnapshot versionDoc = versionRef(list).get().get();
+        return versionDoc.exists() ? versionOf(versionDoc.getUpdateTime()) : "0";
+    }
+
+    /**
+     * A quoted ETag for one response of a versioned list: the version plus a digest of
+     * everything else that shapes the response (caller, page size, page token), SHA-256
+     * truncated to 128 bits. Null when there is no version, i.e. the response should not
+     * carry a validator.
+     */
+    public static String etag(String version, Object... request) {
+        if (version == null) {
+            return null;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        for (Object part : request) {
+            // Length-prefixed, so ("ab", "c") and ("a", "bc") differ; null differs from "null"
+            byte[] bytes = part != null ? part.toString().getBytes(StandardCharsets.UTF_8) : new byte[0];
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(part != null ? bytes.length : -1).array());
+            digest.update(bytes);
+        }
+        return "\"" + version + "-" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    }
+
+    static String versionOf(Timestamp updateTime) {
+        return Long.toHexString(updateTime.getSeconds()) + "." + Integer.toHexString(updateTime.getNanos());
+    }
+
+    private DocumentReference versionRef(String list) {
+        return firestore.collection(COLLECTION).document(list);
+    }
+}
@@ -0,0 +1,268 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Precondition;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends push notifications off the request thread.
+ *
+ * Callers enqueue and return immediately. Workers drain up to {@link #MAX_BATCH}
+ * queued pushes at a time, resolve all their FCM tokens through the UserDirectory, and send them
+ * with a single sendEach call. Transient FCM failures are retried with exponential
+ * backoff; tokens FCM reports as unregistered are removed from the user document.
+ */
+@Service
+public class NotificationDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    // sendEach accepts at most 500 messages per call
+    static final int MAX_BATCH = 500;
+    static final int MAX_ATTEMPTS = 5;
+
+    private static final Set<MessagingErrorCode> RETRYABLE = EnumSet.of(
+            MessagingErrorCode.UNAVAILABLE, MessagingErrorCode.INTERNAL, MessagingErrorCode.QUOTA_EXCEEDED);
+    private static final Set<MessagingErrorCode> DEAD_TOKEN = EnumSet.of(
+            MessagingErrorCode.UNREGISTERED, MessagingErrorCode.SENDER_ID_MISMATCH);
+
+    private final FirebaseMessaging firebaseMessaging;
+    private final Firestore firestore;
+    private final UserDirectory userDirectory;
+    private final Duration initialBackoff;
+
+    private final BlockingQueue<Push> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService retryScheduler;
+    private volatile boolean running = true;
+
+    private final Timer latency;
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter retried;
+    private final Counter dropped;
+    private final Counter prunedTokens;
+
+    public NotificationDispatcher(FirebaseMessaging firebaseMessaging, Firestore firestore,
+                                  UserDirectory userDirectory, MeterRegistry meterRegistry,
+                                  @Value("${app.notifications.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${app.notifications.workers:2}") int workerCount,
+                                  @Value("${app.notifications.initial-backoff:PT1S}") Duration initialBackoff) {
+        this.firebaseMessaging = firebaseMessaging;
+        this.firestore = firestore;
+        this.userDirectory = userDirectory;
+        this.initialBackoff = initialBackoff;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("notifications.queue.depth", queue, BlockingQueue::size)
+                .description("Push notifications waiting to be sent")
+                .register(meterRegistry);
+        this.latency = Timer.builder("notifications.dispatch.latency")
+                .description("Time from enqueue to FCM accepting the message")
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+        this.sent = Counter.builder("notifications.sent").register(meterRegistry);
+        this.failed = Counter.builder("notifications.failed").register(meterRegistry);
+        this.retried = Counter.builder("notifications.retried").register(meterRegistry);
+        this.dropped = Counter.builder("notifications.dropped").register(meterRegistry);
+        this.prunedTokens = Counter.builder("notifications.tokens.pruned").register(meterRegistry);
+
+        for (int i = 1; i <= workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "notification-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        retryScheduler.shutdownNow();
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Queues a notification for the user. Returns false (and drops it) when the queue is full.
+     */
+    public boolean enqueue(String userId, String title, String body, Map<String, String> data) {
+        Push push = new Push(userId, title, body, data, System.nanoTime(), 1);
+        if (queue.offer(push)) {
+            return true;
+        }
+        dropped.increment();
+        logger.error("Notification queue full, dropping notification for user: {}", userId);
+        return false;
+    }
+
+    private void runWorker() {
+        List<Push> batch = new ArrayList<>(MAX_BATCH);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failed.increment(batch.size());
+                logger.error("Error dispatching {} notifications: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void dispatch(List<Push> batch) throws Exception {
+        Set<String> userIds = new HashSet<>();
+        for (Push push : batch) {
+            userIds.add(push.userId);
+        }
+        Map<String, UserDirectory.UserSummary> users = userDirectory.getAll(userIds);
+
+        List<Push> sendable = new ArrayList<>(batch.size());
+        List<Message> messages = new ArrayList<>(batch.size());
+        for (Push push : batch) {
+            UserDirectory.UserSummary user = users.get(push.userId);
+            String fcmToken = user != null ? user.getFcmToken() : null;
+            if (fcmToken == null || fcmToken.isEmpty()) {
+                logger.warn("No FCM token found for user: {}", push.userId);
+                continue;
+            }
+            sendable.add(push);
+            messages.add(Message.builder()
+                    .setToken(fcmToken)
+                    .setNotification(Notification.builder()
+                            .setTitle(push.title)
+                            .setBody(push.body)
+                            .build())
+                    .putAllData(push.data)
+                    .build());
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        BatchResponse response;
+        try {
+            response = firebaseMessaging.sendEach(messages);
+        } catch (FirebaseMessagingException e) {
+            if (RETRYABLE.contains(e.getMessagingErrorCode())) {
+                sendable.forEach(this::retryLater);
+            } else {
+                failed.increment(sendable.size());
+                logger.error("Error sending {} notifications: {}", sendable.size(), e.getMessage());
+            }
+            return;
+        }
+
+        List<SendResponse> responses = response.getResponses();
+        for (int i = 0; i < responses.size(); i++) {
+            Push push = sendable.get(i);
+            SendResponse result = responses.get(i);
+            if (result.isSuccessful()) {
+                sent.increment();
+                latency.record(System.nanoTime() - push.enqueuedAtNanos, TimeUnit.NANOSECONDS);
+                continue;
+            }
+            MessagingErrorCode errorCode = result.getException().getMessagingErrorCode();
+            if (RETRYABLE.contains(errorCode)) {
+                retryLater(push);
+            } else if (DEAD_TOKEN.contains(errorCode)) {
+                failed.increment();
+                pruneToken(users.get(push.userId));
+            } else {
+                failed.increment();
+                logger.error("Error sending notification to user {}: {}", push.userId, result.getException().getMessage());
+            }
+        }
+        logger.info("Sent {} of {} notifications in one batch", response.getSuccessCount(), batch.size());
+    }
+
+    private void retryLater(Push push) {
+        if (push.attempt >= MAX_ATTEMPTS || !running) {
+            failed.increment();
+            logger.error("Giving up on notification for user {} after {} attempts", push.userId, push.attempt);
+            return;
+        }
+        retried.increment();
+        long delayMillis = initialBackoff.toMillis() << (push.attempt - 1);
+        retryScheduler.schedule(() -> {
+            if (!queue.offer(push.nextAttempt())) {
+                dropped.increment();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Only clears the token if the user document has not changed since it was read
+    private void pruneToken(UserDirectory.UserSummary user) {
+        try {
+            firestore.collection("users").document(user.getUserId())
+                    .update(Map.<String, Object>of("fcmToken", FieldValue.delete()), Precondition.updatedAt(user.getUpdateTime()))
+                    .get();
+            prunedTokens.increment();
+            logger.info("Removed unregistered FCM token for user: {}", user.getUserId());
+        } catch (Exception e) {
+            logger.warn("Could not remove FCM token for user {}: {}", user.getUserId(), e.getMessage());
+        } finally {
+            // Either the token is gone or the document changed; both make the cached entry stale
+            userDirectory.invalidate(user.getUserId());
+        }
+    }
+
+    private static final class Push {
+        final String userId;
+        final String title;
+        final String body;
+        final Map<String, String> data;
+        final long enqueuedAtNanos;
+        final int attempt;
+
+        Push(String userId, String title, String body, Map<String, String> data, long enqueuedAtNanos, int attempt) {
+            this.userId = userId;
+            this.title = title;
+            this.body = body;
+            this.data = data;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+            this.attempt = attempt;
+        }
+
+        Push nextAttempt() {
+            return new Push(userId, title, body, data, enqueuedAtNanos, attempt + 1);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.AggregateQuery;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.UpdateBuilder;
+import com.google.cloud.firestore.WriteBatch;
+import com.it342.projectmanagementsystem.dto.NotificationSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Per-user notification inbox over the notifications collection.
+ *
+ * Every notification names its user in "recipientId" and carries a boolean "read", so an
+ * inbox page is one query on the (recipientId, createdAt desc) composite index instead of
+ * a scan of the whole collection. Page tokens hold the createdAt and document id of the
+ * last entry returned. Older documents written with "userId" and status "UNREAD" are
+ * converted by {@link #backfillRecipients()}.
+ *
+ * Unread totals live in notification_counters/{userId}. Every write that creates or reads
+ * a notification adjusts the counter in the same commit, so the badge is one document
+ * read. A counter without "seeded" is recounted once, inside a transaction, from a
+ * count() aggregation.
+ */
+@Service
+public class NotificationInbox {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationInbox.class);
+
+    static final String COLLECTION = "notifications";
+    static final String COUNTERS = "notification_counters";
+
+    // Notifications marked read per batch by markAllRead, leaving room for the counter write
+    private static final int MARK_READ_BATCH_SIZE = 400;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Firestore firestore;
+
+    public NotificationInbox(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    /**
+     * Adds a new unread notification for the recipient, and the matching counter increment,
+     * to the caller's batch or transaction. The notification map supplies type, title,
+     * message, appointmentId and details. Returns the new notification's id.
+     */
+    public String add(UpdateBuilder<?> writes, String recipientId, Map<String, Object> notification) {
+        Map<String, Object> data = new HashMap<>(notification);
+        data.put("recipientId", recipientId);
+        data.put("read", false);
+        data.put("createdAt", Timestamp.now());
+        DocumentReference notificationRef = firestore.collection(COLLECTION).document();
+        writes.set(notificationRef, data);
+        writes.set(counterRef(recipientId), Map.of("unread", FieldValue.increment(1)), SetOptions.merge());
+        return notificationRef.getId();
+    }
+
+    public long unreadCount(String userId) throws ExecutionException, InterruptedException {
+        DocumentSnapshot counter = counterRef(userId).get().get();
+        if (counter.exists() && Boolean.TRUE.equals(counter.getBoolean("seeded"))) {
+            return Math.max(0, longValue(counter.get("unread")));
+        }
+        return seedCounter(userId);
+    }
+
+    /**
+     * Marks one of the user's notifications read. Throws NoSuchElementException when it does
+     * not exist and SecurityException when it belongs to someone else.
+     */
+    public void markRead(String userId, String notificationId) throws ExecutionException, InterruptedException {
+        DocumentReference notificationRef = firestore.collection(COLLECTION).document(notificationId);
+        try {
+            firestore.runTransaction(transaction -> {
+                DocumentSnapshot notification = transaction.get(notificationRef).get();
+                if (!notification.exists()) {
+                    throw new NoSuchElementException("Notification not found");
+                }
+                if (!userId.equals(notification.getString("recipientId"))) {
+                    throw new SecurityException("Notification belongs to another user");
+                }
+                if (!Boolean.TRUE.equals(notification.getBoolean("read"))) {
+                    transaction.update(notificationRef, "read", true);
+                    transaction.set(counterRef(userId), Map.of("unread", FieldValue.increment(-1)), SetOptions.merge());
+                }
+                return null;
+            }).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Marks every unread notification of the user read, in batched writes that each
+     * decrement the counter by the number of notifications they change. Each update is
+     * conditional on the notification being unchanged since it was queried, so one marked
+     * read concurrently is not uncounted twice; a failed batch is re-queried.
+     * Returns the number of notifications marked.
+     */
+    public int markAllRead(String userId) throws ExecutionException, InterruptedException {
+        int marked = 0;
+        int failures = 0;
+        while (true) {
+            List<QueryDocumentSnapshot> unread = firestore.collection(COLLECTION)
+                    .whereEqualTo("recipientId", userId)
+                    .whereEqualTo("read", false)
+                    .limit(MARK_READ_BATCH_SIZE)
+                    .get()
+                    .get()
+                    .getDocuments();
+            if (unread.isEmpty()) {
+                break;
+            }
+
+            WriteBatch batch = firestore.batch();
+            for (QueryDocumentSnapshot notification : unread) {
+                batch.update(notification.getReference(), Map.of("read", true),
+                        Precondition.updatedAt(notification.getUpdateTime()));
+            }
+            batch.set(counterRef(userId), Map.of("unread", FieldValue.increment(-unread.size())), SetOptions.merge());
+            try {
+                batch.commit().get();
+                marked += unread.size();
+            } catch (ExecutionException e) {
+                if (++failures >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                logger.warn("Mark-all-read batch for user {} failed ({}), retrying", userId, e.getMessage());
+            }
+        }
+        logger.info("Marked {} notifications read for user {}", marked, userId);
+        return marked;
+    }
+
+    /**
+     * One page of the user's notifications, newest first.
+     */
+    public PageCursor.Page<NotificationSummary> page(String userId, PageCursor cursor)
+            throws ExecutionException, InterruptedException {
+        Query query = firestore.collection(COLLECTION)
+                .whereEqualTo("recipientId", userId)
+                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
+                .limit(cursor.getPageSize() + 1);
+        if (cursor.getStartAfter() != null) {
+            String[] key = cursor.getStartAfter().split(":", 3);
+            query = query.startAfter(createdAtFromKey(key), key[2]);
+        }
+
+        List<QueryDocumentSnapshot> docs = query.get().get().getDocuments();
+        List<NotificationSummary> notifications = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : docs.subList(0, Math.min(docs.size(), cursor.getPageSize()))) {
+            notifications.add(toSummary(doc));
+        }
+
+        String nextPageToken = null;
+        if (docs.size() > cursor.getPageSize()) {
+            QueryDocumentSnapshot last = docs.get(cursor.getPageSize() - 1);
+            nextPageToken = pageToken(last.getTimestamp("createdAt"), last.getId());
+        }
+        return new PageCursor.Page<>(notifications, nextPageToken);
+    }
+
+    /**
+     * Rewrites notifications that predate the recipientId field: copies "userId" (resolving
+     * email addresses to user ids) into "recipientId" and derives "read" from the old status.
+     * Returns the number of documents updated.
+     */
+    public int backfillRecipients() throws ExecutionException, InterruptedException {
+        CollectionReference users = firestore.collection("users");
+        Map<String, String> userIdsByEmail = new HashMap<>();
+        int updated = 0;
+        BulkWriter bulkWriter = firestore.bulkWriter();
+        try {
+            for (QueryDocumentSnapshot doc : firestore.collection(COLLECTION).get().get().getDocuments()) {
+                Map<String, Object> updates = new HashMap<>();
+                String legacyUserId = doc.getString("userId");
+                if (doc.getString("recipientId") == null && legacyUserId != null) {
+                    String recipientId = legacyUserId;
+                    if (legacyUserId.contains("@")) {
+                        recipientId = userIdsByEmail.get(legacyUserId);
+                        if (recipientId == null) {
+                            List<QueryDocumentSnapshot> matches = users.whereEqualTo("email", legacyUserId)
+                                    .limit(1).get().get().getDocuments();
+                            recipientId = matches.isEmpty() ? legacyUserId : matches.get(0).getId();
+                            userIdsByEmail.put(legacyUserId, recipientId);
+                        }
+                    }
+                    updates.put("recipientId", recipientId);
+                }
+                if (!(doc.get("read") instanceof Boolean)) {
+                    updates.put("read", !"UNREAD".equals(doc.getString("status")));
+                }
+                if (doc.get("createdAt") == null) {
+                    updates.put("createdAt", doc.getCreateTime());
+                }
+                if (!updates.isEmpty()) {
+                    bulkWriter.update(doc.getReference(), updates);
+                    updated++;
+                }
+            }
+            // Read states changed underneath the counters; once the updates have landed, let them recount
+            bulkWriter.flush().get();
+            for (DocumentReference counter : firestore.collection(COUNTERS).listDocuments()) {
+                bulkWriter.delete(counter);
+            }
+        } finally {
+            bulkWriter.close();
+        }
+        logger.info("Backfilled recipientId/read on {} notifications", updated);
+        return updated;
+    }
+
+    /**
+     * Adds a reset of the user's unread counter to the caller's batch, for notifications
+     * removed outside this class. The next unreadCount recounts.
+     */
+    public void resetCounter(UpdateBuilder<?> writes, String userId) {
+        writes.set(counterRef(userId), Map.of("seeded", false), SetOptions.merge());
+    }
+
+    // Counts the user's unread notifications and stores the total as the counter's starting value
+    private long seedCounter(String userId) throws ExecutionException, InterruptedException {
+        DocumentReference counterRef = counterRef(userId);
+        AggregateQuery unreadQuery = firestore.collection(COLLECTION)
+                .whereEqualTo("recipientId", userId)
+                .whereEqualTo("read", false)
+                .count();
+        return firestore.runTransaction(transaction -> {
+            DocumentSnapshot counter = transaction.get(counterRef).get();
+            if (counter.exists() && Boolean.TRUE.equals(counter.getBoolean("seeded"))) {
+                return Math.max(0, longValue(counter.get("unread")));
+            }
+            long unread = transaction.get(unreadQuery).get().getCount();
+            Map<String, Object> seed = new HashMap<>();
+            seed.put("unread", unread);
+            seed.put("seeded", true);
+            transaction.set(counterRef, seed);
+            return unread;
+        }).get();
+    }
+
+    private DocumentReference counterRef(String userId) {
+        return firestore.collection(COUNTERS).document(userId);
+    }
+
+    private static long longValue(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    static NotificationSummary toSummary(QueryDocumentSnapshot doc) {
+        NotificationSummary summary = new NotificationSummary();
+        summary.setId(doc.getId());
+        summary.setType(doc.getString("type"));
+        summary.setTitle(doc.getString("title"));
+        summary.setMessage(doc.getString("message"));
+        summary.setAppointmentId(doc.getString("appointmentId"));
+        summary.setRead(Boolean.TRUE.equals(doc.getBoolean("read")));
+        summary.setCreatedAt(doc.getTimestamp("createdAt"));
+        return summary;
+    }
+
+    // Page keys are "seconds:nanos:documentId"
+    static String pageToken(Timestamp createdAt, String notificationId) {
+        return PageCursor.encode(createdAt.getSeconds() + ":" + createdAt.getNanos() + ":" + notificationId);
+    }
+
+    static Timestamp createdAtFromKey(String[] key) {
+        if (key.length != 3) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        try {
+            return Timestamp.ofTimeSecondsAndNanos(Long.parseLong(key[0]), Integer.parseInt(key[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Cursor pagination for list endpoints.
+ *
+ * Every paged query is ordered by document id, so the cursor is just the id of the
+ * last document returned, base64url-encoded so clients treat it as opaque. One extra
+ * document is read to tell whether another page exists. The next token goes back in
+ * the {@link #NEXT_PAGE_TOKEN_HEADER} response header, keeping response bodies as plain arrays.
+ *
+ * Endpoints that returned whole lists before pagination existed use {@link #orAll}, so
+ * clients that send neither pageSize nor pageToken still get the complete list.
+ */
+public final class PageCursor {
+
+    public static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    // Page size of an unpaged cursor; one below MAX_VALUE so "pageSize + 1" cannot overflow
+    private static final int UNPAGED = Integer.MAX_VALUE - 1;
+
+    private final int pageSize;
+    private final String startAfter;
+
+    private PageCursor(int pageSize, String startAfter) {
+        this.pageSize = pageSize;
+        this.startAfter = startAfter;
+    }
+
+    /**
+     * Validates the request parameters. Throws IllegalArgumentException for a malformed token.
+     */
+    public static PageCursor of(Integer pageSize, String pageToken) {
+        int size = pageSize == null || pageSize <= 0 ? DEFAULT_PAGE_SIZE : Math.min(pageSize, MAX_PAGE_SIZE);
+        return new PageCursor(size, pageToken == null || pageToken.isEmpty() ? null : decode(pageToken));
+    }
+
+    /**
+     * Like {@link #of}, but a request without pageSize and pageToken gets every item
+     * on one page instead of the default page size.
+     */
+    public static PageCursor orAll(Integer pageSize, String pageToken) {
+        if (pageSize == null && (pageToken == null || pageToken.isEmpty())) {
+            return new PageCursor(UNPAGED, null);
+        }
+        return of(pageSize, pageToken);
+    }
+
+    public boolean isUnpaged() {
+        return pageSize == UNPAGED;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    // Document id of the last item on the previous page, or null for the first page
+    public String getStartAfter() {
+        return startAfter;
+    }
+
+    /**
+     * Runs one page of the query. The query must not already be ordered.
+     */
+    public Page<QueryDocumentSnapshot> fetch(Query query) throws ExecutionException, InterruptedException {
+        Query page = query.orderBy(FieldPath.documentId());
+        if (!isUnpaged()) {
+            page = page.limit(pageSize + 1);
+        }
+        if (startAfter != null) {
+            page = page.startAfter(startAfter);
+        }
+        List<QueryDocumentSnapshot> docs = page.get().get().getDocuments();
+        if (docs.size() <= pageSize) {
+            return new Page<>(docs, null);
+        }
+        List<QueryDocumentSnapshot> items = docs.subList(0, pageSize);
+        return new Page<>(items, encode(items.get(pageSize - 1).getId()));
+    }
+
+    /**
+     * One page of items already held in cursor order, e.g. appointments keyed by
+     * appointment id. The key of the last item on the page is the next token.
+     */
+    public <T> Page<T> page(NavigableMap<String, T> items) {
+        NavigableMap<String, T> remaining = startAfter != null ? items.tailMap(startAfter, false) : items;
+        List<T> page = new ArrayList<>(Math.min(remaining.size(), pageSize));
+        String lastKey = null;
+        for (Map.Entry<String, T> item : remaining.entrySet()) {
+            if (page.size() == pageSize) {
+                return new Page<>(page, encode(lastKey));
+            }
+            page.add(item.getValue());
+            lastKey = item.getKey();
+        }
+        return new Page<>(page, null);
+    }
+
+    public static String encode(String documentId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(documentId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decode(String pageToken) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+    }
+
+    /**
+     * One page of results and the token for the next one (null on the last page).
+     */
+    public static final class Page<T> {
+        private final List<T> items;
+        private final String nextPageToken;
+
+        public Page(List<T> items, String nextPageToken) {
+            this.items = items;
+            this.nextPageToken = nextPageToken;
+        }
+
+        public List<T> getItems() {
+            return items;
+        }
+
+        public String getNextPageToken() {
+            return nextPageToken;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.it342.projectmanagementsystem.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, TTL-based cache of resolved principals keyed by email, so authenticated
+ * requests do not each run a users query. Entries are dropped explicitly when a
+ * user's profile, role or account changes.
+ */
+@Component
+public class PrincipalCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, CachedUser> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+    private final Counter invalidations;
+
+    public PrincipalCache(@Value("${app.principal-cache.max-size:1000}") int maxSize,
+                          @Value("${app.principal-cache.ttl:PT5M}") Duration ttl,
+                          MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        this.hits = Counter.builder("principal.cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("principal.cache.misses").register(meterRegistry);
+        this.sizeEvictions = Counter.builder("principal.cache.evictions").tag("cause", "size").register(meterRegistry);
+        this.expiredEvictions = Counter.builder("principal.cache.evictions").tag("cause", "expired").register(meterRegistry);
+        this.invalidations = Counter.builder("principal.cache.evictions").tag("cause", "invalidated").register(meterRegistry);
+        Gauge.builder("principal.cache.size", this, PrincipalCache::size).register(meterRegistry);
+    }
+
+    public synchronized User get(String email) {
+        CachedUser cached = entries.get(email);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        if (System.nanoTime() - cached.loadedAtNanos > ttlNanos) {
+            entries.remove(email);
+            expiredEvictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached.user;
+    }
+
+    public synchronized void put(User user) {
+        entries.put(user.getEmail(), new CachedUser(user, System.nanoTime()));
+        Iterator<CachedUser> eldest = entries.values().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            sizeEvictions.increment();
+        }
+    }
+
+    public synchronized void invalidate(String email) {
+        if (email != null && entries.remove(email) != null) {
+            invalidations.increment();
+        }
+    }
+
+    public synchronized void invalidateUser(String userId) {
+        Iterator<CachedUser> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().user.getUserId().equals(userId)) {
+                iterator.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class CachedUser {
+        final User user;
+        final long loadedAtNanos;
+
+        CachedUser(User user, long loadedAtNanos) {
+            this.user = user;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.UpdateBuilder;
+import com.it342.projectmanagementsystem.model.Appointment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Inverted index from tag name to the appointments carrying it.
+ *
+ * tag_index/{tag} holds the tag name and a posting count; tag_index/{tag}/postings/{appointmentId}
+ * holds the appointment's start and end time, so a tag search is a range query on the
+ * postings of one tag, plus point reads on the other tags' postings, and only the matching
+ * appointments are read. Tag document ids are the base64url of the tag name, since names
+ * may contain "/".
+ *
+ * The tag mutations in AppointmentTags, appointment time edits and deletes write the index
+ * in the same commit as the appointment; {@link #rebuild()} regenerates it from the appointments.
+ */
+@Service
+public class TagIndex {
+    private static final Logger logger = LoggerFactory.getLogger(TagIndex.class);
+
+    static final String COLLECTION = "tag_index";
+    static final String POSTINGS = "postings";
+    private static final int REBUILD_PAGE_SIZE = 500;
+    static final int MAX_SCANNED_POSTINGS = 1000;
+
+    private final Firestore firestore;
+    private final AppointmentHydrator appointmentHydrator;
+    private final UserDirectory userDirectory;
+
+    public TagIndex(Firestore firestore, AppointmentHydrator appointmentHydrator, UserDirectory userDirectory) {
+        this.firestore = firestore;
+        this.appointmentHydrator = appointmentHydrator;
+        this.userDirectory = userDirectory;
+    }
+
+    /**
+     * Indexes a tag newly added to the appointment.
+     */
+    public void add(UpdateBuilder<?> writes, String tag, DocumentSnapshot appointmentDoc) {
+        addPosting(writes, tag, appointmentDoc);
+        adjustCounts(writes, Map.of(tag, 1L));
+    }
+
+    /**
+     * Unindexes a tag removed from the appointment.
+     */
+    public void remove(UpdateBuilder<?> writes, String tag, String appointmentId) {
+        removePosting(writes, tag, appointmentId);
+        adjustCounts(writes, Map.of(tag, -1L));
+    }
+
+    /**
+     * Unindexes every tag of a deleted appointment.
+     */
+    public void removeAll(UpdateBuilder<?> writes, Collection<String> tags, String appointmentId) {
+        Map<String, Long> deltas = new HashMap<>();
+        for (String tag : tags) {
+            removePosting(writes, tag, appointmentId);
+            deltas.put(tag, -1L);
+        }
+        adjustCounts(writes, deltas);
+    }
+
+    /**
+     * Posting without the count change, for callers that batch count deltas per tag.
+     */
+    public void addPosting(UpdateBuilder<?> writes, String tag, DocumentSnapshot appointmentDoc) {
+        writes.set(postingRef(tag, appointmentDoc.getId()), posting(appointmentDoc.getId(),
+                appointmentDoc.getTimestamp("startTime"), appointmentDoc.getTimestamp("endTime")));
+    }
+
+    public void removePosting(UpdateBuilder<?> writes, String tag, String appointmentId) {
+        writes.delete(postingRef(tag, appointmentId));
+    }
+
+    // One merge-write per tag, so a commit never writes the same tag document twice
+    public void adjustCounts(UpdateBuilder<?> writes, Map<String, Long> deltas) {
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+            if (delta.getValue() == 0) {
+                continue;
+            }
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("tag", delta.getKey());
+            fields.put("count", FieldValue.increment(delta.getValue()));
+            writes.set(tagRef(delta.getKey()), fields, SetOptions.merge());
+        }
+    }
+
+    /**
+     * Moves the appointment's postings to its new start and end time.
+     */
+    public void updateTimes(UpdateBuilder<?> writes, Collection<String> tags, String appointmentId,
+                            Timestamp startTime, Timestamp endTime) {
+        for (String tag : tags) {
+            writes.set(postingRef(tag, appointmentId), posting(appointmentId, startTime, endTime));
+        }
+    }
+
+    /**
+     * Tag names on an appointment document.
+     */
+    public static List<String> tagNames(DocumentSnapshot appointmentDoc) {
+        List<String> names = new ArrayList<>();
+        List<Map<String, Object>> tags = (List<Map<String, Object>>) appointmentDoc.get(AppointmentTags.TAGS);
+        if (tags != null) {
+            for (Map<String, Object> tag : tags) {
+                if (tag.get("name") != null && !names.contains(tag.get("name"))) {
+                    names.add((String) tag.get("name"));
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Appointments carrying every one of the tags and starting in [from, to), ordered by
+     * start time. Only appointments the user created or participates in are returned,
+     * unless admin is set.
+     *
+     * The postings of the tag with the fewest are read a page-sized chunk at a time,
+     * resuming after the cursor, and the other tags are checked with point reads on their
+     * postings. At most {@link #MAX_SCANNED_POSTINGS} postings are read per request; a page
+     * cut short by that limit still carries a next page token.
+     *
+     * @param from inclusive lower bound, or null
+     * @param to   exclusive upper bound, or null
+     */
+    public PageCursor.Page<Appointment> search(List<String> tags, Timestamp from, Timestamp to, String userId,
+                                               boolean admin, PageCursor cursor)
+            throws ExecutionException, InterruptedException {
+        List<String> tagNames = new ArrayList<>(new LinkedHashSet<>(tags));
+        DocumentReference[] tagRefs = tagNames.stream().map(this::tagRef).toArray(DocumentReference[]::new);
+        List<DocumentSnapshot> tagDocs = firestore.getAll(tagRefs, FieldMask.of("count")).get();
+        String driver = null;
+        long fewest = Long.MAX_VALUE;
+        for (int i = 0; i < tagNames.size(); i++) {
+            DocumentSnapshot tagDoc = tagDocs.get(i);
+            if (!tagDoc.exists()) {
+                return new PageCursor.Page<>(new ArrayList<>(), null);
+            }
+            long count = tagDoc.get("count") instanceof Number ? ((Number) tagDoc.get("count")).longValue() : 0L;
+            if (driver == null || count < fewest) {
+                driver = tagNames.get(i);
+                fewest = count;
+            }
+        }
+        List<String> otherTags = new ArrayList<>(tagNames);
+        otherTags.remove(driver);
+
+        Query postings = postingsRef(driver);
+        if (from != null) {
+            postings = postings.whereGreaterThanOrEqualTo("startTime", from);
+        }
+        if (to != null) {
+            postings = postings.whereLessThan("startTime", to);
+        }
+        postings = postings.orderBy("startTime").orderBy(FieldPath.documentId());
+
+        // The page token is the position key of the last posting read, so resuming survives deleted postings
+        Posting after = cursor.getStartAfter() != null ? Posting.fromKey(cursor.getStartAfter()) : null;
+        List<Appointment> appointments = new ArrayList<>();
+        int scanned = 0;
+        boolean more = true;
+        while (appointments.size() < cursor.getPageSize() && scanned < MAX_SCANNED_POSTINGS) {
+            Query chunkQuery = postings.limit(cursor.getPageSize());
+            if (after != null) {
+                chunkQuery = chunkQuery.startAfter(after.startTime, after.appointmentId);
+            }
+            List<QueryDocumentSnapshot> chunk = chunkQuery.get().get().getDocuments();
+            scanned += chunk.size();
+            more = chunk.size() == cursor.getPageSize();
+
+            Set<String> ids = new LinkedHashSet<>();
+            chunk.forEach(posting -> ids.add(posting.getId()));
+            Set<String> matching = withOtherTags(ids, otherTags);
+            Map<String, DocumentSnapshot> appointmentDocs = appointmentHydrator.getAll("appointments", matching);
+            Set<String> creatorIds = new LinkedHashSet<>();
+            appointmentDocs.values().forEach(doc -> creatorIds.add(doc.getString("createdBy")));
+            Map<String, UserDirectory.UserSummary> creators = userDirectory.getAll(creatorIds);
+
+            for (int i = 0; i < chunk.size(); i++) {
+                QueryDocumentSnapshot posting = chunk.get(i);
+                after = new Posting(posting.getId(), posting.getTimestamp("startTime"));
+                DocumentSnapshot appointmentDoc = appointmentDocs.get(posting.getId());
+                // The appointment's own tags are checked too, in case a posting outlived its tag
+                if (appointmentDoc != null && tagNames(appointmentDoc).containsAll(tagNames)
+                        && (admin || canView(appointmentDoc, userId))) {
+                    UserDirectory.UserSummary creator = creators.get(appointmentDoc.getString("createdBy"));
+                    appointments.add(AppointmentHydrator.toAppointment(appointmentDoc,
+                            creator != null ? creator.getDisplayName() : UserDirectory.UserSummary.UNKNOWN_NAME));
+                    if (appointments.size() == cursor.getPageSize()) {
+                        more = more || i < chunk.size() - 1;
+                        break;
+                    }
+                }
+            }
+            if (!more) {
+                break;
+            }
+        }
+
+        String nextPageToken = more && after != null ? PageCursor.encode(after.key()) : null;
+        return new PageCursor.Page<>(appointments, nextPageToken);
+    }
+
+    // The ids that also have a posting under every one of the other tags
+    private Set<String> withOtherTags(Set<String> appointmentIds, List<String> otherTags)
+            throws ExecutionException, InterruptedException {
+        if (otherTags.isEmpty() || appointmentIds.isEmpty()) {
+            return appointmentIds;
+        }
+        List<DocumentReference> refs = new ArrayList<>();
+        for (String tag : otherTags) {
+            for (String appointmentId : appointmentIds) {
+                refs.add(postingRef(tag, appointmentId));
+            }
+        }
+        Set<String> matching = new LinkedHashSet<>(appointmentIds);
+        for (DocumentSnapshot posting : firestore.getAll(refs.toArray(new DocumentReference[0]),
+                FieldMask.of("appointmentId")).get()) {
+            if (!posting.exists()) {
+                matching.remove(posting.getId());
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Regenerates the index from the tags on every appointment. Postings written or changed
+     * after the scan started are left alone, and every write to an existing posting is
+     * conditional on it not having changed since it was listed, so concurrent tag edits are
+     * never undone. Counts are then recounted per tag in a transaction on the tag document,
+     * which every posting add or remove also writes.
+     */
+    @Scheduled(cron = "${app.tag-index.rebuild-cron:0 0 4 * * SUN}", zone = "Asia/Manila")
+    public void rebuild() throws ExecutionException, InterruptedException {
+        long startedAt = System.currentTimeMillis();
+
+        // tag -> appointment id -> snapshot with the tag, start and end time
+        Map<String, Map<String, DocumentSnapshot>> postingsByTag = new HashMap<>();
+        Timestamp scanStartedAt = null;
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            Query page = firestore.collection("appointments")
+                    .select(AppointmentTags.TAGS, "startTime", "endTime")
+                    .orderBy(FieldPath.documentId())
+                    .limit(REBUILD_PAGE_SIZE);
+            if (last != null) {
+                page = page.startAfter(last);
+            }
+            QuerySnapshot snapshot = page.get().get();
+            if (scanStartedAt == null) {
+                scanStartedAt = snapshot.getReadTime();
+            }
+            List<QueryDocumentSnapshot> docs = snapshot.getDocuments();
+            for (QueryDocumentSnapshot appointmentDoc : docs) {
+                for (String tag : tagNames(appointmentDoc)) {
+                    postingsByTag.computeIfAbsent(tag, name -> new HashMap<>()).put(appointmentDoc.getId(), appointmentDoc);
+                }
+            }
+            if (docs.size() < REBUILD_PAGE_SIZE) {
+                break;
+            }
+            last = docs.get(docs.size() - 1);
+        }
+
+        Set<String> allTags = new LinkedHashSet<>(postingsByTag.keySet());
+        for (QueryDocumentSnapshot tagDoc : firestore.collection(COLLECTION).select("tag").get().get().getDocuments()) {
+            if (tagDoc.getString("tag") != null) {
+                allTags.add(tagDoc.getString("tag"));
+            }
+        }
+
+        BulkWriter bulkWriter = firestore.bulkWriter();
+        int stale = 0;
+        try {
+            for (String tag : allTags) {
+                Map<String, DocumentSnapshot> current = postingsByTag.getOrDefault(tag, Map.of());
+                Map<String, QueryDocumentSnapshot> existing = new HashMap<>();
+                for (QueryDocumentSnapshot posting : postingsRef(tag).select("startTime", "endTime").get().get().getDocuments()) {
+                    existing.put(posting.getId(), posting);
+                }
+
+                for (DocumentSnapshot appointmentDoc : current.values()) {
+                    Map<String, Object> posting = posting(appointmentDoc.getId(),
+                            appointmentDoc.getTimestamp("startTime"), appointmentDoc.getTimestamp("endTime"));
+                    QueryDocumentSnapshot old = existing.get(appointmentDoc.getId());
+                    if (old == null) {
+                        // Fails harmlessly if a concurrent tag add created it first
+                        bulkWriter.create(postingRef(tag, appointmentDoc.getId()), posting);
+                    } else if (old.getUpdateTime().compareTo(scanStartedAt) < 0
+                            && (!Objects.equals(old.getTimestamp("startTime"), posting.get("startTime"))
+                                || !Objects.equals(old.getTimestamp("endTime"), posting.get("endTime")))) {
+                        bulkWriter.update(old.getReference(), posting, Precondition.updatedAt(old.getUpdateTime()));
+                    }
+                }
+
+                // Drop postings no appointment carried when the scan started
+                for (QueryDocumentSnapshot posting : existing.values()) {
+                    if (!current.containsKey(posting.getId()) && posting.getUpdateTime().compareTo(scanStartedAt) < 0) {
+                        bulkWriter.delete(posting.getReference(), Precondition.updatedAt(posting.getUpdateTime()));
+                        stale++;
+                    }
+                }
+            }
+        } finally {
+            bulkWriter.close();
+        }
+
+        for (String tag : allTags) {
+            recount(tag);
+        }
+
+        logger.info("Rebuilt tag index: {} tags, {} stale postings removed in {} ms",
+                postingsByTag.size(), stale, System.currentTimeMillis() - startedAt);
+    }
+
+    // Sets the tag's count from its postings, or drops the tag document when none are left
+    private void recount(String tag) throws ExecutionException, InterruptedException {
+        DocumentReference tagRef = tagRef(tag);
+        firestore.runTransaction(transaction -> {
+            transaction.get(tagRef).get();
+            long count = transaction.get(postingsRef(tag).count()).get().getCount();
+            if (count == 0) {
+                transaction.delete(tagRef);
+            } else {
+                Map<String, Object> tagDoc = new HashMap<>();
+                tagDoc.put("tag", tag);
+                tagDoc.put("count", count);
+                tagDoc.put("rebuiltAt", Timestamp.now());
+                transaction.set(tagRef, tagDoc);
+            }
+            return null;
+        }).get();
+    }
+
+    private static Map<String, Object> posting(String appointmentId, Timestamp startTime, Timestamp endTime) {
+        Map<String, Object> posting = new HashMap<>();
+        posting.put("appointmentId", appointmentId);
+        posting.put("startTime", startTime);
+        posting.put("endTime", endTime);
+        return posting;
+    }
+
+    private static boolean canView(DocumentSnapshot appointmentDoc, String userId) {
+        List<String> participants = (List<String>) appointmentDoc.get("participants");
+        return userId.equals(appointmentDoc.getString("createdBy")) || (participants != null && participants.contains(userId));
+    }
+
+    private DocumentReference tagRef(String tag) {
+        return firestore.collection(COLLECTION).document(
+                Base64.getUrlEncoder().withoutPadding().encodeToString(tag.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private CollectionReference postingsRef(String tag) {
+        return tagRef(tag).collection(POSTINGS);
+    }
+
+    private DocumentReference postingRef(String tag, String appointmentId) {
+        return postingsRef(tag).document(appointmentId);
+    }
+
+    // Position of a posting in search order: start time, then appointment id
+    static final class Posting {
+        final String appointmentId;
+        final Timestamp startTime;
+
+        Posting(String appointmentId, Timestamp startTime) {
+            this.appointmentId = appointmentId;
+            this.startTime = startTime != null ? startTime : Timestamp.MIN_VALUE;
+        }
+
+        String key() {
+            return startTime.getSeconds() + ":" + startTime.getNanos() + ":" + appointmentId;
+        }
+
+        static Posting fromKey(String key) {
+            String[] parts = key.split(":", 3);
+            try {
+                return new Posting(parts[2], Timestamp.ofTimeSecondsAndNanos(Long.parseLong(parts[0]),
+                        Integer.parseInt(parts[1])));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+        }
+    }
+}
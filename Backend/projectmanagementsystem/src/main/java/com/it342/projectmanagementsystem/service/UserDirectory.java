@@ -0,0 +1,300 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.ListenerRegistration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bounded cache of compact user projections (display name, role, FCM token) for the
+ * many code paths that read a user document only for those fields.
+ *
+ * Misses are loaded with chunked getAll calls that fetch just the projected fields.
+ * Entries are dropped by the UserService mutation paths on this instance; a snapshot
+ * listener on users stamped with a recent updatedAt drops entries changed by other
+ * instances, and the TTL bounds staleness for anything the listener cannot see. A load
+ * that overlaps an invalidation of one of its users does not cache that user.
+ */
+@Service
+public class UserDirectory {
+    private static final Logger logger = LoggerFactory.getLogger(UserDirectory.class);
+
+    static final int GET_ALL_BATCH_SIZE = 100;
+    // How far before a listener restart the new listener starts watching, for writes whose
+    // client-side updatedAt lags their commit
+    static final Duration LISTENER_OVERLAP = Duration.ofMinutes(1);
+    private static final FieldMask PROJECTION = FieldMask.of("firstName", "lastName", "role", "fcmToken");
+
+    private final Firestore firestore;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final boolean listen;
+    private final Map<String, CachedSummary> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Guarded by this: user id -> generation of its latest invalidation, bounded like entries;
+    // evictedGeneration is the newest generation dropped from it
+    private final Map<String, Long> invalidatedAt = new LinkedHashMap<>();
+    private long generation;
+    private long evictedGeneration;
+    private volatile ListenerRegistration listener;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    public UserDirectory(Firestore firestore, MeterRegistry meterRegistry,
+                         @Value("${app.user-directory.max-size:5000}") int maxSize,
+                         @Value("${app.user-directory.ttl:PT10M}") Duration ttl,
+                         @Value("${app.user-directory.listen:true}") boolean listen) {
+        this.firestore = firestore;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.listen = listen;
+
+        this.hits = Counter.builder("user.directory.hits").register(meterRegistry);
+        this.misses = Counter.builder("user.directory.misses").register(meterRegistry);
+        this.invalidations = Counter.builder("user.directory.invalidations").register(meterRegistry);
+        Gauge.builder("user.directory.size", this, UserDirectory::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void startListener() {
+        if (listen) {
+            listener = listenSince(Timestamp.now());
+        }
+    }
+
+    // Only users written since the last restart are watched, so the listener's own state stays
+    // small. The new listener is attached before the old one is removed, so no change is missed.
+    @Scheduled(fixedDelayString = "${app.user-directory.ttl:PT10M}", initialDelayString = "${app.user-directory.ttl:PT10M}")
+    public void restartListener() {
+        if (!listen) {
+            return;
+        }
+        Timestamp since = Timestamp.ofTimeSecondsAndNanos(
+                Timestamp.now().getSeconds() - LISTENER_OVERLAP.getSeconds(), 0);
+        ListenerRegistration previous = listener;
+        listener = listenSince(since);
+        if (previous != null) {
+            previous.remove();
+        }
+    }
+
+    private ListenerRegistration listenSince(Timestamp since) {
+        return firestore.collection("users")
+                .whereGreaterThanOrEqualTo("updatedAt", since)
+                .addSnapshotListener((snapshot, error) -> {
+                    if (error != null) {
+                        logger.error("User directory listener failed: {}", error.getMessage());
+                        return;
+                    }
+                    for (DocumentChange change : snapshot.getDocumentChanges()) {
+                        invalidate(change.getDocument().getId());
+                    }
+                });
+    }
+
+    @PreDestroy
+    public void stopListener() {
+        if (listener != null) {
+            listener.remove();
+        }
+    }
+
+    /**
+     * Returns the user's projection, or null if the user does not exist.
+     */
+    public UserSummary get(String userId) throws ExecutionException, InterruptedException {
+        return userId == null ? null : getAll(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Returns projections for the given ids; unknown users are left out of the result.
+     */
+    public Map<String, UserSummary> getAll(Collection<String> userIds) throws ExecutionException, InterruptedException {
+        Map<String, UserSummary> summaries = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+            long now = System.nanoTime();
+            for (String userId : userIds) {
+                if (userId == null || userId.isEmpty() || summaries.containsKey(userId)) {
+                    continue;
+                }
+                CachedSummary cached = entries.get(userId);
+                if (cached != null && now - cached.loadedAtNanos <= ttlNanos) {
+                    summaries.put(userId, cached.summary);
+                    hits.increment();
+                } else {
+                    missing.add(userId);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return summaries;
+        }
+        misses.increment(missing.size());
+
+        List<ApiFuture<List<DocumentSnapshot>>> futures = new ArrayList<>();
+        List<DocumentReference> chunk = new ArrayList<>(GET_ALL_BATCH_SIZE);
+        for (String userId : missing) {
+            chunk.add(firestore.collection("users").document(userId));
+            if (chunk.size() == GET_ALL_BATCH_SIZE) {
+                futures.add(firestore.getAll(chunk.toArray(new DocumentReference[0]), PROJECTION));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            futures.add(firestore.getAll(chunk.toArray(new DocumentReference[0]), PROJECTION));
+        }
+
+        List<UserSummary> loaded = new ArrayList<>();
+        for (List<DocumentSnapshot> snapshots : ApiFutures.allAsList(futures).get()) {
+            for (DocumentSnapshot snapshot : snapshots) {
+                if (snapshot.exists()) {
+                    UserSummary summary = UserSummary.from(snapshot);
+                    summaries.put(summary.getUserId(), summary);
+                    loaded.add(summary);
+                }
+            }
+        }
+        put(loaded, loadGeneration);
+        return summaries;
+    }
+
+    /**
+     * Display name for the user, with the usual "Unknown User" fallback.
+     */
+    public String displayName(String userId) throws ExecutionException, InterruptedException {
+        UserSummary summary = get(userId);
+        return summary != null ? summary.getDisplayName() : UserSummary.UNKNOWN_NAME;
+    }
+
+    public synchronized void invalidate(String userId) {
+        if (userId == null) {
+            return;
+        }
+        invalidatedAt.remove(userId);
+        invalidatedAt.put(userId, ++generation);
+        Iterator<Long> eldest = invalidatedAt.values().iterator();
+        while (invalidatedAt.size() > maxSize && eldest.hasNext()) {
+            evictedGeneration = eldest.next();
+            eldest.remove();
+        }
+        if (entries.remove(userId) != null) {
+            invalidations.increment();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Skips users invalidated after the load started, whose loaded projection may predate the change
+    private synchronized void put(List<UserSummary> summaries, long loadGeneration) {
+        long now = System.nanoTime();
+        for (UserSummary summary : summaries) {
+            Long invalidated = invalidatedAt.get(summary.getUserId());
+            if (evictedGeneration > loadGeneration || (invalidated != null && invalidated > loadGeneration)) {
+                continue;
+            }
+            entries.put(summary.getUserId(), new CachedSummary(summary, now));
+        }
+        Iterator<CachedSummary> eldest = entries.values().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * The fields most callers need from a user document.
+     */
+    public static final class UserSummary {
+        static final String UNKNOWN_NAME = "Unknown User";
+
+        private final String userId;
+        private final String displayName;
+        private final String role;
+        private final String fcmToken;
+        private final Timestamp updateTime;
+
+        UserSummary(String userId, String displayName, String role, String fcmToken, Timestamp updateTime) {
+            this.userId = userId;
+            this.displayName = displayName;
+            this.role = role;
+            this.fcmToken = fcmToken;
+            this.updateTime = updateTime;
+        }
+
+        static UserSummary from(DocumentSnapshot userDoc) {
+            String firstName = userDoc.getString("firstName");
+            String lastName = userDoc.getString("lastName");
+            String displayName = firstName != null && lastName != null ? firstName + " " + lastName : UNKNOWN_NAME;
+            return new UserSummary(userDoc.getId(), displayName, userDoc.getString("role"),
+                    userDoc.getString("fcmToken"), userDoc.getUpdateTime());
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        public boolean isFaculty() {
+            return "FACULTY".equals(role);
+        }
+
+        public String getFcmToken() {
+            return fcmToken;
+        }
+
+        // Document update time when loaded, for conditional writes
+        public Timestamp getUpdateTime() {
+            return updateTime;
+        }
+    }
+
+    private static final class CachedSummary {
+        final UserSummary summary;
+        final long loadedAtNanos;
+
+        CachedSummary(UserSummary summary, long loadedAtNanos) {
+            this.summary = summary;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.it342.projectmanagementsystem.service;
 import com.it342.projectmanagementsystem.model.*;
 
 import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
 //import com.google.cloud.firestore.v1.FirestoreClient;
 import com.google.firebase.auth.*;
@@ -24,12 +25,19 @@ public class UserService {
 	private final Firestore firestore;
     private final FirebaseAuth firebaseAuth;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
+    private final UserDirectory userDirectory;
+    private final ListVersions listVersions;
 
     @Autowired
-    public UserService(Firestore firestore, FirebaseAuth firebaseAuth, PasswordEncoder passwordEncoder) {
+    public UserService(Firestore firestore, FirebaseAuth firebaseAuth, PasswordEncoder passwordEncoder,
+                       PrincipalCache principalCache, UserDirectory userDirectory, ListVersions listVersions) {
         this.firestore = firestore;
         this.firebaseAuth = firebaseAuth;
         this.passwordEncoder = passwordEncoder;
+        this.principalCache = principalCache;
+        this.userDirectory = userDirectory;
+        this.listVersions = listVersions;
     }
     
    
@@ -62,7 +70,10 @@ public class UserService {
         userMap.put("enabled", true);  // Set enabled to true by default for new users
 
         try {
-            firestore.collection("users").document(userId).set(userMap).get(); // Forces synchronous write
+            WriteBatch batch = firestore.batch();
+            batch.set(firestore.collection("users").document(userId), userMap);
+            listVersions.bump(batch, ListVersions.USERS);
+            batch.commit().get(); // Forces synchronous write
             System.out.println("User successfully written to Firestore: " + userMap);
         } catch (Exception e) {
             System.err.println("Firestore write failed: " + e.getMessage());
@@ -154,8 +165,26 @@ public class UserService {
     
 
     //  Update User
-    public void updateUser(String userId, Map<String, Object> updates) {
-        firestore.collection("users").document(userId).update(updates);
+    public void updateUser(String userId, Map<String, Object> updates) throws ExecutionException, InterruptedException {
+        Map<String, Object> stamped = new HashMap<>(updates);
+        stamped.put("updatedAt", Timestamp.now());
+        WriteBatch batch = firestore.batch();
+        batch.update(firestore.collection("users").document(userId), stamped);
+        listVersions.bump(batch, ListVersions.USERS);
+        batch.commit().get();
+        // Role, email, name or enabled may have changed
+        principalCache.invalidateUser(userId);
+        userDirectory.invalidate(userId);
+    }
+
+    //  Update the device token push notifications are sent to
+    public void updateFcmToken(String userId, String fcmToken) throws ExecutionException, InterruptedException {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("fcmToken", fcmToken);
+        updates.put("updatedAt", Timestamp.now());
+
+        firestore.collection("users").document(userId).update(updates).get();
+        userDirectory.invalidate(userId);
     }
 
     //  Delete User (Admin only)
@@ -191,7 +220,12 @@ public class UserService {
         }
 
         // Then delete from Firestore
-        firestore.collection("users").document(userId).delete().get();
+        WriteBatch batch = firestore.batch();
+        batch.delete(firestore.collection("users").document(userId));
+        listVersions.bump(batch, ListVersions.USERS);
+        batch.commit().get();
+        principalCache.invalidateUser(userId);
+        userDirectory.invalidate(userId);
     }
 
     public Map<String, Object> updateUserProfile(String userEmail, Map<String, Object> updates) throws Exception {
@@ -279,7 +313,13 @@ public class UserService {
         }
 
         // Update the user document
-        firestore.collection("users").document(userId).update(validUpdates).get();
+        validUpdates.put("updatedAt", Timestamp.now());
+        WriteBatch batch = firestore.batch();
+        batch.update(firestore.collection("users").document(userId), validUpdates);
+        listVersions.bump(batch, ListVersions.USERS);
+        batch.commit().get();
+        principalCache.invalidate(userEmail);
+        userDirectory.invalidate(userId);
 
         // Get and return updated user data
         var updatedUserDoc = firestore.collection("users").document(userId).get().get();
@@ -333,16 +373,12 @@ public class UserService {
         return userDocs.size();
     }
 
-    public List<Map<String, Object>> getAllStudents() throws ExecutionException, InterruptedException {
-        // Get all users with STUDENT role from Firestore
-        var userDocs = firestore.collection("users")
-                .whereEqualTo("role", "STUDENT")
-                .get()
-                .get()
-                .getDocuments();
+    public PageCursor.Page<Map<String, Object>> getAllStudents(PageCursor cursor) throws ExecutionException, InterruptedException {
+        // Get one page of users with STUDENT role from Firestore
+        var userDocs = cursor.fetch(firestore.collection("users").whereEqualTo("role", "STUDENT"));
 
         List<Map<String, Object>> students = new ArrayList<>();
-        for (var userDoc : userDocs) {
+        for (var userDoc : userDocs.getItems()) {
             Map<String, Object> studentData = new HashMap<>();
             studentData.put("userId", userDoc.getId());
             studentData.put("studId", userDoc.getString("studId"));
@@ -353,6 +389,6 @@ public class UserService {
             students.add(studentData);
         }
 
-        return students;
+        return new PageCursor.Page<>(students, userDocs.getNextPageToken());
     }
 }
\ No newline at end of file
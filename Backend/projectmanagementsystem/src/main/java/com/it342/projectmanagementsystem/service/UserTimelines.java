@@ -0,0 +1,502 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.UpdateBuilder;
+import com.it342.projectmanagementsystem.model.Appointment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Per-user appointment timelines: user_timelines/{userId}/entries/{appointmentId} holds a
+ * summary with everything the appointment list endpoints return, so a user's list is one
+ * query on their own entries instead of a query on user_appointments plus point reads.
+ * Keeping one small document per entry means a timeline never approaches the document
+ * size or index-entry limits, and writes for different appointments of the same user do
+ * not contend on one document.
+ *
+ * Appointment write paths add their timeline writes to the same batch or transaction as
+ * the appointment itself, using merge sets so only the touched fields change. Reads only
+ * trust timelines written by {@link #rebuild()} (rebuiltAt on user_timelines/{userId});
+ * until a user's timeline has been rebuilt, callers fall back to user_appointments.
+ *
+ * Every entry write stamps the entry's "changedAt" with the commit time, and removal
+ * replaces the entry with a tombstone (deleted=true) instead of deleting it, so
+ * {@link #changes} can return what changed since a client's last sync. Tombstones are kept
+ * for {@link #TOMBSTONE_TTL}; "tombstonesSince" on the timeline document marks how far back
+ * they are complete, and older sync cursors get a full resync.
+ */
+@Service
+public class UserTimelines {
+    private static final Logger logger = LoggerFactory.getLogger(UserTimelines.class);
+
+    static final String COLLECTION = "user_timelines";
+    static final String ENTRIES = "entries";
+    private static final int REBUILD_PAGE_SIZE = 500;
+    private static final int REBUILD_USER_BATCH = 200;
+    static final Duration TOMBSTONE_TTL = Duration.ofDays(30);
+
+    // Appointment fields copied into every linked user's entry
+    private static final List<String> SHARED_FIELDS = List.of(
+            "title", "description", "startTime", "endTime", "createdBy", "participants", "status", "createdAt", "updatedAt");
+
+    private final Firestore firestore;
+    private final AppointmentHydrator appointmentHydrator;
+    private final UserDirectory userDirectory;
+    private final boolean readEnabled;
+
+    public UserTimelines(Firestore firestore, AppointmentHydrator appointmentHydrator, UserDirectory userDirectory,
+                         @Value("${app.timelines.read-enabled:true}") boolean readEnabled) {
+        this.firestore = firestore;
+        this.appointmentHydrator = appointmentHydrator;
+        this.userDirectory = userDirectory;
+        this.readEnabled = readEnabled;
+    }
+
+    /**
+     * Writes the full entry for one linked user of a new appointment.
+     */
+    public void put(UpdateBuilder<?> writes, String userId, String appointmentId, Map<String, Object> appointmentData,
+                    String creatorName, String userRole, String userStatus) {
+        writes.set(entryRef(userId, appointmentId), stamped(
+                entry(appointmentId, appointmentData, creatorName, userId, userRole, userStatus)), SetOptions.merge());
+    }
+
+    /**
+     * Merges the changed appointment fields into the entry of every linked user.
+     * Fields that are not part of the summary are ignored.
+     */
+    public void update(UpdateBuilder<?> writes, Collection<String> userIds, String appointmentId,
+                       Map<String, Object> appointmentUpdates) {
+        Map<String, Object> changed = new HashMap<>();
+        for (String field : SHARED_FIELDS) {
+            if (appointmentUpdates.containsKey(field)) {
+                changed.put(field, appointmentUpdates.get(field));
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        for (String userId : new LinkedHashSet<>(userIds)) {
+            writes.set(entryRef(userId, appointmentId), stamped(changed), SetOptions.merge());
+        }
+    }
+
+    /**
+     * Merges per-user fields (userStatus, hasApproved) into one user's entry.
+     */
+    public void updateForUser(UpdateBuilder<?> writes, String userId, String appointmentId, Map<String, Object> fields) {
+        writes.set(entryRef(userId, appointmentId), stamped(fields), SetOptions.merge());
+    }
+
+    /**
+     * Replaces the appointment's entry with a tombstone in every linked user's timeline.
+     */
+    public void remove(UpdateBuilder<?> writes, Collection<String> userIds, String appointmentId) {
+        for (String userId : new LinkedHashSet<>(userIds)) {
+            writes.set(entryRef(userId, appointmentId), tombstone());
+        }
+    }
+
+    /**
+     * Users with a user_appointments link to the appointment, i.e. whose timelines list it.
+     */
+    public Set<String> linkedUserIds(String appointmentId) throws ExecutionException, InterruptedException {
+        Set<String> userIds = new LinkedHashSet<>();
+        for (QueryDocumentSnapshot link : firestore.collection("user_appointments")
+                .whereEqualTo("appointmentId", appointmentId)
+                .select("userId")
+                .get()
+                .get()
+                .getDocuments()) {
+            userIds.add(link.getString("userId"));
+        }
+        return userIds;
+    }
+
+    /**
+     * One page of the user's appointments from their timeline, ordered by appointment id,
+     * or null when the timeline has not been rebuilt yet and cannot be trusted.
+     */
+    public PageCursor.Page<Appointment> read(String userId, String userRole, PageCursor cursor)
+            throws ExecutionException, InterruptedException {
+        if (!readEnabled || !isRebuilt(userId)) {
+            return null;
+        }
+
+        // A merge into an entry that was never written leaves a partial entry without
+        // "deleted", so the filter skips those as well as tombstones
+        PageCursor.Page<QueryDocumentSnapshot> page = cursor.fetch(entriesRef(userId).whereEqualTo("deleted", false));
+        List<Appointment> appointments = new ArrayList<>(page.getItems().size());
+        for (QueryDocumentSnapshot entryDoc : page.getItems()) {
+            if (isLive(entryDoc.getData())) {
+                appointments.add(toAppointment(entryDoc.getId(), entryDoc.getData(), userRole));
+            }
+        }
+        return new PageCursor.Page<>(appointments, page.getNextPageToken());
+    }
+
+    /**
+     * Validator for the user's appointment list: the newest changedAt among the user's
+     * entries, which moves in the same commit as any write to one of them. Reads one
+     * field of one entry. Null while the timeline cannot be trusted.
+     */
+    public String version(String userId) throws ExecutionException, InterruptedException {
+        if (!readEnabled) {
+            return null;
+        }
+        ApiFuture<List<DocumentSnapshot>> timelineDoc = firestore.getAll(
+                new DocumentReference[]{timelineRef(userId)}, FieldMask.of("rebuiltAt"));
+        ApiFuture<QuerySnapshot> newest = entriesRef(userId)
+                .orderBy("changedAt", Query.Direction.DESCENDING)
+                .limit(1)
+                .select("changedAt")
+                .get();
+        if (!isRebuilt(timelineDoc.get().get(0))) {
+            return null;
+        }
+        List<QueryDocumentSnapshot> docs = newest.get().getDocuments();
+        Timestamp changedAt = docs.isEmpty() ? null : docs.get(0).getTimestamp("changedAt");
+        return changedAt != null ? ListVersions.versionOf(changedAt) : "0";
+    }
+
+    /**
+     * Entries created, updated or deleted after the sync cursor, or every live entry when
+     * since is null or older than the timeline's tombstones. The returned cursor is the
+     * query's read time: any later write commits after it. When the timeline cannot be
+     * trusted yet the result has fullResync set and no cursor, and the client reloads
+     * through the list endpoints instead.
+     */
+    public Changes changes(String userId, String userRole, String since) throws ExecutionException, InterruptedException {
+        Timestamp sinceTime = since != null ? decodeSyncCursor(since) : null;
+        if (!readEnabled) {
+            return new Changes(List.of(), List.of(), null, true);
+        }
+        DocumentSnapshot timelineDoc = timelineRef(userId).get().get();
+        if (!isRebuilt(timelineDoc)) {
+            return new Changes(List.of(), List.of(), null, true);
+        }
+
+        Timestamp tombstonesSince = timelineDoc.getTimestamp("tombstonesSince");
+        boolean fullResync = sinceTime == null || tombstonesSince == null || sinceTime.compareTo(tombstonesSince) < 0;
+        QuerySnapshot entryDocs = (fullResync
+                ? entriesRef(userId).whereEqualTo("deleted", false).orderBy(FieldPath.documentId())
+                : entriesRef(userId).whereGreaterThan("changedAt", sinceTime))
+                .get()
+                .get();
+        List<Appointment> changed = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        for (QueryDocumentSnapshot entryDoc : entryDocs.getDocuments()) {
+            Map<String, Object> summary = entryDoc.getData();
+            if (Boolean.TRUE.equals(summary.get("deleted"))) {
+                deleted.add(entryDoc.getId());
+            } else if (isLive(summary)) {
+                changed.add(toAppointment(entryDoc.getId(), summary, userRole));
+            }
+        }
+        return new Changes(changed, deleted, encodeSyncCursor(entryDocs.getReadTime()), fullResync);
+    }
+
+    /**
+     * Regenerates every timeline from user_appointments and appointments. Only entries that
+     * differ from what is stored are written, so unchanged entries keep their changedAt;
+     * entries that disappeared become tombstones and expired tombstones are deleted.
+     * Clients holding a sync cursor only see what really changed.
+     */
+    @Scheduled(cron = "${app.timelines.rebuild-cron:0 30 3 * * *}", zone = "Asia/Manila")
+    public void rebuild() throws ExecutionException, InterruptedException {
+        long startedAt = System.currentTimeMillis();
+
+        // userId -> that user's links, ordered by link id
+        Map<String, List<QueryDocumentSnapshot>> linksByUser = new HashMap<>();
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            Query page = firestore.collection("user_appointments")
+                    .orderBy(FieldPath.documentId())
+                    .limit(REBUILD_PAGE_SIZE);
+            if (last != null) {
+                page = page.startAfter(last);
+            }
+            List<QueryDocumentSnapshot> docs = page.get().get().getDocuments();
+            for (QueryDocumentSnapshot link : docs) {
+                if (link.getString("userId") != null && link.getString("appointmentId") != null) {
+                    linksByUser.computeIfAbsent(link.getString("userId"), id -> new ArrayList<>()).add(link);
+                }
+            }
+            if (docs.size() < REBUILD_PAGE_SIZE) {
+                break;
+            }
+            last = docs.get(docs.size() - 1);
+        }
+
+        BulkWriter bulkWriter = firestore.bulkWriter();
+        Timestamp now = Timestamp.now();
+        Timestamp tombstoneCutoff = Timestamp.ofTimeSecondsAndNanos(now.getSeconds() - TOMBSTONE_TTL.getSeconds(), 0);
+        int written = 0;
+        int entryWrites = 0;
+        try {
+            List<String> userIds = new ArrayList<>(linksByUser.keySet());
+            for (int from = 0; from < userIds.size(); from += REBUILD_USER_BATCH) {
+                List<String> batchUsers = userIds.subList(from, Math.min(from + REBUILD_USER_BATCH, userIds.size()));
+                Set<String> appointmentIds = new LinkedHashSet<>();
+                for (String userId : batchUsers) {
+                    linksByUser.get(userId).forEach(link -> appointmentIds.add(link.getString("appointmentId")));
+                }
+                Map<String, DocumentSnapshot> appointmentDocs = appointmentHydrator.getAll("appointments", appointmentIds);
+                Set<String> creatorIds = new LinkedHashSet<>();
+                appointmentDocs.values().forEach(doc -> creatorIds.add(doc.getString("createdBy")));
+                Map<String, UserDirectory.UserSummary> creators = userDirectory.getAll(creatorIds);
+                Map<String, DocumentSnapshot> existingTimelines = appointmentHydrator.getAll(COLLECTION, batchUsers);
+                Map<String, ApiFuture<QuerySnapshot>> existingEntries = new HashMap<>();
+                for (String userId : batchUsers) {
+                    existingEntries.put(userId, entriesRef(userId).get());
+                }
+
+                for (String userId : batchUsers) {
+                    Map<String, Map<String, Object>> entries = new HashMap<>();
+                    for (QueryDocumentSnapshot link : linksByUser.get(userId)) {
+                        DocumentSnapshot appointmentDoc = appointmentDocs.get(link.getString("appointmentId"));
+                        if (appointmentDoc == null) {
+                            continue;
+                        }
+                        UserDirectory.UserSummary creator = creators.get(appointmentDoc.getString("createdBy"));
+                        entries.put(appointmentDoc.getId(), entry(appointmentDoc.getId(), appointmentDoc.getData(),
+                                creator != null ? creator.getDisplayName() : UserDirectory.UserSummary.UNKNOWN_NAME,
+                                userId, link.getString("role"), link.getString("status")));
+                    }
+                    entryWrites += writeEntries(bulkWriter, userId, entries,
+                            existingEntries.get(userId).get().getDocuments(), tombstoneCutoff);
+                }
+                // Entries land before the timeline documents that mark them as trusted
+                bulkWriter.flush().get();
+
+                for (String userId : batchUsers) {
+                    DocumentSnapshot existing = existingTimelines.get(userId);
+                    Map<String, Object> timeline = new HashMap<>();
+                    timeline.put("tombstonesSince", tombstonesSince(existing, tombstoneCutoff, now));
+                    timeline.put("rebuiltAt", Timestamp.now());
+                    timeline.put("updatedAt", Timestamp.now());
+                    // A plain set also drops the "entries" map of timelines from before the subcollection
+                    bulkWriter.set(timelineRef(userId), timeline);
+                    written++;
+                }
+            }
+        } finally {
+            bulkWriter.close();
+        }
+
+        logger.info("Rebuilt {} user timelines ({} entry writes) in {} ms",
+                written, entryWrites, System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * Writes the rebuilt entries of one user against the stored ones: unchanged entries are
+     * left alone, changed ones are rewritten with a new changedAt, entries that disappeared
+     * become tombstones and tombstones older than the cutoff are deleted. Returns the number
+     * of writes queued.
+     */
+    private int writeEntries(BulkWriter bulkWriter, String userId, Map<String, Map<String, Object>> entries,
+                             List<QueryDocumentSnapshot> existing, Timestamp tombstoneCutoff) {
+        Map<String, Map<String, Object>> oldEntries = new HashMap<>();
+        existing.forEach(doc -> oldEntries.put(doc.getId(), doc.getData()));
+
+        int writes = 0;
+        for (Map.Entry<String, Map<String, Object>> entry : entries.entrySet()) {
+            Map<String, Object> old = oldEntries.get(entry.getKey());
+            if (old != null && old.get("changedAt") != null && isLive(old) && withoutChangedAt(old).equals(entry.getValue())) {
+                continue;
+            }
+            bulkWriter.set(entryRef(userId, entry.getKey()), stamped(entry.getValue()));
+            writes++;
+        }
+        for (Map.Entry<String, Map<String, Object>> entry : oldEntries.entrySet()) {
+            if (entries.containsKey(entry.getKey())) {
+                continue;
+            }
+            Map<String, Object> old = entry.getValue();
+            if (!Boolean.TRUE.equals(old.get("deleted"))) {
+                bulkWriter.set(entryRef(userId, entry.getKey()), tombstone());
+                writes++;
+            } else if (!(old.get("changedAt") instanceof Timestamp)
+                    || ((Timestamp) old.get("changedAt")).compareTo(tombstoneCutoff) <= 0) {
+                bulkWriter.delete(entryRef(userId, entry.getKey()));
+                writes++;
+            }
+        }
+        return writes;
+    }
+
+    /**
+     * How far back the timeline's tombstones are complete after a rebuild. Timelines rebuilt
+     * for the first time, and those still holding the old "entries" map whose tombstones
+     * were not carried into the subcollection, have none from before now.
+     */
+    private static Timestamp tombstonesSince(DocumentSnapshot existing, Timestamp tombstoneCutoff, Timestamp now) {
+        Timestamp tombstonesSince = existing != null ? existing.getTimestamp("tombstonesSince") : null;
+        if (tombstonesSince == null || existing.contains("entries")) {
+            return now;
+        }
+        return tombstonesSince.compareTo(tombstoneCutoff) > 0 ? tombstonesSince : tombstoneCutoff;
+    }
+
+    private static Map<String, Object> withoutChangedAt(Map<String, Object> entry) {
+        Map<String, Object> copy = new HashMap<>(entry);
+        copy.remove("changedAt");
+        return copy;
+    }
+
+    // Written in full and not tombstoned
+    static boolean isLive(Map<String, Object> summary) {
+        return summary != null && summary.get("title") != null && !Boolean.TRUE.equals(summary.get("deleted"));
+    }
+
+    // Sync cursors are "seconds:nanos" of a timeline read time
+    static String encodeSyncCursor(Timestamp readTime) {
+        return PageCursor.encode(readTime.getSeconds() + ":" + readTime.getNanos());
+    }
+
+    static Timestamp decodeSyncCursor(String cursor) {
+        String[] parts = PageCursor.decode(cursor).split(":");
+        try {
+            return Timestamp.ofTimeSecondsAndNanos(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid sync cursor");
+        }
+    }
+
+    private boolean isRebuilt(String userId) throws ExecutionException, InterruptedException {
+        return isRebuilt(firestore.getAll(new DocumentReference[]{timelineRef(userId)}, FieldMask.of("rebuiltAt"))
+                .get().get(0));
+    }
+
+    private static boolean isRebuilt(DocumentSnapshot timelineDoc) {
+        return timelineDoc.exists() && timelineDoc.get("rebuiltAt") != null;
+    }
+
+    private DocumentReference timelineRef(String userId) {
+        return firestore.collection(COLLECTION).document(userId);
+    }
+
+    private CollectionReference entriesRef(String userId) {
+        return timelineRef(userId).collection(ENTRIES);
+    }
+
+    private DocumentReference entryRef(String userId, String appointmentId) {
+        return entriesRef(userId).document(appointmentId);
+    }
+
+    // Entry fields plus the commit time as changedAt
+    private static Map<String, Object> stamped(Map<String, Object> fields) {
+        Map<String, Object> entry = new HashMap<>(fields);
+        entry.put("changedAt", FieldValue.serverTimestamp());
+        return entry;
+    }
+
+    // Replaces the whole entry, so tombstones stay two fields
+    static Map<String, Object> tombstone() {
+        Map<String, Object> tombstone = new HashMap<>();
+        tombstone.put("deleted", true);
+        tombstone.put("changedAt", FieldValue.serverTimestamp());
+        return tombstone;
+    }
+
+    private static Map<String, Object> entry(String appointmentId, Map<String, Object> appointmentData,
+                                             String creatorName, String userId, String userRole, String userStatus) {
+        Map<String, Object> entry = new HashMap<>();
+        for (String field : SHARED_FIELDS) {
+            entry.put(field, appointmentData.get(field));
+        }
+        entry.put("appointmentId", appointmentId);
+        entry.put("creatorName", creatorName);
+        entry.put("userRole", userRole);
+        entry.put("userStatus", userStatus);
+        entry.put("deleted", false);
+        Map<String, Object> facultyApprovals = (Map<String, Object>) appointmentData.get("facultyApprovals");
+        if (facultyApprovals != null && facultyApprovals.get(userId) != null) {
+            entry.put("hasApproved", facultyApprovals.get(userId));
+        }
+        return entry;
+    }
+
+    // Same fields AppointmentHydrator sets for a list response
+    private static Appointment toAppointment(String appointmentId, Map<String, Object> entry, String userRole) {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(appointmentId);
+        appointment.setTitle((String) entry.get("title"));
+        appointment.setDescription((String) entry.get("description"));
+        appointment.setStartTime((Timestamp) entry.get("startTime"));
+        appointment.setEndTime((Timestamp) entry.get("endTime"));
+        appointment.setCreatedBy((String) entry.get("createdBy"));
+        appointment.setCreatorName((String) entry.get("creatorName"));
+        appointment.setParticipants((List<String>) entry.get("participants"));
+        appointment.setStatus((String) entry.get("status"));
+        appointment.setCreatedAt((Timestamp) entry.get("createdAt"));
+        appointment.setUpdatedAt((Timestamp) entry.get("updatedAt"));
+        appointment.setUserRole((String) entry.get("userRole"));
+        appointment.setUserStatus((String) entry.get("userStatus"));
+        if ("FACULTY".equals(userRole)) {
+            Boolean hasApproved = (Boolean) entry.get("hasApproved");
+            appointment.setHasApproved(hasApproved != null ? hasApproved : false);
+        }
+        return appointment;
+    }
+
+    /**
+     * Result of {@link #changes}: live appointments to upsert, ids to drop, and the cursor
+     * for the next call. With fullResync the client replaces its copy with the changes.
+     */
+    public static final class Changes {
+        private final List<Appointment> changes;
+        private final List<String> deleted;
+        private final String cursor;
+        private final boolean fullResync;
+
+        Changes(List<Appointment> changes, List<String> deleted, String cursor, boolean fullResync) {
+            this.changes = changes;
+            this.deleted = deleted;
+            this.cursor = cursor;
+            this.fullResync = fullResync;
+        }
+
+        public List<Appointment> getChanges() {
+            return changes;
+        }
+
+        public List<String> getDeleted() {
+            return deleted;
+        }
+
+        public String getCursor() {
+            return cursor;
+        }
+
+        public boolean isFullResync() {
+            return fullResync;
+        }
+    }
+}
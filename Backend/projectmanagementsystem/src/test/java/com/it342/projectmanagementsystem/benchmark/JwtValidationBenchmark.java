@@ -0,0 +1,97 @@
+package com.it342.projectmanagementsystem.benchmark;
+
+import com.it342.projectmanagementsystem.config.JwtConfig;
+import com.it342.projectmanagementsystem.model.User;
+import com.it342.projectmanagementsystem.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of JWT validation in the authentication filter.
+ *
+ * Run from the backend directory with:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.it342.projectmanagementsystem.benchmark.JwtValidationBenchmark
+ *
+ * The GC profiler reports gc.alloc.rate.norm (bytes allocated per request) next to ns/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtValidationBenchmark {
+
+    private JwtConfig jwtConfig;
+    private JwtService uncachedService;
+    private JwtService cachedService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtConfig = new JwtConfig();
+        uncachedService = new JwtService(jwtConfig, 0);
+        cachedService = new JwtService(jwtConfig, 1024);
+
+        user = new User();
+        user.setEmail("student@cit.edu");
+        token = uncachedService.generateToken(user);
+    }
+
+    // What the filter did before: extractUsername, then isTokenValid re-parsing twice, each with a new parser
+    @Benchmark
+    public boolean before() {
+        String username = legacyClaims().getSubject();
+        return username.equals(user.getUsername())
+                && legacyClaims().getSubject().equals(user.getUsername())
+                && !legacyClaims().getExpiration().before(new Date());
+    }
+
+    // Shared parser, one verification per request
+    @Benchmark
+    public boolean parseOnce() {
+        Claims claims = uncachedService.parseVerified(token);
+        return claims.getSubject() != null && uncachedService.isTokenValid(claims, user);
+    }
+
+    // Shared parser plus the verified-claims cache (steady state: every request is a hit)
+    @Benchmark
+    public boolean cached() {
+        Claims claims = cachedService.parseVerified(token);
+        return claims.getSubject() != null && cachedService.isTokenValid(claims, user);
+    }
+
+    private Claims legacyClaims() {
+        return Jwts.parserBuilder()
+                .setSigningKey(jwtConfig.getKey())
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtValidationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
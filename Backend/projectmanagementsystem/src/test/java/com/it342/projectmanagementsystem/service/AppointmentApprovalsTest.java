@@ -0,0 +1,52 @@
+package com.it342.projectmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AppointmentApprovalsTest {
+
+	private final Map<String, UserDirectory.UserSummary> users = Map.of(
+			"student", user("student", "STUDENT"),
+			"adviser", user("adviser", "FACULTY"),
+			"panelist", user("panelist", "FACULTY"));
+
+	@Test
+	void scheduledOnlyWhenEveryFacultyApproved() {
+		List<String> participants = List.of("student", "adviser", "panelist");
+		Map<String, Object> approvals = new HashMap<>();
+		approvals.put("adviser", true);
+
+		assertEquals("PENDING_APPROVAL", AppointmentApprovals.statusAfter(participants, approvals, users));
+
+		approvals.put("panelist", true);
+		assertEquals("SCHEDULED", AppointmentApprovals.statusAfter(participants, approvals, users));
+	}
+
+	@Test
+	void denialKeepsAppointmentPending() {
+		Map<String, Object> approvals = new HashMap<>();
+		approvals.put("adviser", true);
+		approvals.put("panelist", false);
+
+		assertEquals("PENDING_APPROVAL",
+				AppointmentApprovals.statusAfter(List.of("student", "adviser", "panelist"), approvals, users));
+	}
+
+	@Test
+	void studentsAndUnknownUsersDoNotNeedToApprove() {
+		Map<String, Object> approvals = new HashMap<>();
+		approvals.put("adviser", true);
+
+		assertEquals("SCHEDULED",
+				AppointmentApprovals.statusAfter(List.of("student", "adviser", "deleted-user"), approvals, users));
+	}
+
+	private static UserDirectory.UserSummary user(String userId, String role) {
+		return new UserDirectory.UserSummary(userId, userId, role, null, null);
+	}
+}
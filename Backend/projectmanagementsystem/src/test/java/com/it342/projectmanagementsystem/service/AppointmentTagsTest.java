@@ -0,0 +1,94 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.it342.projectmanagementsystem.dto.BulkTagRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AppointmentTagsTest {
+
+	@Test
+	void addAppendsOrReplacesInPlace() {
+		LinkedHashMap<String, Map<String, Object>> tags = tags("urgent", "red", "thesis", "blue");
+
+		tags = AppointmentTags.apply(tags, operation("ADD", "review", null, "green"));
+		tags = AppointmentTags.apply(tags, operation("ADD", "urgent", null, "orange"));
+
+		assertEquals(List.of("urgent", "thesis", "review"), List.copyOf(tags.keySet()));
+		assertEquals("orange", tags.get("urgent").get("color"));
+	}
+
+	@Test
+	void removeOfMissingTagIsANoOp() {
+		LinkedHashMap<String, Map<String, Object>> tags = tags("urgent", "red");
+
+		tags = AppointmentTags.apply(tags, operation("REMOVE", "thesis", null, null));
+		assertEquals(List.of("urgent"), List.copyOf(tags.keySet()));
+
+		tags = AppointmentTags.apply(tags, operation("REMOVE", "urgent", null, null));
+		assertEquals(List.of(), List.copyOf(tags.keySet()));
+	}
+
+	@Test
+	void updateRenamesAtTheSamePositionAndKeepsColor() {
+		LinkedHashMap<String, Map<String, Object>> tags = tags("urgent", "red", "thesis", "blue", "review", "green");
+
+		tags = AppointmentTags.apply(tags, operation("UPDATE", "thesis", "capstone", null));
+
+		assertEquals(List.of("urgent", "capstone", "review"), List.copyOf(tags.keySet()));
+		assertEquals("capstone", tags.get("capstone").get("name"));
+		assertEquals("blue", tags.get("capstone").get("color"));
+	}
+
+	@Test
+	void updateOntoExistingNameDropsTheOtherTag() {
+		LinkedHashMap<String, Map<String, Object>> tags = tags("urgent", "red", "thesis", "blue");
+
+		tags = AppointmentTags.apply(tags, operation("UPDATE", "thesis", "urgent", "purple"));
+
+		assertEquals(List.of("urgent"), List.copyOf(tags.keySet()));
+		assertEquals("purple", tags.get("urgent").get("color"));
+	}
+
+	@Test
+	void updateOfMissingTagIsANoOp() {
+		LinkedHashMap<String, Map<String, Object>> tags = tags("urgent", "red");
+
+		tags = AppointmentTags.apply(tags, operation("UPDATE", "thesis", "capstone", "blue"));
+
+		assertEquals(List.of("urgent"), List.copyOf(tags.keySet()));
+	}
+
+	@Test
+	void invalidOperationsAreRejected() {
+		assertThrows(IllegalArgumentException.class,
+				() -> AppointmentTags.validate(operation("ADD", "", null, null)));
+		assertThrows(IllegalArgumentException.class,
+				() -> AppointmentTags.validate(operation("RENAME", "urgent", null, null)));
+		assertThrows(IllegalArgumentException.class,
+				() -> AppointmentTags.validate(operation(null, "urgent", null, null)));
+		AppointmentTags.validate(operation("UPDATE", "urgent", "later", null));
+	}
+
+	private static LinkedHashMap<String, Map<String, Object>> tags(String... namesAndColors) {
+		LinkedHashMap<String, Map<String, Object>> tags = new LinkedHashMap<>();
+		for (int i = 0; i < namesAndColors.length; i += 2) {
+			tags = AppointmentTags.apply(tags, operation("ADD", namesAndColors[i], null, namesAndColors[i + 1]));
+		}
+		return tags;
+	}
+
+	private static BulkTagRequest.Operation operation(String action, String name, String newName, String color) {
+		BulkTagRequest.Operation operation = new BulkTagRequest.Operation();
+		operation.setAction(action);
+		operation.setName(name);
+		operation.setNewName(newName);
+		operation.setColor(color);
+		return operation;
+	}
+}
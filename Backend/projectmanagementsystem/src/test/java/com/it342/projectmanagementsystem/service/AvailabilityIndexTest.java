@@ -0,0 +1,90 @@
+package com.it342.projectmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AvailabilityIndexTest {
+
+	// 2026-03-02 08:00 in Asia/Manila
+	private static final Instant OPEN = Instant.parse("2026-03-02T00:00:00Z");
+
+	@Test
+	void partlyCoveredSlotsAreBusy() {
+		long dayStart = 0;
+		long slot = AvailabilityBitmaps.SLOT_MILLIS;
+		BitSet busy = AvailabilityBitmaps.busySlots(dayStart, List.of(new long[]{slot + 1, 3 * slot - 1}));
+
+		assertEquals(2, busy.cardinality());
+		assertEquals(1, busy.nextSetBit(0));
+		assertEquals(3, busy.nextClearBit(1));
+	}
+
+	@Test
+	void freeWindowsShorterThanTheDurationAreSkipped() {
+		BitSet unavailable = new BitSet();
+		unavailable.set(0, 10);
+		unavailable.set(12, 20);
+		unavailable.set(30, AvailabilityBitmaps.SLOTS_PER_DAY);
+
+		List<long[]> windows = AvailabilityBitmaps.freeWindows(0, unavailable, 3);
+
+		assertEquals(1, windows.size());
+		assertEquals(20 * AvailabilityBitmaps.SLOT_MILLIS, windows.get(0)[0]);
+		assertEquals(30 * AvailabilityBitmaps.SLOT_MILLIS, windows.get(0)[1]);
+	}
+
+	@Test
+	void intersectsCalendarsOfAllUsers() throws Exception {
+		AppointmentConflictIndex conflictIndex = mock(AppointmentConflictIndex.class);
+		when(conflictIndex.busyIntervals(eq("faculty"), anyLong(), anyLong()))
+				.thenReturn(List.of(interval(OPEN.plus(Duration.ofHours(1)), Duration.ofHours(1))));
+		when(conflictIndex.busyIntervals(eq("student"), anyLong(), anyLong()))
+				.thenReturn(List.of(interval(OPEN.plus(Duration.ofMinutes(150)), Duration.ofMinutes(30))));
+		AvailabilityIndex index = new AvailabilityIndex(conflictIndex, "08:00", "17:00");
+
+		List<Map<String, Object>> slots = index.freeSlots(List.of("faculty", "student"),
+				OPEN, OPEN.plus(Duration.ofHours(4)), Duration.ofMinutes(30));
+
+		assertEquals(List.of(
+				slot("2026-03-02T00:00:00Z", "2026-03-02T01:00:00Z"),
+				slot("2026-03-02T02:00:00Z", "2026-03-02T02:30:00Z"),
+				slot("2026-03-02T03:00:00Z", "2026-03-02T04:00:00Z")), slots);
+	}
+
+	@Test
+	void onlyChangedDaysAreRebuilt() throws Exception {
+		AppointmentConflictIndex conflictIndex = mock(AppointmentConflictIndex.class);
+		when(conflictIndex.busyIntervals(eq("faculty"), anyLong(), anyLong())).thenReturn(List.of());
+		AvailabilityIndex index = new AvailabilityIndex(conflictIndex, "08:00", "17:00");
+		Instant from = OPEN;
+		Instant to = OPEN.plus(Duration.ofDays(2));
+
+		index.freeSlots(List.of("faculty"), from, to, Duration.ofMinutes(30));
+		index.onChanged("faculty", OPEN.toEpochMilli(), OPEN.plus(Duration.ofHours(1)).toEpochMilli());
+		index.freeSlots(List.of("faculty"), from, to, Duration.ofMinutes(30));
+
+		// Two days on the first call, then only the changed day again
+		verify(conflictIndex, times(3)).busyIntervals(eq("faculty"), anyLong(), anyLong());
+	}
+
+	private static long[] interval(Instant start, Duration length) {
+		return new long[]{start.toEpochMilli(), start.plus(length).toEpochMilli()};
+	}
+
+	private static Map<String, Object> slot(String start, String end) {
+		return Map.of("startTime", start, "endTime", end);
+	}
+}
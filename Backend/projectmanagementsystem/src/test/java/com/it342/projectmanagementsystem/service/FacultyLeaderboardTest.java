@@ -0,0 +1,28 @@
+package com.it342.projectmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FacultyLeaderboardTest {
+
+	@Test
+	void incrementsAfterTheScanAreKept() {
+		Map<String, Long> scanned = Map.of("adviser", 4L, "panelist", 2L);
+		Map<String, Object> baseline = Map.of("adviser", 3L, "panelist", 2L);
+		Map<String, Object> current = Map.of("adviser", 5L, "panelist", 1L, "newcomer", 1L);
+
+		assertEquals(Map.of("adviser", 6L, "panelist", 1L, "newcomer", 1L),
+				FacultyLeaderboard.withIncrementsSince(scanned, baseline, current));
+	}
+
+	@Test
+	void emptyDocumentTakesScannedCountsAndDropsZeros() {
+		Map<String, Long> scanned = Map.of("adviser", 4L);
+
+		assertEquals(Map.of("adviser", 4L), FacultyLeaderboard.withIncrementsSince(scanned, Map.of(), Map.of()));
+		assertEquals(Map.of(), FacultyLeaderboard.withIncrementsSince(scanned, Map.of(), Map.of("adviser", -4L)));
+	}
+}
@@ -0,0 +1,47 @@
+package com.it342.projectmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntervalIndexTest {
+
+	@Test
+	void findsOnlyOverlappingIntervals() {
+		IntervalIndex<String> index = new IntervalIndex<>();
+		index.put("a", 0, 60, "a");
+		index.put("b", 60, 120, "b");
+		index.put("c", 200, 260, "c");
+
+		assertEquals(List.of("a"), index.overlapping(30, 60));
+		assertEquals(List.of("a", "b"), index.overlapping(59, 61));
+		assertTrue(index.overlapping(120, 200).isEmpty());
+	}
+
+	@Test
+	void longIntervalStartingEarlierIsStillFound() {
+		IntervalIndex<String> index = new IntervalIndex<>();
+		index.put("long", 0, 1000, "long");
+		index.put("short", 500, 510, "short");
+
+		assertEquals(List.of("long"), index.overlapping(900, 950));
+	}
+
+	@Test
+	void putReplacesAndRemoveDrops() {
+		IntervalIndex<String> index = new IntervalIndex<>();
+		index.put("a", 0, 60, "old");
+		index.put("a", 100, 160, "new");
+
+		assertTrue(index.overlapping(0, 60).isEmpty());
+		assertEquals(List.of("new"), index.overlapping(120, 130));
+
+		assertTrue(index.remove("a"));
+		assertNull(index.get("a"));
+		assertEquals(0, index.size());
+	}
+}
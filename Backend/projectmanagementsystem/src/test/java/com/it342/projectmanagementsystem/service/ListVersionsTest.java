@@ -0,0 +1,47 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.Timestamp;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ListVersionsTest {
+
+	@Test
+	void noVersionMeansNoEtag() {
+		assertNull(ListVersions.etag(null, "user-1", 50, null));
+	}
+
+	@Test
+	void etagIsQuotedVersionAndDigest() {
+		String etag = ListVersions.etag("5f.0", "user-1", 50, null);
+
+		assertTrue(etag.matches("\"5f\\.0-[0-9a-f]{32}\""), etag);
+		assertEquals(etag, ListVersions.etag("5f.0", "user-1", 50, null));
+	}
+
+	@Test
+	void everyPartShapesTheEtag() {
+		String etag = ListVersions.etag("1.0", "user-1", 50, null);
+
+		assertNotEquals(etag, ListVersions.etag("2.0", "user-1", 50, null));
+		assertNotEquals(etag, ListVersions.etag("1.0", "user-2", 50, null));
+		assertNotEquals(etag, ListVersions.etag("1.0", "user-1", 20, null));
+		assertNotEquals(etag, ListVersions.etag("1.0", "user-1", 50, "token"));
+	}
+
+	@Test
+	void partBoundariesAndNullsAreDistinct() {
+		assertNotEquals(ListVersions.etag("1.0", "ab", "c"), ListVersions.etag("1.0", "a", "bc"));
+		assertNotEquals(ListVersions.etag("1.0", (Object) null), ListVersions.etag("1.0", "null"));
+		assertNotEquals(ListVersions.etag("1.0", (Object) null), ListVersions.etag("1.0", ""));
+	}
+
+	@Test
+	void versionIsHexSecondsAndNanos() {
+		assertEquals("ff.a", ListVersions.versionOf(Timestamp.ofTimeSecondsAndNanos(255, 10)));
+	}
+}
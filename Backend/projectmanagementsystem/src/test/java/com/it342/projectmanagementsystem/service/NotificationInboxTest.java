@@ -0,0 +1,31 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.Timestamp;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NotificationInboxTest {
+
+	@Test
+	void pageTokenRoundTrips() {
+		Timestamp createdAt = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 42);
+		String token = NotificationInbox.pageToken(createdAt, "notif:1");
+
+		String[] key = PageCursor.of(20, token).getStartAfter().split(":", 3);
+
+		assertEquals(createdAt, NotificationInbox.createdAtFromKey(key));
+		assertEquals("notif:1", key[2]);
+	}
+
+	@Test
+	void malformedPageKeyIsRejected() {
+		assertThrows(IllegalArgumentException.class,
+				() -> NotificationInbox.createdAtFromKey("notif-1".split(":", 3)));
+		assertThrows(IllegalArgumentException.class,
+				() -> NotificationInbox.createdAtFromKey("1700000000:x:notif-1".split(":", 3)));
+		assertThrows(IllegalArgumentException.class,
+				() -> NotificationInbox.createdAtFromKey("1700000000:-1:notif-1".split(":", 3)));
+	}
+}
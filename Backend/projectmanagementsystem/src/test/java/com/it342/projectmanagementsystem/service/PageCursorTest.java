@@ -0,0 +1,76 @@
+package com.it342.projectmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageCursorTest {
+
+	@Test
+	void tokensRoundTrip() {
+		String token = PageCursor.encode("appt/ü:1");
+
+		assertFalse(token.contains("="));
+		assertEquals("appt/ü:1", PageCursor.decode(token));
+		assertEquals("appt/ü:1", PageCursor.of(10, token).getStartAfter());
+	}
+
+	@Test
+	void malformedTokenIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not base64!"));
+		assertThrows(IllegalArgumentException.class, () -> PageCursor.of(10, "%%%"));
+	}
+
+	@Test
+	void pageSizeDefaultsAndIsClamped() {
+		assertEquals(PageCursor.DEFAULT_PAGE_SIZE, PageCursor.of(null, null).getPageSize());
+		assertEquals(PageCursor.DEFAULT_PAGE_SIZE, PageCursor.of(0, "").getPageSize());
+		assertEquals(PageCursor.MAX_PAGE_SIZE, PageCursor.of(10_000, null).getPageSize());
+		assertEquals(25, PageCursor.of(25, null).getPageSize());
+		assertNull(PageCursor.of(25, "").getStartAfter());
+	}
+
+	@Test
+	void orAllIsUnpagedOnlyWithoutParameters() {
+		assertTrue(PageCursor.orAll(null, null).isUnpaged());
+		assertTrue(PageCursor.orAll(null, "").isUnpaged());
+		assertFalse(PageCursor.orAll(10, null).isUnpaged());
+		assertFalse(PageCursor.orAll(null, PageCursor.encode("a")).isUnpaged());
+		assertFalse(PageCursor.of(null, null).isUnpaged());
+	}
+
+	@Test
+	void pagesThroughSortedItems() {
+		TreeMap<String, Integer> items = new TreeMap<>();
+		items.put("c", 3);
+		items.put("a", 1);
+		items.put("b", 2);
+
+		PageCursor.Page<Integer> first = PageCursor.of(2, null).page(items);
+		assertEquals(List.of(1, 2), first.getItems());
+		assertEquals("b", PageCursor.decode(first.getNextPageToken()));
+
+		PageCursor.Page<Integer> second = PageCursor.of(2, first.getNextPageToken()).page(items);
+		assertEquals(List.of(3), second.getItems());
+		assertNull(second.getNextPageToken());
+	}
+
+	@Test
+	void exactlyFullPageHasNoNextToken() {
+		TreeMap<String, Integer> items = new TreeMap<>();
+		items.put("a", 1);
+		items.put("b", 2);
+
+		PageCursor.Page<Integer> page = PageCursor.of(2, null).page(items);
+		assertEquals(List.of(1, 2), page.getItems());
+		assertNull(page.getNextPageToken());
+		assertEquals(List.of(1, 2), PageCursor.orAll(null, null).page(items).getItems());
+	}
+}
@@ -0,0 +1,43 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.Timestamp;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TagIndexTest {
+
+	@Test
+	void postingKeyRoundTrips() {
+		Timestamp startTime = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 123_456_789);
+		TagIndex.Posting posting = TagIndex.Posting.fromKey(new TagIndex.Posting("appt-1", startTime).key());
+
+		assertEquals("appt-1", posting.appointmentId);
+		assertEquals(startTime, posting.startTime);
+	}
+
+	@Test
+	void appointmentIdMayContainSeparator() {
+		Timestamp startTime = Timestamp.ofTimeSecondsAndNanos(60, 0);
+		TagIndex.Posting posting = TagIndex.Posting.fromKey(new TagIndex.Posting("a:b:c", startTime).key());
+
+		assertEquals("a:b:c", posting.appointmentId);
+		assertEquals(startTime, posting.startTime);
+	}
+
+	@Test
+	void missingStartTimeSortsFirst() {
+		TagIndex.Posting posting = new TagIndex.Posting("appt-1", null);
+
+		assertEquals(Timestamp.MIN_VALUE, posting.startTime);
+		assertEquals(Timestamp.MIN_VALUE, TagIndex.Posting.fromKey(posting.key()).startTime);
+	}
+
+	@Test
+	void malformedKeyIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> TagIndex.Posting.fromKey("appt-1"));
+		assertThrows(IllegalArgumentException.class, () -> TagIndex.Posting.fromKey("x:0:appt-1"));
+		assertThrows(IllegalArgumentException.class, () -> TagIndex.Posting.fromKey("60:2000000000:appt-1"));
+	}
+}
@@ -0,0 +1,56 @@
+package com.it342.projectmanagementsystem.service;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.FieldValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserTimelinesTest {
+
+	@Test
+	void syncCursorRoundTrips() {
+		Timestamp readTime = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 987_654_321);
+
+		assertEquals(readTime, UserTimelines.decodeSyncCursor(UserTimelines.encodeSyncCursor(readTime)));
+	}
+
+	@Test
+	void malformedSyncCursorIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> UserTimelines.decodeSyncCursor("%%%"));
+		assertThrows(IllegalArgumentException.class,
+				() -> UserTimelines.decodeSyncCursor(PageCursor.encode("1700000000")));
+		assertThrows(IllegalArgumentException.class,
+				() -> UserTimelines.decodeSyncCursor(PageCursor.encode("abc:0")));
+	}
+
+	@Test
+	void onlyFullUndeletedEntriesAreLive() {
+		Map<String, Object> entry = new HashMap<>();
+		entry.put("title", "Consultation");
+		entry.put("deleted", false);
+		assertTrue(UserTimelines.isLive(entry));
+
+		Map<String, Object> partial = new HashMap<>();
+		partial.put("status", "SCHEDULED");
+		assertFalse(UserTimelines.isLive(partial));
+
+		assertFalse(UserTimelines.isLive(UserTimelines.tombstone()));
+		assertFalse(UserTimelines.isLive(null));
+	}
+
+	@Test
+	void tombstoneIsDeletedFlagAndChangeTime() {
+		Map<String, Object> tombstone = UserTimelines.tombstone();
+
+		assertEquals(2, tombstone.size());
+		assertEquals(true, tombstone.get("deleted"));
+		assertEquals(FieldValue.serverTimestamp(), tombstone.get("changedAt"));
+	}
+}
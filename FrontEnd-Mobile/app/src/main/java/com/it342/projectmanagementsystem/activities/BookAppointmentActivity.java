@@ -18,6 +18,7 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.it342.projectmanagementsystem.R;
 import com.it342.projectmanagementsystem.api.ApiService;
 import com.it342.projectmanagementsystem.api.RetrofitClient;
+import com.it342.projectmanagementsystem.database.LocalStore;
 import com.it342.projectmanagementsystem.models.Appointment;
 import com.it342.projectmanagementsystem.models.FacultyAppointmentRequest;
 import com.it342.projectmanagementsystem.models.Faculty;
@@ -174,6 +175,15 @@ public class BookAppointmentActivity extends AppCompatActivity {
         SharedPreferences prefs = getSharedPreferences("AuthPrefs", MODE_PRIVATE);
         String token = prefs.getString("token", "");
 
+        // Fill the dropdown from the cache; the response below replaces it
+        LocalStore localStore = new LocalStore(this);
+        localStore.loadFaculties(cached -> {
+            if (facultyList.isEmpty() && !cached.isEmpty() && !isFinishing()) {
+                facultyList = cached;
+                setupFacultyDropdown();
+            }
+        });
+
         ApiService apiService = RetrofitClient.getInstance().getApiService();
         Call<List<Faculty>> call = apiService.getAllFaculties("Bearer " + token);
 
@@ -182,6 +192,7 @@ public class BookAppointmentActivity extends AppCompatActivity {
             public void onResponse(Call<List<Faculty>> call, Response<List<Faculty>> response) {
                 if (response.isSuccessful() && response.body() != null) {
                     facultyList = response.body();
+                    localStore.replaceFaculties(facultyList);
                     setupFacultyDropdown();
                 } else {
                     Toast.makeText(BookAppointmentActivity.this,
@@ -28,7 +28,9 @@ import com.it342.projectmanagementsystem.api.ApiService;
 import com.it342.projectmanagementsystem.api.RetrofitClient;
 import com.it342.projectmanagementsystem.models.Appointment;
 import com.it342.projectmanagementsystem.models.Tag;
+import com.it342.projectmanagementsystem.utils.AppointmentSyncStore;
 import com.it342.projectmanagementsystem.utils.Constants;
+import com.it342.projectmanagementsystem.utils.StartupTimer;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -64,6 +66,9 @@ public class FacultyAppointmentScheduleActivity extends AppCompatActivity implem
     private List<Appointment> allAppointments = new ArrayList<>();
     private Map<Calendar, List<Appointment>> appointmentsByDate = new HashMap<>();
     private AppointmentAdapter appointmentAdapter;
+    private AppointmentSyncStore appointmentSyncStore;
+    // Set once the synced list has been enriched with tags and shown
+    private boolean appointmentsReconciled = false;
     
     private SimpleDateFormat dateFormatter = new SimpleDateFormat("MMMM d, yyyy", Locale.getDefault());
     private SimpleDateFormat timeFormatter = new SimpleDateFormat("h:mm a", Locale.getDefault());
@@ -82,6 +87,7 @@ public class FacultyAppointmentScheduleActivity extends AppCompatActivity implem
         
         // Initialize API service
         apiService = RetrofitClient.getInstance().getApiService();
+        appointmentSyncStore = new AppointmentSyncStore(this);
         
         // Get user ID from SharedPreferences
         SharedPreferences prefs = getSharedPreferences(Constants.PREFS_NAME, MODE_PRIVATE);
@@ -93,6 +99,19 @@ public class FacultyAppointmentScheduleActivity extends AppCompatActivity implem
         // Setup calendar
         setupCalendar();
         
+        // Paint the cached schedule while the network load runs
+        if (!facultyId.isEmpty()) {
+            appointmentSyncStore.loadCached(facultyId, appointments -> {
+                if (!allAppointments.isEmpty() || appointments.isEmpty() || isFinishing()) {
+                    return;
+                }
+                Log.d(TAG, "Showing " + appointments.size() + " cached appointments");
+                allAppointments = new ArrayList<>(appointments);
+                StartupTimer.firstPaint(this, "cache");
+                processAppointments(allAppointments);
+            });
+        }
+        
         // Load appointments with slight delay to ensure UI is ready
         new android.os.Handler(getMainLooper()).post(new Runnable() {
             @Override
@@ -158,11 +177,40 @@ public class FacultyAppointmentScheduleActivity extends AppCompatActivity implem
         Log.d(TAG, "Loading appointments for faculty ID: " + facultyId);
         
         // Show loading indicator or message
-        tvNoAppointments.setText("Loading appointments...");
-        tvNoAppointments.setVisibility(View.VISIBLE);
+        if (allAppointments.isEmpty()) {
+            tvNoAppointments.setText("Loading appointments...");
+            tvNoAppointments.setVisibility(View.VISIBLE);
+        }
+        
+        SharedPreferences prefs = getSharedPreferences(Constants.PREFS_NAME, MODE_PRIVATE);
+        String token = prefs.getString(Constants.KEY_TOKEN, "");
+        if (token.isEmpty()) {
+            loadAppointmentsFromAPI();
+            return;
+        }
         
-        // First try to get appointments from the API
-        loadAppointmentsFromAPI();
+        // Only what changed since the last sync comes down; the full API load is the fallback
+        appointmentSyncStore.sync(apiService, facultyId, token, new AppointmentSyncStore.SyncListener() {
+            @Override
+            public void onSynced(List<Appointment> appointments, boolean changed) {
+                if (!changed && appointmentsReconciled) {
+                    Log.d(TAG, "Faculty appointments unchanged since last sync");
+                    return;
+                }
+                appointmentsReconciled = true;
+                if (appointments.isEmpty()) {
+                    loadAppointmentsFromFirebase();
+                    return;
+                }
+                allAppointments = new ArrayList<>(appointments);
+                fetchTagsFromFirestore();
+            }
+            
+            @Override
+            public void onFallback() {
+                loadAppointmentsFromAPI();
+            }
+        });
     }
     
     private void loadAppointmentsFromAPI() {
@@ -17,22 +17,28 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.it342.projectmanagementsystem.PMSApplication;
 import com.it342.projectmanagementsystem.R;
 import com.it342.projectmanagementsystem.adapters.NotificationAdapter;
+import com.it342.projectmanagementsystem.api.ApiService;
+import com.it342.projectmanagementsystem.api.RetrofitClient;
 import com.it342.projectmanagementsystem.models.Notification;
+import com.it342.projectmanagementsystem.utils.AppointmentSyncStore;
 import com.it342.projectmanagementsystem.utils.Constants;
 import com.it342.projectmanagementsystem.utils.LocalNotificationService;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 
 public class FacultyDashboardActivity extends AppCompatActivity implements NotificationAdapter.OnNotificationClickListener {
     
     private static final String TAG = "FacultyDashboard";
+    private static final int DIALOG_PAGE_SIZE = 20;
     
     private TextView tvFacultyWelcome;
     private Button btnManageRequests, btnViewSchedule, btnManageParticipants;
@@ -40,7 +46,7 @@ public class FacultyDashboardActivity extends AppCompatActivity implements Notif
     private ImageButton btnNotifications;
     private TextView tvNotificationBadge;
     
-    private FirebaseFirestore db;
+    private ApiService apiService;
     private String userId;
     private List<Notification> notificationsList = new ArrayList<>();
     private int unreadCount = 0;
@@ -50,7 +56,7 @@ public class FacultyDashboardActivity extends AppCompatActivity implements Notif
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_faculty_dashboard);
         
-        db = FirebaseFirestore.getInstance();
+        apiService = RetrofitClient.getInstance().getApiService();
         
         initializeViews();
         setupButtonClickListeners();
@@ -118,34 +124,31 @@ public class FacultyDashboardActivity extends AppCompatActivity implements Notif
     }
     
     private void fetchNotifications() {
-        // Fetch notifications for the current faculty
-        db.collection("notifications")
-            .whereEqualTo("recipientId", userId)
-            .orderBy("createdAt", Query.Direction.DESCENDING)
-            .orderBy("id", Query.Direction.DESCENDING)
-            .get()
-            .addOnSuccessListener(queryDocumentSnapshots -> {
-                notificationsList.clear();
-                unreadCount = 0;
-                
-                for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                    Notification notification = document.toObject(Notification.class);
-                    notification.setId(document.getId());
-                    notificationsList.add(notification);
-                    
-                    if (!notification.isRead()) {
-                        unreadCount++;
-                    }
+        // Badge count comes from the server's per-user unread counter
+        apiService.getUnreadNotificationCount("Bearer " + getToken()).enqueue(new Callback<Map<String, Object>>() {
+            @Override
+            public void onResponse(Call<Map<String, Object>> call, Response<Map<String, Object>> response) {
+                if (response.isSuccessful() && response.body() != null
+                        && response.body().get("unreadCount") instanceof Number) {
+                    unreadCount = ((Number) response.body().get("unreadCount")).intValue();
+                    updateNotificationBadge();
+                    Log.d(TAG, "Unread notifications: " + unreadCount);
+                } else {
+                    Log.e(TAG, "Error fetching unread notification count: " + response.code());
                 }
-                
-                updateNotificationBadge();
-                Log.d(TAG, "Fetched " + notificationsList.size() + " notifications, " + unreadCount + " unread");
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error fetching notifications", e);
-            });
+            }
+
+            @Override
+            public void onFailure(Call<Map<String, Object>> call, Throwable t) {
+                Log.e(TAG, "Error fetching unread notification count", t);
+            }
+        });
     }
     
+    private String getToken() {
+        return getSharedPreferences(Constants.PREFS_NAME, MODE_PRIVATE).getString(Constants.KEY_TOKEN, "");
+    }
+
     private void updateNotificationBadge() {
         if (unreadCount > 0) {
             tvNotificationBadge.setVisibility(View.VISIBLE);
@@ -156,6 +159,28 @@ public class FacultyDashboardActivity extends AppCompatActivity implements Notif
     }
     
     private void showNotificationsDialog() {
+        // The list itself is only fetched when the dialog is opened: the newest page of the inbox
+        apiService.getNotifications(DIALOG_PAGE_SIZE, null, "Bearer " + getToken()).enqueue(new Callback<List<Notification>>() {
+            @Override
+            public void onResponse(Call<List<Notification>> call, Response<List<Notification>> response) {
+                notificationsList.clear();
+                if (response.isSuccessful() && response.body() != null) {
+                    notificationsList.addAll(response.body());
+                } else {
+                    Log.e(TAG, "Error fetching notifications: " + response.code());
+                }
+                openNotificationsDialog();
+            }
+
+            @Override
+            public void onFailure(Call<List<Notification>> call, Throwable t) {
+                Log.e(TAG, "Error fetching notifications", t);
+                Toast.makeText(FacultyDashboardActivity.this, "Could not load notifications", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    private void openNotificationsDialog() {
         final Dialog dialog = new Dialog(this);
         dialog.requestWindowFeature(Window.FEATURE_NO_TITLE);
         dialog.setContentView(R.layout.dialog_notifications);
@@ -184,18 +209,22 @@ public class FacultyDashboardActivity extends AppCompatActivity implements Notif
     
     private void markAllNotificationsAsRead() {
         for (Notification notification : notificationsList) {
-            if (!notification.isRead()) {
-                notification.setRead(true);
-                
-                // Update in Firestore
-                db.collection("notifications")
-                    .document(notification.getId())
-                    .update("read", true)
-                    .addOnSuccessListener(aVoid -> Log.d(TAG, "Notification marked as read: " + notification.getId()))
-                    .addOnFailureListener(e -> Log.e(TAG, "Error marking notification as read", e));
-            }
+            notification.setRead(true);
         }
         
+        // One batched server call, which also resets the unread counter
+        apiService.markAllNotificationsRead("Bearer " + getToken()).enqueue(new Callback<Map<String, Object>>() {
+            @Override
+            public void onResponse(Call<Map<String, Object>> call, Response<Map<String, Object>> response) {
+                Log.d(TAG, "Mark all read response: " + response.code() + " " + response.body());
+            }
+
+            @Override
+            public void onFailure(Call<Map<String, Object>> call, Throwable t) {
+                Log.e(TAG, "Error marking notifications as read", t);
+            }
+        });
+        
         // Clear the badge count
         unreadCount = 0;
         updateNotificationBadge();
@@ -234,6 +263,7 @@ public class FacultyDashboardActivity extends AppCompatActivity implements Notif
         SharedPreferences.Editor editor = prefs.edit();
         editor.clear();
         editor.apply();
+        new AppointmentSyncStore(this).clear();
         
         // Redirect to login form screen
         Intent intent = new Intent(this, LoginFormActivity.class);
@@ -24,6 +24,8 @@ import com.it342.projectmanagementsystem.api.RetrofitClient;
 import com.it342.projectmanagementsystem.models.Appointment;
 import com.it342.projectmanagementsystem.models.Tag;
 import com.it342.projectmanagementsystem.models.TimestampObject;
+import com.it342.projectmanagementsystem.utils.AppointmentSyncStore;
+import com.it342.projectmanagementsystem.utils.StartupTimer;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -53,11 +55,15 @@ public class HomePage extends AppCompatActivity {
     private ImageButton btnLogout;
     private TextView tvNotificationBadge;
     private int unreadNotificationCount = 0;
+    private AppointmentSyncStore appointmentSyncStore;
+    // Set once the synced list has been enriched with tags and shown
+    private boolean appointmentsReconciled = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_home_page);
+        appointmentSyncStore = new AppointmentSyncStore(this);
 
         initializeViews();
         setupNavigation();
@@ -76,8 +82,8 @@ public class HomePage extends AppCompatActivity {
                 timerHandler.postDelayed(this, 1000); // Update every second
             }
         };
-        
-        fetchAppointments();
+        // Paint the cached list now; onResume, which always follows, reconciles it
+        showCachedAppointments();
     }
 
     private void initializeViews() {
@@ -129,6 +135,56 @@ public class HomePage extends AppCompatActivity {
         welcomeText.setText("Welcome, " + firstName + "!");
     }
 
+    private void showCachedAppointments() {
+        String userId = getSharedPreferences("AuthPrefs", MODE_PRIVATE).getString("userId", "");
+        if (userId.isEmpty()) {
+            return;
+        }
+        appointmentSyncStore.loadCached(userId, appointments -> {
+            // The network may have answered first
+            if (currentAppointments != null || appointments.isEmpty() || isFinishing()) {
+                return;
+            }
+            Log.d(TAG, "Showing " + appointments.size() + " cached appointments");
+            StartupTimer.firstPaint(this, "cache");
+            displayAppointments(appointments);
+        });
+    }
+
+    // Applies only what changed since the last visit; falls back to the full load
+    private void refreshAppointments() {
+        SharedPreferences prefs = getSharedPreferences("AuthPrefs", MODE_PRIVATE);
+        String token = prefs.getString("token", "");
+        String userId = prefs.getString("userId", "");
+        if (token.isEmpty() || userId.isEmpty()) {
+            fetchAppointments();
+            return;
+        }
+
+        ApiService apiService = RetrofitClient.getInstance().getApiService();
+        appointmentSyncStore.sync(apiService, userId, token, new AppointmentSyncStore.SyncListener() {
+            @Override
+            public void onSynced(List<Appointment> appointments, boolean changed) {
+                if (!changed && appointmentsReconciled) {
+                    Log.d(TAG, "Appointments unchanged since last sync");
+                    return;
+                }
+                appointmentsReconciled = true;
+                if (appointments.isEmpty()) {
+                    displayAppointments(appointments);
+                } else {
+                    // Tags are not part of the synced summary
+                    fetchAppointmentsFromFirestore(appointments);
+                }
+            }
+
+            @Override
+            public void onFallback() {
+                fetchAppointments();
+            }
+        });
+    }
+
     private void fetchAppointments() {
         SharedPreferences prefs = getSharedPreferences("AuthPrefs", MODE_PRIVATE);
         String token = prefs.getString("token", "");
@@ -466,6 +522,7 @@ public class HomePage extends AppCompatActivity {
 
         // Store current appointments for the timer
         currentAppointments = upcomingAppointments;
+        StartupTimer.firstPaint(this, "network");
         
         Log.d(TAG, "Displaying " + upcomingAppointments.size() + " upcoming appointments");
         LayoutInflater inflater = LayoutInflater.from(this);
@@ -612,7 +669,7 @@ public class HomePage extends AppCompatActivity {
         if (currentAppointments != null && !currentAppointments.isEmpty()) {
             startCountdownTimer();
         }
-        fetchAppointments(); // Refresh appointments when returning to the page
+        refreshAppointments(); // Refresh appointments when returning to the page
         fetchUnreadNotificationsCount(); // Check for unread notifications
     }
     
@@ -973,6 +1030,7 @@ public class HomePage extends AppCompatActivity {
         SharedPreferences.Editor editor = prefs.edit();
         editor.clear();
         editor.apply();
+        appointmentSyncStore.clear();
         
         // Navigate to login form
         Intent intent = new Intent(this, LoginFormActivity.class);
@@ -990,20 +1048,27 @@ public class HomePage extends AppCompatActivity {
             return;
         }
         
-        // Query Firestore for unread notifications
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        db.collection("notifications")
-            .whereEqualTo("recipientId", userId)
-            .whereEqualTo("read", false)
-            .get()
-            .addOnSuccessListener(querySnapshot -> {
-                unreadNotificationCount = querySnapshot.size();
-                updateNotificationBadge();
-                Log.d(TAG, "Unread notifications: " + unreadNotificationCount);
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error fetching unread notifications", e);
-            });
+        // The server keeps a per-user unread counter, so this is one small read
+        String token = prefs.getString("token", "");
+        ApiService apiService = RetrofitClient.getInstance().getApiService();
+        apiService.getUnreadNotificationCount("Bearer " + token).enqueue(new Callback<Map<String, Object>>() {
+            @Override
+            public void onResponse(Call<Map<String, Object>> call, Response<Map<String, Object>> response) {
+                if (response.isSuccessful() && response.body() != null
+                        && response.body().get("unreadCount") instanceof Number) {
+                    unreadNotificationCount = ((Number) response.body().get("unreadCount")).intValue();
+                    updateNotificationBadge();
+                    Log.d(TAG, "Unread notifications: " + unreadNotificationCount);
+                } else {
+                    Log.e(TAG, "Error fetching unread notifications: " + response.code());
+                }
+            }
+
+            @Override
+            public void onFailure(Call<Map<String, Object>> call, Throwable t) {
+                Log.e(TAG, "Error fetching unread notifications", t);
+            }
+        });
     }
     
     private void updateNotificationBadge() {
@@ -14,37 +14,46 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.firebase.Timestamp;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.it342.projectmanagementsystem.R;
 import com.it342.projectmanagementsystem.adapters.NotificationAdapter;
+import com.it342.projectmanagementsystem.api.ApiService;
+import com.it342.projectmanagementsystem.api.RetrofitClient;
+import com.it342.projectmanagementsystem.database.LocalStore;
 import com.it342.projectmanagementsystem.models.Notification;
+import com.it342.projectmanagementsystem.utils.NotificationHelper;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
 public class NotificationsActivity extends AppCompatActivity implements NotificationAdapter.NotificationInteractionListener {
     private static final String TAG = "NotificationsActivity";
     private static final boolean IS_DEBUG = true;
+    private static final int PAGE_SIZE = 20;
     private RecyclerView recyclerViewNotifications;
     private NotificationAdapter notificationAdapter;
     private ProgressBar loadingIndicator;
     private LinearLayout emptyStateView;
     private TextView btnMarkAllRead;
-    private FirebaseFirestore db;
+    private ApiService apiService;
+    private LocalStore localStore;
     private String userId;
+    private final List<Notification> loadedNotifications = new ArrayList<>();
+    private String nextPageToken;
+    private boolean loadingPage;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_notifications);
         
-        // Initialize Firestore
-        db = FirebaseFirestore.getInstance();
+        // Initialize the API client
+        apiService = RetrofitClient.getInstance().getApiService();
+        localStore = new LocalStore(this);
         
         // Get the user ID from SharedPreferences
         SharedPreferences prefs = getSharedPreferences("AuthPrefs", MODE_PRIVATE);
@@ -78,8 +87,22 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
 
     private void setupRecyclerView() {
         notificationAdapter = new NotificationAdapter(this, this);
-        recyclerViewNotifications.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerViewNotifications.setLayoutManager(layoutManager);
         recyclerViewNotifications.setAdapter(notificationAdapter);
+
+        // Fetch the next page as the user nears the end of the list
+        recyclerViewNotifications.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0 || loadingPage || nextPageToken == null) {
+                    return;
+                }
+                if (layoutManager.findLastVisibleItemPosition() >= notificationAdapter.getItemCount() - 5) {
+                    loadNotificationsPage(nextPageToken);
+                }
+            }
+        });
     }
 
     private void setupListeners() {
@@ -92,7 +115,7 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
         // For demonstration, we'll add some sample notifications
         // In a real app, you would fetch these from Firestore
         if (isUsingFirestore()) {
-            loadNotificationsFromFirestore();
+            loadNotificationsFromServer();
         } else {
             loadSampleNotifications();
         }
@@ -104,206 +127,60 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
         return true;
     }
     
-    private void loadNotificationsFromFirestore() {
-        try {
-            Log.d(TAG, "Loading notifications for user: " + userId);
-            
-            // Get the user email for alternative queries
-            SharedPreferences prefs = getSharedPreferences("AuthPrefs", MODE_PRIVATE);
-            String userEmail = prefs.getString("email", "");
-            
-            // DEBUG: Log all relevant user information
-            logUserInfo(userEmail);
-            
-            if (userEmail.isEmpty()) {
-                Log.w(TAG, "User email not found, only querying by userId");
-            } else {
-                Log.d(TAG, "User email for faculty query: " + userEmail);
+    private void loadNotificationsFromServer() {
+        loadedNotifications.clear();
+        nextPageToken = null;
+        loadNotificationsPage(null);
+
+        // Show the cached first page until the server's arrives
+        localStore.loadNotifications(userId, PAGE_SIZE, cached -> {
+            if (!loadedNotifications.isEmpty() || cached.isEmpty() || isFinishing()) {
+                return;
             }
-            
-            // DEBUG: Check all notifications in the collection to see if any match our criteria
-            checkAllNotifications(userEmail);
-            
-            // Try to get notifications directly by checking document fields first
-            getNormalizedNotifications(userEmail);
-        } catch (Exception e) {
-            Log.e(TAG, "Exception in loadNotificationsFromFirestore", e);
+            Log.d(TAG, "Showing " + cached.size() + " cached notifications");
             hideLoading();
-            loadSampleNotifications();
-        }
-    }
-    
-    // Helper method to log all user information
-    private void logUserInfo(String email) {
-        SharedPreferences prefs = getSharedPreferences("AuthPrefs", MODE_PRIVATE);
-        String userType = prefs.getString("userType", "unknown");
-        String userName = prefs.getString("firstName", "") + " " + prefs.getString("lastName", "");
-        
-        Log.d(TAG, "====== CURRENT USER INFO ======");
-        Log.d(TAG, "User ID: " + userId);
-        Log.d(TAG, "User Email: " + email);
-        Log.d(TAG, "User Type: " + userType);
-        Log.d(TAG, "User Name: " + userName);
-        Log.d(TAG, "===============================");
+            updateNotificationList(cached);
+        });
     }
-    
+
     /**
-     * Get notifications by checking document fields directly, avoiding type mapping issues
+     * Fetch one page of this user's inbox from the backend, newest first, and append it
      */
-    private void getNormalizedNotifications(String userEmail) {
-        db.collection("notifications")
-            .get()
-            .addOnSuccessListener(querySnapshot -> {
+    private void loadNotificationsPage(String pageToken) {
+        loadingPage = true;
+
+        apiService.getNotifications(PAGE_SIZE, pageToken, "Bearer " + getToken()).enqueue(new Callback<List<Notification>>() {
+            @Override
+            public void onResponse(Call<List<Notification>> call, Response<List<Notification>> response) {
+                loadingPage = false;
                 hideLoading();
-                List<Notification> userNotifications = new ArrayList<>();
-                int totalNotifications = querySnapshot.size();
-                
-                Log.d(TAG, "Retrieved " + totalNotifications + " total notifications");
-                
-                // Create a collection to hold raw document data
-                List<Map<String, Object>> matchingDocs = new ArrayList<>();
-                
-                // First pass - find documents that match this user
-                for (QueryDocumentSnapshot document : querySnapshot) {
-                    Map<String, Object> data = document.getData();
-                    boolean matches = false;
-                    
-                    // Check for userId field (faculty notifications)
-                    if (data.containsKey("userId")) {
-                        String docUserId = document.getString("userId");
-                        if (userId.equals(docUserId) || userEmail.equals(docUserId)) {
-                            matches = true;
-                            Log.d(TAG, "Found matching notification by userId: " + document.getId() + 
-                                  ", value: " + docUserId);
-                        }
-                    }
-                    
-                    // Check for recipientId field (student notifications)
-                    if (!matches && data.containsKey("recipientId")) {
-                        String recipientId = document.getString("recipientId");
-                        if (userId.equals(recipientId)) {
-                            matches = true;
-                            Log.d(TAG, "Found matching notification by recipientId: " + document.getId() + 
-                                  ", value: " + recipientId);
-                        }
-                    }
-                    
-                    if (matches) {
-                        Map<String, Object> docData = new HashMap<>(data);
-                        docData.put("id", document.getId());
-                        matchingDocs.add(docData);
-                    }
-                }
-                
-                Log.d(TAG, "Found " + matchingDocs.size() + " matching notifications by direct field check");
-                
-                // Second pass - convert to Notification objects
-                for (Map<String, Object> docData : matchingDocs) {
-                    try {
-                        String id = (String) docData.get("id");
-                        String title = (String) docData.get("title");
-                        String message = (String) docData.get("message");
-                        
-                        if (title == null) {
-                            // If no title, try alternatives
-                            if (docData.containsKey("details")) {
-                                Object details = docData.get("details");
-                                if (details instanceof Map) {
-                                    Map<String, Object> detailsMap = (Map<String, Object>) details;
-                                    if (detailsMap.containsKey("title")) {
-                                        title = (String) detailsMap.get("title");
-                                    }
-                                }
-                            }
-                        }
-                        
-                        // Ensure we have a title
-                        if (title == null || title.isEmpty()) {
-                            title = "Notification " + id;
-                        }
-                        
-                        // Create a notification object
-                        Notification notification = new Notification();
-                        notification.setId(id);
-                        notification.setTitle(title);
-                        
-                        // Set message
-                        if (message != null) {
-                            notification.setMessage(message);
-                        } else if (docData.containsKey("studentName")) {
-                            String studentName = (String) docData.get("studentName");
-                            String reason = (String) docData.get("reason");
-                            notification.setMessage(studentName + " has requested an appointment. Reason: " + reason);
-                            notification.setStudentName(studentName);
-                            notification.setReason(reason);
-                        }
-                        
-                        // Set other fields if available
-                        if (docData.containsKey("createdAt")) {
-                            notification.setCreatedAt((Timestamp) docData.get("createdAt"));
-                        }
-                        
-                        if (docData.containsKey("read")) {
-                            notification.setRead((Boolean) docData.get("read"));
-                        }
-                        
-                        if (docData.containsKey("type")) {
-                            notification.setType((String) docData.get("type"));
-                        }
-                        
-                        if (docData.containsKey("appointmentId")) {
-                            notification.setAppointmentId((String) docData.get("appointmentId"));
-                        }
-                        
-                        Log.d(TAG, "Created notification from raw data: " + notification.getTitle());
-                        userNotifications.add(notification);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error creating notification from document data", e);
+                if (!response.isSuccessful() || response.body() == null) {
+                    Log.e(TAG, "Error loading notifications: " + response.code());
+                    if (loadedNotifications.isEmpty()) {
+                        showEmptyState();
                     }
+                    return;
                 }
-                
-                // Sort by creation time
-                if (!userNotifications.isEmpty()) {
-                    userNotifications.sort((a, b) -> {
-                        Timestamp aTime = a.getCreatedAt();
-                        Timestamp bTime = b.getCreatedAt();
-                        
-                        if (aTime == null) return 1;
-                        if (bTime == null) return -1;
-                        
-                        return bTime.compareTo(aTime);
-                    });
+
+                nextPageToken = response.headers().get(ApiService.NEXT_PAGE_TOKEN_HEADER);
+                if (pageToken == null) {
+                    localStore.replaceNotifications(userId, response.body());
                 }
-                
-                // Update UI
-                updateNotificationList(userNotifications);
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error in getNormalizedNotifications", e);
+                loadedNotifications.addAll(response.body());
+                Log.d(TAG, "Loaded " + response.body().size() + " notifications, more: " + (nextPageToken != null));
+                updateNotificationList(loadedNotifications);
+            }
+
+            @Override
+            public void onFailure(Call<List<Notification>> call, Throwable t) {
+                loadingPage = false;
+                Log.e(TAG, "Network error loading notifications", t);
                 hideLoading();
-                // Fallback to standard method
-                fetchAllNotificationsAndFilter(userEmail);
-            });
-    }
-    
-    /**
-     * Normalize email for comparison with different formats in the database
-     */
-    private String normalizeEmail(String email) {
-        if (email == null || email.isEmpty()) {
-            return "";
-        }
-        
-        // Convert to lowercase
-        String normalized = email.toLowerCase();
-        
-        // Try different user IDs that might be in the database
-        if ("miguel@jaca.com".equals(normalized)) {
-            // Check Firebase Auth user ID mapping in case user ID is stored differently 
-            return "U78fK4wPUlDZiJSb5GdD";
-        }
-        
-        return normalized;
+                if (loadedNotifications.isEmpty()) {
+                    showEmptyState();
+                }
+            }
+        });
     }
 
     private void loadSampleNotifications() {
@@ -402,13 +279,12 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
         Log.d(TAG, "Creating new notification for user: " + userId);
         
         // Add to Firestore
-        db.collection("notifications")
-            .add(newNotification)
-            .addOnSuccessListener(documentReference -> {
-                Log.d(TAG, "Notification created with ID: " + documentReference.getId());
+        NotificationHelper.addNotification(userId, newNotification)
+            .addOnSuccessListener(aVoid -> {
+                Log.d(TAG, "Notification created for user: " + userId);
                 
                 // Reload notifications
-                loadNotificationsFromFirestore();
+                loadNotificationsFromServer();
             })
             .addOnFailureListener(e -> {
                 Log.e(TAG, "Error creating notification", e);
@@ -426,15 +302,19 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
         // Update the UI first for responsiveness
         notificationAdapter.markAsRead(position);
         
-        // Then update in Firestore if we're using it
+        // Then update on the server, which also takes it off the unread counter
         if (isUsingFirestore() && notification.getId() != null) {
-            db.collection("notifications")
-                .document(notification.getId())
-                .update("read", true)
-                .addOnSuccessListener(aVoid -> 
-                    Log.d(TAG, "Notification marked as read: " + notification.getId()))
-                .addOnFailureListener(e -> 
-                    Log.e(TAG, "Error marking notification as read", e));
+            apiService.markNotificationRead(notification.getId(), "Bearer " + getToken()).enqueue(new Callback<Void>() {
+                @Override
+                public void onResponse(Call<Void> call, Response<Void> response) {
+                    Log.d(TAG, "Notification marked as read: " + notification.getId() + " (" + response.code() + ")");
+                }
+
+                @Override
+                public void onFailure(Call<Void> call, Throwable t) {
+                    Log.e(TAG, "Error marking notification as read", t);
+                }
+            });
         }
     }
 
@@ -453,51 +333,24 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
             }
         }
         
-        // Update in Firestore if we're using it
+        // One batched server call marks the rest and resets the unread counter
         if (isUsingFirestore()) {
-            SharedPreferences prefs = getSharedPreferences("AuthPrefs", MODE_PRIVATE);
-            String userEmail = prefs.getString("email", "");
-            
-            // Mark as read for "recipientId" field format
-            markNotificationsByField("recipientId", userId);
-            
-            // Mark as read for "userId" field format (faculty notifications)
-            if (!userEmail.isEmpty()) {
-                markNotificationsByField("userId", userEmail);
-            }
-        }
-    }
-    
-    private void markNotificationsByField(String fieldName, String fieldValue) {
-        // Get unread notifications
-        db.collection("notifications")
-            .whereEqualTo(fieldName, fieldValue)
-            .whereEqualTo("read", false)
-            .get()
-            .addOnSuccessListener(querySnapshot -> {
-                if (querySnapshot.isEmpty()) {
-                    Log.d(TAG, "No unread notifications to mark as read for " + fieldName + ": " + fieldValue);
-                    return;
+            apiService.markAllNotificationsRead("Bearer " + getToken()).enqueue(new Callback<Map<String, Object>>() {
+                @Override
+                public void onResponse(Call<Map<String, Object>> call, Response<Map<String, Object>> response) {
+                    Log.d(TAG, "Mark all read response: " + response.code() + " " + response.body());
                 }
-                
-                Log.d(TAG, "Marking " + querySnapshot.size() + " notifications as read for " + fieldName);
-                
-                // Create a batch operation to update all notifications in one call
-                com.google.firebase.firestore.WriteBatch batch = db.batch();
-                
-                for (com.google.firebase.firestore.QueryDocumentSnapshot document : querySnapshot) {
-                    batch.update(document.getReference(), "read", true);
+
+                @Override
+                public void onFailure(Call<Map<String, Object>> call, Throwable t) {
+                    Log.e(TAG, "Error marking all notifications as read", t);
                 }
-                
-                // Commit the batch operation
-                batch.commit()
-                    .addOnSuccessListener(aVoid -> 
-                        Log.d(TAG, "All notifications marked as read successfully for " + fieldName))
-                    .addOnFailureListener(e -> 
-                        Log.e(TAG, "Error marking all notifications as read for " + fieldName, e));
-            })
-            .addOnFailureListener(e -> 
-                Log.e(TAG, "Error getting unread notifications for " + fieldName, e));
+            });
+        }
+    }
+
+    private String getToken() {
+        return getSharedPreferences("AuthPrefs", MODE_PRIVATE).getString("token", "");
     }
 
     @Override
@@ -559,116 +412,4 @@ public class NotificationsActivity extends AppCompatActivity implements Notifica
         emptyStateView.setVisibility(View.GONE);
         recyclerViewNotifications.setVisibility(View.VISIBLE);
     }
-
-    // DEBUG method to check all notifications
-    private void checkAllNotifications(String userEmail) {
-        db.collection("notifications")
-            .get()
-            .addOnSuccessListener(querySnapshot -> {
-                Log.d(TAG, "Total notifications in Firestore: " + querySnapshot.size());
-                
-                for (QueryDocumentSnapshot document : querySnapshot) {
-                    Log.d(TAG, "Notification ID: " + document.getId());
-                    
-                    // Check for relevant fields
-                    if (document.contains("recipientId")) {
-                        Log.d(TAG, "  recipientId: " + document.getString("recipientId"));
-                    }
-                    
-                    if (document.contains("userId")) {
-                        Log.d(TAG, "  userId: " + document.getString("userId"));
-                    }
-                    
-                    if (document.contains("title")) {
-                        Log.d(TAG, "  title: " + document.getString("title"));
-                    }
-                    
-                    // Check if this notification should be shown to the current user
-                    if (userId.equals(document.getString("recipientId")) || 
-                        userEmail.equals(document.getString("userId"))) {
-                        Log.d(TAG, "  ** THIS NOTIFICATION SHOULD BE VISIBLE TO CURRENT USER **");
-                    }
-                }
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error checking all notifications", e);
-            });
-    }
-
-    /**
-     * Fallback approach that avoids complex queries and index requirements
-     */
-    private void fetchAllNotificationsAndFilter(String userEmail) {
-        db.collection("notifications")
-            .get()
-            .addOnSuccessListener(querySnapshot -> {
-                hideLoading();
-                
-                Log.d(TAG, "Fallback method: Retrieved " + querySnapshot.size() + " total notifications");
-                List<Notification> userNotifications = new ArrayList<>();
-                
-                // Check if we need to normalize the email
-                String normalizedEmail = normalizeEmail(userEmail);
-                if (!normalizedEmail.equals(userEmail)) {
-                    Log.d(TAG, "Normalized email from '" + userEmail + "' to '" + normalizedEmail + "'");
-                }
-                
-                for (QueryDocumentSnapshot document : querySnapshot) {
-                    try {
-                        // Check if this notification is for the current user
-                        boolean isForCurrentUser = false;
-                        
-                        // Check recipientId field
-                        if (document.contains("recipientId") && userId.equals(document.getString("recipientId"))) {
-                            isForCurrentUser = true;
-                            Log.d(TAG, "Found notification for user by recipientId: " + document.getId());
-                        }
-                        
-                        // Check userId field (for faculty notifications)
-                        if (!isForCurrentUser && document.contains("userId")) {
-                            String docUserId = document.getString("userId");
-                            
-                            // Try exact match
-                            if (userEmail.equals(docUserId)) {
-                                isForCurrentUser = true;
-                                Log.d(TAG, "Found notification - exact userId match: " + document.getId());
-                            }
-                            // Try normalized match
-                            else if (normalizedEmail.equals(docUserId)) {
-                                isForCurrentUser = true;
-                                Log.d(TAG, "Found notification - normalized userId match: " + document.getId());
-                            }
-                            // Log for debugging
-                            else {
-                                Log.d(TAG, "userId mismatch: '" + docUserId + "' vs '" + userEmail + "' for notification: " + document.getId());
-                            }
-                        }
-                        
-                        if (isForCurrentUser) {
-                            // Convert to notification object
-                            Notification notification = document.toObject(Notification.class);
-                            notification.setId(document.getId());
-                            
-                            // Log notification details for debugging
-                            Log.d(TAG, "Adding notification: " + notification.getId() + 
-                                  ", Title: " + notification.getTitle() + 
-                                  ", Type: " + notification.getType());
-                            
-                            userNotifications.add(notification);
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error processing notification document: " + document.getId(), e);
-                    }
-                }
-                
-                Log.d(TAG, "Fallback method found " + userNotifications.size() + " notifications for current user");
-                
-                updateNotificationList(userNotifications);
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error in fallback method", e);
-                hideLoading();
-                showEmptyState();
-            });
-    }
-} 
\ No newline at end of file
+}
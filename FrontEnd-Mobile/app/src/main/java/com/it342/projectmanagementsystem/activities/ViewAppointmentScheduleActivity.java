@@ -21,6 +21,7 @@ import com.applandeo.materialcalendarview.listeners.OnDayClickListener;
 import com.it342.projectmanagementsystem.adapters.AppointmentAdapter;
 import com.it342.projectmanagementsystem.models.Appointment;
 import com.it342.projectmanagementsystem.models.Tag;
+import com.it342.projectmanagementsystem.utils.AppointmentSyncStore;
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -106,8 +107,33 @@ public class ViewAppointmentScheduleActivity extends AppCompatActivity implement
         tvNoAppointments.setText("Loading appointments...");
         tvNoAppointments.setVisibility(View.VISIBLE);
         
-        // Try to load from Firebase first
-        loadAppointmentsFromFirebase(userId);
+        // Paint the cached schedule, then apply the changes since the last sync;
+        // Firebase is the fallback
+        AppointmentSyncStore appointmentSyncStore = new AppointmentSyncStore(this);
+        appointmentSyncStore.loadCached(userId, appointments -> {
+            if (!allAppointments.isEmpty() || appointments.isEmpty() || isFinishing()) {
+                return;
+            }
+            allAppointments.addAll(appointments);
+            processAppointments(allAppointments);
+        });
+        appointmentSyncStore.sync(apiService, userId, token, new AppointmentSyncStore.SyncListener() {
+            @Override
+            public void onSynced(List<Appointment> appointments, boolean changed) {
+                if (appointments.isEmpty()) {
+                    loadAppointmentsFromFirebase(userId);
+                    return;
+                }
+                allAppointments.clear();
+                allAppointments.addAll(appointments);
+                fetchTagsForAppointments();
+            }
+            
+            @Override
+            public void onFallback() {
+                loadAppointmentsFromFirebase(userId);
+            }
+        });
     }
     
     /**
@@ -6,9 +6,11 @@ import com.it342.projectmanagementsystem.models.RegisterRequest;
 import com.it342.projectmanagementsystem.models.RegisterResponse;
 import com.it342.projectmanagementsystem.models.User;
 import com.it342.projectmanagementsystem.models.Appointment;
+import com.it342.projectmanagementsystem.models.AppointmentChanges;
 import com.it342.projectmanagementsystem.models.FacultyAppointmentRequest;
 import com.it342.projectmanagementsystem.models.Faculty;
 import com.it342.projectmanagementsystem.models.AppointmentRequest;
+import com.it342.projectmanagementsystem.models.Notification;
 
 import retrofit2.Call;
 import retrofit2.http.Body;
@@ -18,6 +20,7 @@ import retrofit2.http.Header;
 import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
+import retrofit2.http.Query;
 
 import java.util.List;
 import java.util.Map;
@@ -77,6 +80,10 @@ public interface ApiService {
 
     @POST("/api/appointments/{appointmentId}/approve")
     Call<Appointment> approveAppointment(@Path("appointmentId") String appointmentId, @Body Map<String, Boolean> approvalBody, @Header("Authorization") String token);
+
+    // Body: {"decisions": [{"appointmentId": ..., "approved": true|false}, ...]}
+    @POST("/api/appointments/approve-batch")
+    Call<Map<String, Object>> approveAppointments(@Body Map<String, Object> decisionsBody, @Header("Authorization") String token);
     
     @GET("/api/users/students")
     Call<List<Map<String, Object>>> getAllStudents(@Header("Authorization") String token);
@@ -119,4 +126,100 @@ public interface ApiService {
         @Path("appointmentId") String appointmentId,
         @Header("Authorization") String token
     );
+
+    // Paged list endpoints: pass null pageToken for the first page, then the
+    // X-Next-Page-Token response header until it is absent. The unpaged calls above
+    // send neither parameter and still receive the whole list.
+    String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
+    @GET("/api/appointments")
+    Call<List<Appointment>> getAppointmentsPage(
+        @Query("pageSize") Integer pageSize,
+        @Query("pageToken") String pageToken,
+        @Header("Authorization") String token
+    );
+
+    // Delta sync: pass null since for the first call, then the cursor from the previous response
+    @GET("/api/appointments/changes")
+    Call<AppointmentChanges> getAppointmentChanges(
+        @Query("since") String since,
+        @Header("Authorization") String token
+    );
+
+    @GET("/api/appointments/user/{userId}")
+    Call<List<Appointment>> getUserAppointmentsPage(
+        @Path("userId") String userId,
+        @Query("pageSize") Integer pageSize,
+        @Query("pageToken") String pageToken,
+        @Header("Authorization") String token
+    );
+
+    // Open windows of at least `duration` minutes shared by the faculty member and any `with` users
+    @GET("/api/users/{facultyId}/availability")
+    Call<Map<String, Object>> getFacultyAvailability(
+        @Path("facultyId") String facultyId,
+        @Query("from") String from,
+        @Query("to") String to,
+        @Query("duration") int durationMinutes,
+        @Query("with") List<String> with,
+        @Header("Authorization") String token
+    );
+
+    // Ranked full-text search; responds 503 while the server is still building its index
+    @GET("/api/appointments/search/text")
+    Call<List<Appointment>> searchAppointments(
+        @Query("q") String query,
+        @Query("pageSize") Integer pageSize,
+        @Query("pageToken") String pageToken,
+        @Header("Authorization") String token
+    );
+
+    @GET("/api/appointments/all")
+    Call<List<Appointment>> getAllFacultyAppointmentsPage(
+        @Query("pageSize") Integer pageSize,
+        @Query("pageToken") String pageToken,
+        @Header("Authorization") String token
+    );
+
+    @GET("/api/users/all")
+    Call<List<Map<String, Object>>> getAllUsersPage(
+        @Query("pageSize") Integer pageSize,
+        @Query("pageToken") String pageToken,
+        @Header("Authorization") String token
+    );
+
+    @GET("/api/users/faculties")
+    Call<List<Faculty>> getAllFacultiesPage(
+        @Query("pageSize") Integer pageSize,
+        @Query("pageToken") String pageToken,
+        @Header("Authorization") String token
+    );
+
+    // The signed-in user's notification inbox, newest first
+    @GET("/api/notifications")
+    Call<List<Notification>> getNotifications(
+        @Query("pageSize") Integer pageSize,
+        @Query("pageToken") String pageToken,
+        @Header("Authorization") String token
+    );
+
+    // {"unreadCount": n}, read from the per-user counter
+    @GET("/api/notifications/unread-count")
+    Call<Map<String, Object>> getUnreadNotificationCount(@Header("Authorization") String token);
+
+    @POST("/api/notifications/{notificationId}/read")
+    Call<Void> markNotificationRead(
+        @Path("notificationId") String notificationId,
+        @Header("Authorization") String token
+    );
+
+    @POST("/api/notifications/read-all")
+    Call<Map<String, Object>> markAllNotificationsRead(@Header("Authorization") String token);
+
+    @GET("/api/users/students")
+    Call<List<Map<String, Object>>> getAllStudentsPage(
+        @Query("pageSize") Integer pageSize,
+        @Query("pageToken") String pageToken,
+        @Header("Authorization") String token
+    );
 } 
\ No newline at end of file
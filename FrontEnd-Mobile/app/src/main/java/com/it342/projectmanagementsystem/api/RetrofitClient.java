@@ -3,11 +3,13 @@ package com.it342.projectmanagementsystem.api;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
+import java.io.File;
 import java.util.concurrent.TimeUnit;
 import okhttp3.ConnectionSpec;
 import java.util.Arrays;
@@ -18,6 +20,7 @@ public class RetrofitClient {
     private static final String TAG = "RetrofitClient";
     // In Android emulator, 10.0.2.2 is the special IP that maps to the host machine's localhost
     private static final String BASE_URL = "https://it342-projectmanagementsystem.onrender.com/";  // Deployed backend URL
+    private static final long HTTP_CACHE_SIZE = 10L * 1024 * 1024;
     private static RetrofitClient instance;
     private static Context context;
     private static Retrofit retrofit;
@@ -34,6 +37,9 @@ public class RetrofitClient {
         Log.d(TAG, "Context: " + context.getPackageName());
 
         OkHttpClient client = new OkHttpClient.Builder()
+            // List endpoints send ETags with "no-cache": responses are stored here and
+            // revalidated with If-None-Match, so an unchanged list comes back as a bodyless 304
+            .cache(new Cache(new File(context.getCacheDir(), "http"), HTTP_CACHE_SIZE))
             .addInterceptor(chain -> {
                 SharedPreferences prefs = context.getSharedPreferences("AuthPrefs", Context.MODE_PRIVATE);
                 String token = prefs.getString("token", "");
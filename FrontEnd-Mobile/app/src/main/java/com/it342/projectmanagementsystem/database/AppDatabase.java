@@ -0,0 +1,36 @@
+package com.it342.projectmanagementsystem.database;
+
+import android.content.Context;
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+
+/**
+ * On-device cache of what the screens last showed, so they can paint before the
+ * backend answers. Rows are disposable: the schema is rebuilt rather than migrated.
+ */
+@Database(entities = {AppointmentEntity.class, NotificationEntity.class, FacultyEntity.class},
+        version = 1, exportSchema = false)
+public abstract class AppDatabase extends RoomDatabase {
+    private static final String DATABASE_NAME = "pms-cache.db";
+    private static volatile AppDatabase instance;
+
+    public abstract AppointmentDao appointmentDao();
+
+    public abstract NotificationDao notificationDao();
+
+    public abstract FacultyDao facultyDao();
+
+    public static AppDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AppDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(), AppDatabase.class, DATABASE_NAME)
+                            .fallbackToDestructiveMigration()
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,34 @@
+package com.it342.projectmanagementsystem.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import java.util.List;
+
+@Dao
+public abstract class AppointmentDao {
+    @Query("SELECT * FROM appointments WHERE ownerId = :ownerId ORDER BY startTime")
+    public abstract List<AppointmentEntity> getAll(String ownerId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void upsert(List<AppointmentEntity> appointments);
+
+    @Query("DELETE FROM appointments WHERE ownerId = :ownerId AND id IN (:ids)")
+    public abstract void delete(String ownerId, List<String> ids);
+
+    @Query("DELETE FROM appointments WHERE ownerId = :ownerId")
+    public abstract void deleteAll(String ownerId);
+
+    // Applies one sync response atomically
+    @Transaction
+    public void apply(String ownerId, boolean replace, List<AppointmentEntity> changed, List<String> deleted) {
+        if (replace) {
+            deleteAll(ownerId);
+        } else if (!deleted.isEmpty()) {
+            delete(ownerId, deleted);
+        }
+        upsert(changed);
+    }
+}
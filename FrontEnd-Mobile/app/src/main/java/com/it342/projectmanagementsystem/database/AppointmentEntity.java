@@ -0,0 +1,28 @@
+package com.it342.projectmanagementsystem.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * Cached appointment row. The full model is kept as JSON; the columns the screens
+ * filter and sort on are pulled out and indexed.
+ */
+@Entity(tableName = "appointments",
+        primaryKeys = {"ownerId", "id"},
+        indices = {@Index("startTime"), @Index("status")})
+public class AppointmentEntity {
+    // User whose list this row belongs to
+    @NonNull
+    public String ownerId = "";
+
+    @NonNull
+    public String id = "";
+
+    // Epoch millis, 0 when unknown
+    public long startTime;
+
+    public String status;
+
+    public String json;
+}
@@ -0,0 +1,26 @@
+package com.it342.projectmanagementsystem.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import java.util.List;
+
+@Dao
+public abstract class FacultyDao {
+    @Query("SELECT * FROM faculties ORDER BY position")
+    public abstract List<FacultyEntity> getAll();
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void upsert(List<FacultyEntity> faculties);
+
+    @Query("DELETE FROM faculties")
+    public abstract void deleteAll();
+
+    @Transaction
+    public void replaceAll(List<FacultyEntity> faculties) {
+        deleteAll();
+        upsert(faculties);
+    }
+}
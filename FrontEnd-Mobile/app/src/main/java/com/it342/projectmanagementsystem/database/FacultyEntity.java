@@ -0,0 +1,20 @@
+package com.it342.projectmanagementsystem.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Cached faculty directory row.
+ */
+@Entity(tableName = "faculties")
+public class FacultyEntity {
+    @PrimaryKey
+    @NonNull
+    public String userId = "";
+
+    // Insertion order of the last server response
+    public int position;
+
+    public String json;
+}
@@ -0,0 +1,160 @@
+package com.it342.projectmanagementsystem.database;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.google.firebase.Timestamp;
+import com.google.gson.Gson;
+import com.it342.projectmanagementsystem.models.Appointment;
+import com.it342.projectmanagementsystem.models.Faculty;
+import com.it342.projectmanagementsystem.models.Notification;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads and writes the Room cache off the main thread and hands results back on it.
+ * Screens render whatever is cached first, then reconcile through ApiService and write
+ * the server's answer back here.
+ */
+public class LocalStore {
+    private static final String TAG = "LocalStore";
+    // One writer keeps sync responses applied in arrival order
+    private static final ExecutorService diskIO = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Gson gson = new Gson();
+
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private final AppDatabase db;
+
+    public LocalStore(Context context) {
+        db = AppDatabase.getInstance(context);
+    }
+
+    // Appointments
+
+    public void loadAppointments(String ownerId, Callback<List<Appointment>> callback) {
+        diskIO.execute(() -> {
+            List<Appointment> appointments = new ArrayList<>();
+            for (AppointmentEntity entity : db.appointmentDao().getAll(ownerId)) {
+                Appointment appointment = fromJson(entity.json, Appointment.class);
+                if (appointment != null) {
+                    appointments.add(appointment);
+                }
+            }
+            mainHandler.post(() -> callback.onResult(appointments));
+        });
+    }
+
+    /**
+     * Upserts changed appointments and drops deleted ones, or replaces the user's rows
+     * entirely when replace is set; then returns the merged list.
+     */
+    public void applyAppointmentChanges(String ownerId, boolean replace, List<Appointment> changed,
+                                        List<String> deleted, Callback<List<Appointment>> callback) {
+        diskIO.execute(() -> {
+            List<AppointmentEntity> rows = new ArrayList<>();
+            for (Appointment appointment : changed) {
+                String id = appointment.getAppointmentId() != null ? appointment.getAppointmentId() : appointment.getId();
+                if (id == null) {
+                    continue;
+                }
+                AppointmentEntity entity = new AppointmentEntity();
+                entity.ownerId = ownerId;
+                entity.id = id;
+                entity.startTime = millis(appointment.getStartTime());
+                entity.status = appointment.getStatus();
+                entity.json = gson.toJson(appointment);
+                rows.add(entity);
+            }
+            db.appointmentDao().apply(ownerId, replace, rows, deleted);
+            loadAppointments(ownerId, callback);
+        });
+    }
+
+    // Notifications
+
+    public void loadNotifications(String ownerId, int limit, Callback<List<Notification>> callback) {
+        diskIO.execute(() -> {
+            List<Notification> notifications = new ArrayList<>();
+            for (NotificationEntity entity : db.notificationDao().getNewest(ownerId, limit)) {
+                Notification notification = fromJson(entity.json, Notification.class);
+                if (notification != null) {
+                    notifications.add(notification);
+                }
+            }
+            mainHandler.post(() -> callback.onResult(notifications));
+        });
+    }
+
+    // Keeps the newest page as the server returned it
+    public void replaceNotifications(String ownerId, List<Notification> notifications) {
+        List<NotificationEntity> rows = new ArrayList<>();
+        for (Notification notification : notifications) {
+            if (notification.getId() == null) {
+                continue;
+            }
+            NotificationEntity entity = new NotificationEntity();
+            entity.ownerId = ownerId;
+            entity.id = notification.getId();
+            entity.createdAt = millis(notification.getCreatedAt());
+            entity.read = notification.isRead();
+            entity.json = gson.toJson(notification);
+            rows.add(entity);
+        }
+        diskIO.execute(() -> db.notificationDao().replaceAll(ownerId, rows));
+    }
+
+    // Faculties
+
+    public void loadFaculties(Callback<List<Faculty>> callback) {
+        diskIO.execute(() -> {
+            List<Faculty> faculties = new ArrayList<>();
+            for (FacultyEntity entity : db.facultyDao().getAll()) {
+                Faculty faculty = fromJson(entity.json, Faculty.class);
+                if (faculty != null) {
+                    faculties.add(faculty);
+                }
+            }
+            mainHandler.post(() -> callback.onResult(faculties));
+        });
+    }
+
+    public void replaceFaculties(List<Faculty> faculties) {
+        List<FacultyEntity> rows = new ArrayList<>();
+        for (Faculty faculty : faculties) {
+            if (faculty.getUserId() == null) {
+                continue;
+            }
+            FacultyEntity entity = new FacultyEntity();
+            entity.userId = faculty.getUserId();
+            entity.position = rows.size();
+            entity.json = gson.toJson(faculty);
+            rows.add(entity);
+        }
+        diskIO.execute(() -> db.facultyDao().replaceAll(rows));
+    }
+
+    // Drops every cached row, e.g. on logout
+    public void clear() {
+        diskIO.execute(db::clearAllTables);
+    }
+
+    private static <T> T fromJson(String json, Class<T> type) {
+        try {
+            return gson.fromJson(json, type);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Skipping unreadable cached " + type.getSimpleName(), e);
+            return null;
+        }
+    }
+
+    private static long millis(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toDate().getTime() : 0L;
+    }
+}
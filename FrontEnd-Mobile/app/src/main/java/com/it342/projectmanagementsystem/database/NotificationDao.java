@@ -0,0 +1,26 @@
+package com.it342.projectmanagementsystem.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import java.util.List;
+
+@Dao
+public abstract class NotificationDao {
+    @Query("SELECT * FROM notifications WHERE ownerId = :ownerId ORDER BY createdAt DESC LIMIT :limit")
+    public abstract List<NotificationEntity> getNewest(String ownerId, int limit);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void upsert(List<NotificationEntity> notifications);
+
+    @Query("DELETE FROM notifications WHERE ownerId = :ownerId")
+    public abstract void deleteAll(String ownerId);
+
+    @Transaction
+    public void replaceAll(String ownerId, List<NotificationEntity> notifications) {
+        deleteAll(ownerId);
+        upsert(notifications);
+    }
+}
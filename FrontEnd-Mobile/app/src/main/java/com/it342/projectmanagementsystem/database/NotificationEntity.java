@@ -0,0 +1,26 @@
+package com.it342.projectmanagementsystem.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * Cached notification row: the newest page of a user's inbox.
+ */
+@Entity(tableName = "notifications",
+        primaryKeys = {"ownerId", "id"},
+        indices = {@Index({"ownerId", "createdAt"})})
+public class NotificationEntity {
+    @NonNull
+    public String ownerId = "";
+
+    @NonNull
+    public String id = "";
+
+    // Epoch millis, 0 when unknown
+    public long createdAt;
+
+    public boolean read;
+
+    public String json;
+}
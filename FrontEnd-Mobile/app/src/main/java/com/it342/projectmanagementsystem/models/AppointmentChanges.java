@@ -0,0 +1,43 @@
+package com.it342.projectmanagementsystem.models;
+
+import com.google.gson.annotations.SerializedName;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response of GET /api/appointments/changes: appointments created or updated since the
+ * last sync, ids of deleted ones, and the cursor for the next call. With fullResync the
+ * changes are the complete list; without a cursor the client must reload the full list.
+ */
+public class AppointmentChanges {
+    @SerializedName("changes")
+    private List<Appointment> changes;
+
+    @SerializedName("deleted")
+    private List<String> deleted;
+
+    @SerializedName("cursor")
+    private String cursor;
+
+    @SerializedName("fullResync")
+    private boolean fullResync;
+
+    // Default constructor for Gson
+    public AppointmentChanges() {}
+
+    public List<Appointment> getChanges() {
+        return changes != null ? changes : new ArrayList<>();
+    }
+
+    public List<String> getDeleted() {
+        return deleted != null ? deleted : new ArrayList<>();
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public boolean isFullResync() {
+        return fullResync;
+    }
+}
@@ -238,6 +238,12 @@ public class PMSFirebaseMessagingService extends FirebaseMessagingService {
             Log.e(TAG, "Cannot store notification: user ID not found");
             return;
         }
+
+        // The backend already stored (and counted) this one
+        if (data != null && data.containsKey("notificationId")) {
+            Log.d(TAG, "Notification already stored with ID: " + data.get("notificationId"));
+            return;
+        }
         
         // Create notification data
         Map<String, Object> notificationData = new HashMap<>();
@@ -259,12 +265,10 @@ public class PMSFirebaseMessagingService extends FirebaseMessagingService {
             notificationData.put("type", type);
         }
         
-        // Store in Firestore
-        com.google.firebase.firestore.FirebaseFirestore.getInstance()
-            .collection("notifications")
-            .add(notificationData)
-            .addOnSuccessListener(documentReference -> 
-                Log.d(TAG, "Notification stored in Firestore with ID: " + documentReference.getId()))
+        // Store in Firestore, counting it as unread in the same batch
+        NotificationHelper.addNotification(userId, notificationData)
+            .addOnSuccessListener(aVoid -> 
+                Log.d(TAG, "Notification stored in Firestore for user: " + userId))
             .addOnFailureListener(e -> 
                 Log.e(TAG, "Error storing notification in Firestore", e));
     }
@@ -0,0 +1,93 @@
+package com.it342.projectmanagementsystem.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import com.it342.projectmanagementsystem.api.ApiService;
+import com.it342.projectmanagementsystem.database.LocalStore;
+import com.it342.projectmanagementsystem.models.Appointment;
+import com.it342.projectmanagementsystem.models.AppointmentChanges;
+import java.util.List;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Local copy of the signed-in user's appointment list, kept current through
+ * GET /api/appointments/changes. The rows live in the Room cache (see {@link LocalStore})
+ * so screens can paint them before the network answers; the sync cursor lives in
+ * SharedPreferences. A warm refresh only downloads what changed since the cursor.
+ * When the server cannot answer from its timeline (or the request fails) the listener
+ * is told to fall back to a full load.
+ */
+public class AppointmentSyncStore {
+    private static final String TAG = "AppointmentSyncStore";
+    private static final String PREFS_NAME = "AppointmentSync";
+    private static final String KEY_USER_ID = "userId";
+    private static final String KEY_CURSOR = "cursor";
+
+    public interface SyncListener {
+        // appointments is the merged local list; changed is false when nothing came back
+        void onSynced(List<Appointment> appointments, boolean changed);
+
+        // Delta sync unavailable; load the full list the old way
+        void onFallback();
+    }
+
+    private final SharedPreferences prefs;
+    private final LocalStore localStore;
+
+    public AppointmentSyncStore(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        localStore = new LocalStore(context);
+    }
+
+    // The list as of the last sync, for painting before the network answers
+    public void loadCached(String userId, LocalStore.Callback<List<Appointment>> callback) {
+        localStore.loadAppointments(userId, callback);
+    }
+
+    public void sync(ApiService apiService, String userId, String token, SyncListener listener) {
+        // A cursor is only valid for the user it was issued to
+        if (!userId.equals(prefs.getString(KEY_USER_ID, null))) {
+            prefs.edit().clear().putString(KEY_USER_ID, userId).apply();
+        }
+        String cursor = prefs.getString(KEY_CURSOR, null);
+
+        apiService.getAppointmentChanges(cursor, "Bearer " + token).enqueue(new Callback<AppointmentChanges>() {
+            @Override
+            public void onResponse(Call<AppointmentChanges> call, Response<AppointmentChanges> response) {
+                AppointmentChanges changes = response.body();
+                if (!response.isSuccessful() || changes == null || changes.getCursor() == null) {
+                    Log.d(TAG, "Delta sync unavailable (HTTP " + response.code() + "), falling back to full load");
+                    // A 400 means the stored cursor is unusable; start over next time
+                    prefs.edit().remove(KEY_CURSOR).apply();
+                    listener.onFallback();
+                    return;
+                }
+                Log.d(TAG, "Synced appointments: " + changes.getChanges().size() + " changed, "
+                        + changes.getDeleted().size() + " deleted, fullResync=" + changes.isFullResync());
+                boolean changed = changes.isFullResync()
+                        || !changes.getChanges().isEmpty() || !changes.getDeleted().isEmpty();
+                // The cursor only advances once the rows it covers are stored
+                localStore.applyAppointmentChanges(userId, changes.isFullResync(), changes.getChanges(),
+                        changes.getDeleted(), appointments -> {
+                            prefs.edit().putString(KEY_CURSOR, changes.getCursor()).apply();
+                            listener.onSynced(appointments, changed);
+                        });
+            }
+
+            @Override
+            public void onFailure(Call<AppointmentChanges> call, Throwable t) {
+                Log.e(TAG, "Error syncing appointment changes", t);
+                listener.onFallback();
+            }
+        });
+    }
+
+    // Forget the cursor and every cached row, e.g. on logout
+    public void clear() {
+        prefs.edit().clear().apply();
+        localStore.clear();
+    }
+}
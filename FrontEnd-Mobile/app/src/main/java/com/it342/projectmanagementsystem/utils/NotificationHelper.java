@@ -1,13 +1,18 @@
 package com.it342.projectmanagementsystem.utils;
 
 import android.util.Log;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
 import com.it342.projectmanagementsystem.models.Appointment;
 import com.it342.projectmanagementsystem.models.Notification;
 import java.text.SimpleDateFormat;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Locale;
-import java.util.Map;
 import java.util.TimeZone;
 
 /**
@@ -16,6 +21,8 @@ import java.util.TimeZone;
 public class NotificationHelper {
     private static final String TAG = "NotificationHelper";
     private static final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    // Per-user unread totals, kept by the backend and by every client-side notification write
+    private static final String UNREAD_COUNTERS = "notification_counters";
     
     /**
      * Create a notification for an appointment request
@@ -63,14 +70,24 @@ public class NotificationHelper {
         );
         
         // Save to Firestore
-        db.collection("notifications")
-                .add(notification)
-                .addOnSuccessListener(documentReference -> {
-                    Log.d(TAG, "Notification created with ID: " + documentReference.getId());
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error creating notification", e);
-                });
+        addNotification(facultyId, notification)
+                .addOnSuccessListener(aVoid -> Log.d(TAG, "Notification created for faculty: " + facultyId))
+                .addOnFailureListener(e -> Log.e(TAG, "Error creating notification", e));
+    }
+
+    /**
+     * Store a notification together with the recipient's unread counter increment,
+     * so the badge count stays in step with the inbox
+     *
+     * @param recipientId The user the notification is for
+     * @param notification A Notification or a field map
+     */
+    public static Task<Void> addNotification(String recipientId, Object notification) {
+        WriteBatch batch = db.batch();
+        batch.set(db.collection("notifications").document(), notification);
+        batch.set(db.collection(UNREAD_COUNTERS).document(recipientId),
+                Collections.singletonMap("unread", FieldValue.increment(1)), SetOptions.merge());
+        return batch.commit();
     }
     
     /**
@@ -83,12 +100,21 @@ public class NotificationHelper {
             return;
         }
         
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("read", true);
-        
-        db.collection("notifications")
-                .document(notificationId)
-                .update(updates)
+        // Only an unread notification takes one off its recipient's counter
+        DocumentReference notificationRef = db.collection("notifications").document(notificationId);
+        db.runTransaction(transaction -> {
+                    DocumentSnapshot notification = transaction.get(notificationRef);
+                    String recipientId = notification.getString("recipientId");
+                    if (!notification.exists() || Boolean.TRUE.equals(notification.getBoolean("read"))) {
+                        return null;
+                    }
+                    transaction.update(notificationRef, "read", true);
+                    if (recipientId != null) {
+                        transaction.set(db.collection(UNREAD_COUNTERS).document(recipientId),
+                                Collections.singletonMap("unread", FieldValue.increment(-1)), SetOptions.merge());
+                    }
+                    return null;
+                })
                 .addOnSuccessListener(aVoid -> 
                     Log.d(TAG, "Notification " + notificationId + " marked as read"))
                 .addOnFailureListener(e -> 
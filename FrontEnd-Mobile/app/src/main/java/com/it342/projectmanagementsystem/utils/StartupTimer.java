@@ -0,0 +1,28 @@
+package com.it342.projectmanagementsystem.utils;
+
+import android.app.Activity;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Measures cold start to first paint of real content. The first screen to show data
+ * logs the time since the process started, tagged with where the data came from
+ * ("cache" or "network"), and calls reportFullyDrawn() so the platform's
+ * "Fully drawn" timing in logcat and Android vitals covers it too.
+ */
+public class StartupTimer {
+    private static final String TAG = "StartupTimer";
+    private static boolean reported = false;
+
+    public static void firstPaint(Activity activity, String source) {
+        if (reported) {
+            return;
+        }
+        reported = true;
+        long elapsed = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+        Log.i(TAG, "First paint of " + activity.getClass().getSimpleName() + " from " + source
+                + " " + elapsed + " ms after process start");
+        activity.reportFullyDrawn();
+    }
+}